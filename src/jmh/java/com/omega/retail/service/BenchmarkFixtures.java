@@ -0,0 +1,140 @@
+package com.omega.retail.service;
+
+import com.omega.retail.entity.FixedIntervalPolicy;
+import com.omega.retail.entity.FixedLotPolicy;
+import com.omega.retail.entity.Product;
+import com.omega.retail.entity.ProductProvider;
+import com.omega.retail.entity.Provider;
+import com.omega.retail.entity.PurchaseOrder;
+import com.omega.retail.entity.PurchaseOrderDetail;
+import com.omega.retail.entity.Sale;
+import com.omega.retail.entity.SaleDetail;
+import com.omega.retail.enums.InventoryPolicy;
+import com.omega.retail.enums.ProductProviderState;
+import com.omega.retail.enums.ProductState;
+import com.omega.retail.enums.ProviderState;
+import com.omega.retail.enums.PurchaseOrderState;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Entidades armadas en memoria para los benchmarks
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    static Provider provider(long id) {
+        return Provider.builder()
+                .id(id)
+                .name("Proveedor " + id)
+                .providerState(ProviderState.ALTA)
+                .build();
+    }
+
+    // Producto con un proveedor predeterminado y otros no predeterminados; id par = lote fijo, impar = intervalo fijo
+    static Product product(long id, int providers, Provider defaultProvider) {
+        boolean lot = id % 2 == 0;
+        Product product = Product.builder()
+                .id(id)
+                .code("BM-" + id)
+                .description("Producto benchmark " + id)
+                .currentStock((int) (id % 120))
+                .annualDemand(500 + (int) (id % 4_000))
+                .storageCost(0.5 + id % 7)
+                .productState(ProductState.ALTA)
+                .inventoryPolicy(lot ? InventoryPolicy.LOTE_FIJO : InventoryPolicy.INTERVALO_FIJO)
+                .productProviders(new ArrayList<>())
+                .build();
+        if (lot) {
+            FixedLotPolicy policy = new FixedLotPolicy();
+            policy.setId(id);
+            policy.setSafetyStock((int) (id % 13));
+            policy.setOptimalLotSize(50 + (int) (id % 200));
+            policy.setReorderPoint(60);
+            product.setFixedLotPolicy(policy);
+        } else {
+            FixedIntervalPolicy policy = new FixedIntervalPolicy();
+            policy.setId(id);
+            policy.setSafetyStock((int) (id % 13));
+            policy.setReviewIntervalDays(7 + (int) (id % 20));
+            policy.setLastReviewDate(LocalDate.now().minusDays(id % 30));
+            product.setFixedIntervalPolicy(policy);
+        }
+        for (int i = 0; i < providers; i++) {
+            boolean isDefault = i == providers - 1;
+            product.getProductProviders().add(ProductProvider.builder()
+                    .id(id * 10 + i)
+                    .product(product)
+                    .provider(isDefault ? defaultProvider : provider(1_000 + i))
+                    .unitCost(3.5 + i)
+                    .shippingCost(10.0 + id % 5)
+                    .leadTime(1 + (int) (id % 9))
+                    .isDefault(isDefault)
+                    .productProviderState(ProductProviderState.ALTA)
+                    .build());
+        }
+        return product;
+    }
+
+    static List<Product> products(int count, int providers, int providerCount) {
+        List<Provider> defaultProviders = new ArrayList<>();
+        for (int i = 0; i < providerCount; i++) {
+            defaultProviders.add(provider(i + 1));
+        }
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            products.add(product(i + 1, providers, defaultProviders.get(i % providerCount)));
+        }
+        return products;
+    }
+
+    static Sale sale(List<Product> products) {
+        Sale sale = Sale.builder()
+                .id(1L)
+                .date(LocalDateTime.now())
+                .details(new ArrayList<>())
+                .build();
+        double total = 0;
+        for (int i = 0; i < products.size(); i++) {
+            double subtotal = 2 * 9.99;
+            sale.getDetails().add(SaleDetail.builder()
+                    .id((long) i)
+                    .quantity(2)
+                    .unitPrice(9.99)
+                    .subtotal(subtotal)
+                    .product(products.get(i))
+                    .sale(sale)
+                    .build());
+            total += subtotal;
+        }
+        sale.setTotal(total);
+        return sale;
+    }
+
+    static PurchaseOrder purchaseOrder(Provider provider, List<Product> products) {
+        PurchaseOrder order = PurchaseOrder.builder()
+                .id(1L)
+                .createdAt(LocalDate.now())
+                .purchaseOrderState(PurchaseOrderState.PENDIENTE)
+                .provider(provider)
+                .details(new ArrayList<>())
+                .total(0.0)
+                .build();
+        for (int i = 0; i < products.size(); i++) {
+            double subtotal = 100 * 3.5;
+            order.getDetails().add(PurchaseOrderDetail.builder()
+                    .id((long) i)
+                    .quantity(100)
+                    .price(3.5)
+                    .subtotal(subtotal)
+                    .product(products.get(i))
+                    .purchaseOrder(order)
+                    .build());
+            order.setTotal(order.getTotal() + subtotal);
+        }
+        return order;
+    }
+}
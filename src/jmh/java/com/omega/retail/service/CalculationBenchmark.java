@@ -0,0 +1,60 @@
+package com.omega.retail.service;
+
+import com.omega.retail.enums.InventoryPolicy;
+import com.omega.retail.repository.projection.RecalculationRow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Evaluacion de BulkRecalculationService sin base ni pool: el aplanado de las filas en arreglos y las formulas
+// sobre esos arreglos en un hilo. La mitad de los productos es de lote fijo y la otra mitad de intervalo fijo
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CalculationBenchmark {
+
+    @Param({"1000", "100000"})
+    private int products;
+
+    private List<RecalculationRow> rows;
+    private BulkRecalculationService.Inputs inputs;
+
+    @Setup
+    public void setUp() {
+        rows = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            boolean lot = i % 2 == 0;
+            rows.add(new RecalculationRow(i, lot ? InventoryPolicy.LOTE_FIJO : InventoryPolicy.INTERVALO_FIJO,
+                    100 + i % 5_000, 0.5 + i % 7, null,
+                    lot ? (long) i : null, null, null, lot ? i % 13 : null,
+                    lot ? null : (long) i, lot ? null : 7 + i % 20, lot ? null : i % 13, null,
+                    10.0 + i % 5, 1 + i % 9, 3.5 + i % 50));
+        }
+        inputs = BulkRecalculationService.Inputs.of(rows);
+    }
+
+    @Benchmark
+    public BulkRecalculationService.Inputs flatten() {
+        return BulkRecalculationService.Inputs.of(rows);
+    }
+
+    @Benchmark
+    public BulkRecalculationService.Outputs evaluate() {
+        return BulkRecalculationService.evaluate(inputs);
+    }
+}
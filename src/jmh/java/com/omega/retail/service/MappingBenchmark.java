@@ -0,0 +1,73 @@
+package com.omega.retail.service;
+
+import com.omega.retail.dto.response.ProductResponse;
+import com.omega.retail.dto.response.PurchaseOrderResponse;
+import com.omega.retail.dto.response.SaleResponse;
+import com.omega.retail.entity.Product;
+import com.omega.retail.entity.PurchaseOrder;
+import com.omega.retail.entity.Sale;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Entidad -> DTO de los listados: ProductService.toResponse, SaleService.mapToResponse y
+// PurchaseOrderService.mapToResponse. Los mappers no usan dependencias, los servicios se arman con null
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+
+    // Proveedores del producto y lineas de la venta / orden
+    @Param({"1", "10"})
+    private int lines;
+
+    private ProductService productService;
+    private SaleService saleService;
+    private PurchaseOrderService purchaseOrderService;
+    private Product product;
+    private Sale sale;
+    private PurchaseOrder purchaseOrder;
+
+    @Setup
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        productService = new ProductService(null, null, null, null, null, meterRegistry);
+        saleService = new SaleService(null, null, null, null, meterRegistry);
+        purchaseOrderService = new PurchaseOrderService(null, null, null, null, null, null, null, null, null, meterRegistry);
+
+        List<Product> products = BenchmarkFixtures.products(lines, 1, 1);
+        product = BenchmarkFixtures.product(2, lines, BenchmarkFixtures.provider(1));
+        sale = BenchmarkFixtures.sale(products);
+        purchaseOrder = BenchmarkFixtures.purchaseOrder(BenchmarkFixtures.provider(1), products);
+    }
+
+    @Benchmark
+    public ProductResponse productToResponse() {
+        return productService.toResponse(product);
+    }
+
+    @Benchmark
+    public SaleResponse saleToResponse() {
+        return saleService.mapToResponse(sale);
+    }
+
+    @Benchmark
+    public PurchaseOrderResponse purchaseOrderToResponse() {
+        return purchaseOrderService.mapToResponse(purchaseOrder);
+    }
+}
@@ -0,0 +1,55 @@
+package com.omega.retail.service;
+
+import com.omega.retail.entity.Product;
+import com.omega.retail.entity.ProductProvider;
+import com.omega.retail.entity.PurchaseOrder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Decision de reposicion de generatePurchaseOrder para los productos de una ventana de ventas: que productos
+// estan bajo el punto de pedido y el armado de las ordenes por proveedor. Cada invocacion arma ordenes nuevas
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReorderBenchmark {
+
+    // Productos de la ventana (la mitad de lote fijo, y de esos parte bajo el punto de pedido)
+    @Param({"100", "1000"})
+    private int products;
+
+    private List<Product> window;
+    private List<ProductProvider> toReorder;
+
+    @Setup
+    public void setUp() {
+        window = BenchmarkFixtures.products(products, 3, 20);
+        toReorder = PurchaseOrderService.selectReorders(window);
+    }
+
+    @Benchmark
+    public List<ProductProvider> selectReorders() {
+        return PurchaseOrderService.selectReorders(window);
+    }
+
+    @Benchmark
+    public Set<PurchaseOrder> addReorderDetails() {
+        return PurchaseOrderService.addReorderDetails(toReorder, new HashMap<>());
+    }
+}
@@ -0,0 +1,99 @@
+package com.omega.retail.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Latencias (histograma HDR en microsegundos, 3 digitos significativos) y resultados de un endpoint.
+// ok = 2xx, rejected = 4xx (sin stock, orden en otro estado: respuestas validas del negocio),
+// errors = 5xx, timeouts y errores de conexion
+final class EndpointStats {
+
+    private static final long MAX_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    private final Recorder recorder = new Recorder(MAX_MICROS, 3);
+    private final LongAdder ok = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final Map<String, LongAdder> statuses = new ConcurrentHashMap<>();
+
+    void record(long latencyNanos, int status) {
+        recorder.recordValue(Math.min(MAX_MICROS, Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNanos))));
+        if (status >= 200 && status < 300) {
+            ok.increment();
+        } else if (status >= 400 && status < 500) {
+            rejected.increment();
+        } else {
+            errors.increment();
+        }
+        statuses.computeIfAbsent(String.valueOf(status), key -> new LongAdder()).increment();
+    }
+
+    void recordFailure(long latencyNanos, Throwable failure) {
+        recorder.recordValue(Math.min(MAX_MICROS, Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNanos))));
+        errors.increment();
+        statuses.computeIfAbsent(failure.getClass().getSimpleName(), key -> new LongAdder()).increment();
+    }
+
+    // No habia una orden en el estado necesario: no se disparo ningun pedido
+    void recordSkipped() {
+        skipped.increment();
+    }
+
+    // Descarta lo medido durante el calentamiento
+    void reset() {
+        recorder.reset();
+        ok.reset();
+        rejected.reset();
+        errors.reset();
+        skipped.reset();
+        statuses.clear();
+    }
+
+    Histogram histogram() {
+        return recorder.getIntervalHistogram();
+    }
+
+    Map<String, Object> toReport(String endpoint, Histogram histogram, double seconds) {
+        long requests = ok.sum() + rejected.sum() + errors.sum();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("endpoint", endpoint);
+        report.put("requests", requests);
+        report.put("ok", ok.sum());
+        report.put("rejected", rejected.sum());
+        report.put("errors", errors.sum());
+        report.put("skipped", skipped.sum());
+        report.put("errorRate", requests == 0 ? 0.0 : (double) errors.sum() / requests);
+        report.put("rejectionRate", requests == 0 ? 0.0 : (double) rejected.sum() / requests);
+        report.put("throughputPerSecond", seconds == 0 ? 0.0 : requests / seconds);
+        report.put("latencyMillis", latency(histogram));
+        Map<String, Long> byStatus = new TreeMap<>();
+        statuses.forEach((status, count) -> byStatus.put(status, count.sum()));
+        report.put("statuses", byStatus);
+        return report;
+    }
+
+    static Map<String, Object> latency(Histogram histogram) {
+        Map<String, Object> latency = new LinkedHashMap<>();
+        boolean empty = histogram.getTotalCount() == 0;
+        latency.put("min", empty ? 0.0 : millis(histogram.getMinValue()));
+        latency.put("mean", empty ? 0.0 : histogram.getMean() / 1000.0);
+        latency.put("p50", millis(histogram.getValueAtPercentile(50)));
+        latency.put("p90", millis(histogram.getValueAtPercentile(90)));
+        latency.put("p99", millis(histogram.getValueAtPercentile(99)));
+        latency.put("p999", millis(histogram.getValueAtPercentile(99.9)));
+        latency.put("max", millis(histogram.getMaxValue()));
+        return latency;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
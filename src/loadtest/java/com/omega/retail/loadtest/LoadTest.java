@@ -0,0 +1,336 @@
+package com.omega.retail.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Prueba de carga del circuito venta -> stock -> reposicion contra una instancia levantada. Cada cliente elige
+// operaciones segun --mix: ventas (descuentan stock y pueden generar ordenes), lecturas de productos y proveedores,
+// y envio y finalizacion de ordenes de compra (que reponen stock). Las ordenes a enviar o finalizar salen de pools
+// que se cargan desde la API cada --refresh-seconds y se alimentan con las propias transiciones del test.
+//
+// Con --rate=0 los clientes trabajan en lazo cerrado. Con --rate>0 cada cliente tiene un cronograma fijo y la latencia
+// se mide desde el instante en que el pedido tendria que haber salido, asi una demora del servidor no esconde los
+// pedidos que no se llegaron a mandar (coordinated omission).
+//
+// Los clientes corren en virtual threads cuando la JVM los tiene (Java 21+); en Java 17 se usa un pool de
+// plataforma con un thread por cliente
+public final class LoadTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private static final double MIN_UNIT_PRICE = 1.0;
+    private static final double MAX_UNIT_PRICE = 200.0;
+
+    private final LoadTestConfig config;
+    private final HttpClient http;
+    private final Map<Operation, EndpointStats> stats = new EnumMap<>(Operation.class);
+    private final Operation[] wheel;
+    private final ConcurrentLinkedQueue<Long> pendingOrders = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Long> sentOrders = new ConcurrentLinkedQueue<>();
+    // Ordenes tomadas por un cliente: un refresco no las vuelve a poner en los pools mientras estan en curso
+    private final Map<Long, Boolean> claimedOrders = new ConcurrentHashMap<>();
+
+    private volatile boolean running = true;
+    private volatile long measureFromNanos;
+
+    private LoadTest(LoadTestConfig config) {
+        this.config = config;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(config.timeout)
+                .build();
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new EndpointStats());
+        }
+        List<Operation> slots = new ArrayList<>();
+        config.mix.forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                slots.add(operation);
+            }
+        });
+        this.wheel = slots.toArray(Operation[]::new);
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+        Map<String, Object> report = new LoadTest(config).run();
+        Path path = Path.of(config.report);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        MAPPER.writeValue(path.toFile(), report);
+        System.out.println("Reporte: " + path.toAbsolutePath());
+    }
+
+    private Map<String, Object> run() throws InterruptedException {
+        refreshOrders();
+        ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "loadtest-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long refreshSeconds = Math.max(1, config.refresh.toSeconds());
+        refresher.scheduleWithFixedDelay(this::refreshOrders, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+
+        ClientThreads threads = clientThreads(config.clients);
+        System.out.printf("%d clientes (%s) contra %s: %d s de calentamiento y %d s medidos%n",
+                config.clients, threads.kind, config.target, config.warmup.toSeconds(), config.duration.toSeconds());
+
+        long start = System.nanoTime();
+        measureFromNanos = start + config.warmup.toNanos();
+        for (int i = 0; i < config.clients; i++) {
+            int client = i;
+            threads.executor.execute(() -> runClient(client, start));
+        }
+
+        TimeUnit.NANOSECONDS.sleep(config.warmup.toNanos());
+        stats.values().forEach(EndpointStats::reset);
+        long measuredStart = System.nanoTime();
+        TimeUnit.NANOSECONDS.sleep(config.duration.toNanos());
+        running = false;
+        long measuredEnd = System.nanoTime();
+
+        threads.executor.shutdown();
+        if (!threads.executor.awaitTermination(config.timeout.toMillis() + 5_000, TimeUnit.MILLISECONDS)) {
+            threads.executor.shutdownNow();
+        }
+        refresher.shutdownNow();
+
+        Map<String, Object> report = report((measuredEnd - measuredStart) / 1e9, threads.kind);
+        printSummary(report);
+        return report;
+    }
+
+    private void runClient(int client, long start) {
+        SplittableRandom random = new SplittableRandom(config.seed * 31 + client);
+        // Cronograma del cliente en lazo abierto: los clientes se reparten el rate y arrancan desfasados
+        long intervalNanos = config.rate > 0 ? (long) (config.clients * 1e9 / config.rate) : 0;
+        long intendedStart = start + (intervalNanos * client) / config.clients;
+        while (running) {
+            if (intervalNanos > 0) {
+                long wait = intendedStart - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                if (!running) {
+                    return;
+                }
+            }
+            long measuredFrom = intervalNanos > 0 ? intendedStart : System.nanoTime();
+            execute(wheel[random.nextInt(wheel.length)], random, measuredFrom);
+            intendedStart += intervalNanos;
+        }
+    }
+
+    private void execute(Operation operation, SplittableRandom random, long measuredFrom) {
+        switch (operation) {
+            case SALE -> call(operation, measuredFrom, post("/api/sales", saleBody(random)));
+            case PRODUCT -> call(operation, measuredFrom, get("/api/products/" + productId(random)));
+            case PROVIDER -> call(operation, measuredFrom,
+                    get("/api/providers/" + (1 + random.nextLong(config.providers))));
+            case SEND -> transition(operation, pendingOrders, sentOrders, "/send", measuredFrom);
+            case FINALIZE -> transition(operation, sentOrders, null, "/finalize", measuredFrom);
+        }
+    }
+
+    // Toma una orden del pool de su estado actual; si la transicion sale bien pasa al pool del estado siguiente
+    private void transition(Operation operation, ConcurrentLinkedQueue<Long> from, ConcurrentLinkedQueue<Long> to,
+                            String action, long measuredFrom) {
+        Long orderId = from.poll();
+        if (orderId == null) {
+            if (System.nanoTime() >= measureFromNanos) {
+                stats.get(operation).recordSkipped();
+            }
+            return;
+        }
+        claimedOrders.put(orderId, Boolean.TRUE);
+        try {
+            int status = call(operation, measuredFrom, post("/api/purchase-orders/" + orderId + action, null));
+            if (to != null && status >= 200 && status < 300) {
+                to.offer(orderId);
+            }
+        } finally {
+            claimedOrders.remove(orderId);
+        }
+    }
+
+    private int call(Operation operation, long measuredFrom, HttpRequest request) {
+        try {
+            HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+            if (measuredFrom >= measureFromNanos) {
+                stats.get(operation).record(System.nanoTime() - measuredFrom, response.statusCode());
+            }
+            return response.statusCode();
+        } catch (IOException e) {
+            if (measuredFrom >= measureFromNanos) {
+                stats.get(operation).recordFailure(System.nanoTime() - measuredFrom, e);
+            }
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+            return -1;
+        }
+    }
+
+    // Pocas lineas por venta y productos sesgados hacia ids bajos, como las ventas del dataset sintetico
+    private String saleBody(SplittableRandom random) {
+        int lines = 1 + random.nextInt(config.maxLines);
+        StringBuilder body = new StringBuilder("{\"saleDetail\":[");
+        for (int i = 0; i < lines; i++) {
+            if (i > 0) {
+                body.append(',');
+            }
+            double unitPrice = Math.round(random.nextDouble(MIN_UNIT_PRICE, MAX_UNIT_PRICE) * 100) / 100.0;
+            body.append("{\"productId\":").append(productId(random))
+                    .append(",\"quantity\":").append(1 + random.nextInt(3))
+                    .append(",\"unitPrice\":").append(unitPrice)
+                    .append('}');
+        }
+        return body.append("]}").toString();
+    }
+
+    private long productId(SplittableRandom random) {
+        return 1 + (long) (config.products * Math.pow(random.nextDouble(), 2.5));
+    }
+
+    private void refreshOrders() {
+        refill(pendingOrders, "PENDIENTE");
+        refill(sentOrders, "ENVIADA");
+    }
+
+    private void refill(ConcurrentLinkedQueue<Long> pool, String state) {
+        try {
+            HttpResponse<String> response = http.send(get("/api/purchase-orders?state=" + state),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                System.err.printf("No se pudieron leer las ordenes %s: HTTP %d%n", state, response.statusCode());
+                return;
+            }
+            List<Long> ids = new ArrayList<>();
+            for (JsonNode order : MAPPER.readTree(response.body())) {
+                long id = order.get("id").asLong();
+                if (!claimedOrders.containsKey(id)) {
+                    ids.add(id);
+                }
+            }
+            pool.clear();
+            pool.addAll(ids);
+        } catch (IOException e) {
+            System.err.printf("No se pudieron leer las ordenes %s: %s%n", state, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(config.target + path))
+                .timeout(config.timeout)
+                .GET()
+                .build();
+    }
+
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(URI.create(config.target + path))
+                .timeout(config.timeout)
+                .header("Content-Type", "application/json")
+                .POST(json == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private Map<String, Object> report(double seconds, String threadKind) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("generatedAt", LocalDateTime.now().toString());
+        Map<String, Object> configReport = config.toReport();
+        configReport.put("clientThreads", threadKind);
+        report.put("config", configReport);
+        report.put("measuredSeconds", seconds);
+
+        Histogram total = new Histogram(3);
+        long requests = 0;
+        long errors = 0;
+        long rejected = 0;
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        for (Operation operation : config.mix.keySet()) {
+            Histogram histogram = stats.get(operation).histogram();
+            total.add(histogram);
+            Map<String, Object> endpoint = stats.get(operation).toReport(operation.endpoint, histogram, seconds);
+            requests += (long) endpoint.get("requests");
+            errors += (long) endpoint.get("errors");
+            rejected += (long) endpoint.get("rejected");
+            endpoints.put(operation.key, endpoint);
+        }
+        report.put("endpoints", endpoints);
+
+        Map<String, Object> totals = new LinkedHashMap<>();
+        totals.put("requests", requests);
+        totals.put("errors", errors);
+        totals.put("rejected", rejected);
+        totals.put("errorRate", requests == 0 ? 0.0 : (double) errors / requests);
+        totals.put("rejectionRate", requests == 0 ? 0.0 : (double) rejected / requests);
+        totals.put("throughputPerSecond", seconds == 0 ? 0.0 : requests / seconds);
+        totals.put("latencyMillis", EndpointStats.latency(total));
+        report.put("total", totals);
+        return report;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void printSummary(Map<String, Object> report) {
+        System.out.printf("%-40s %9s %8s %8s %8s %9s %9s %9s%n",
+                "endpoint", "req/s", "err %", "rej %", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        Map<String, Object> endpoints = (Map<String, Object>) report.get("endpoints");
+        for (Object value : endpoints.values()) {
+            printRow((Map<String, Object>) value, (String) ((Map<String, Object>) value).get("endpoint"));
+        }
+        printRow((Map<String, Object>) report.get("total"), "total");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void printRow(Map<String, Object> row, String name) {
+        Map<String, Object> latency = (Map<String, Object>) row.get("latencyMillis");
+        System.out.printf("%-40s %9.1f %8.2f %8.2f %8.2f %9.2f %9.2f %9.2f%n", name,
+                (double) row.get("throughputPerSecond"), 100 * (double) row.get("errorRate"), 100 * (double) row.get("rejectionRate"),
+                latency.get("p50"), latency.get("p99"), latency.get("p999"), latency.get("max"));
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor se busca por reflexion para que el harness compile con Java 17
+    private static ClientThreads clientThreads(int clients) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return new ClientThreads((ExecutorService) factory.invoke(null), "virtual");
+        } catch (ReflectiveOperationException e) {
+            return new ClientThreads(Executors.newFixedThreadPool(clients, runnable -> {
+                Thread thread = new Thread(runnable, "loadtest-client");
+                thread.setDaemon(true);
+                return thread;
+            }), "platform");
+        }
+    }
+
+    private record ClientThreads(ExecutorService executor, String kind) {
+    }
+}
@@ -0,0 +1,96 @@
+package com.omega.retail.loadtest;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Parametros de la corrida, como --clave=valor. Sin argumentos: 200 clientes durante 60 s contra localhost
+final class LoadTestConfig {
+
+    final String target;
+    final Duration duration;
+    final Duration warmup;
+    final int clients;
+    // Pedidos por segundo entre todos los clientes; 0 = lazo cerrado (cada cliente dispara apenas recibe respuesta)
+    final double rate;
+    final Map<Operation, Integer> mix;
+    // Rango de ids que se usan en las ventas y lecturas (el del dataset sintetico con el que se cargo la base)
+    final long products;
+    final long providers;
+    final int maxLines;
+    final Duration refresh;
+    final Duration timeout;
+    final String report;
+    final long seed;
+
+    private LoadTestConfig(Map<String, String> args) {
+        target = stripTrailingSlash(args.getOrDefault("target", "http://localhost:8080"));
+        duration = Duration.ofSeconds(Long.parseLong(args.getOrDefault("duration", "60")));
+        warmup = Duration.ofSeconds(Long.parseLong(args.getOrDefault("warmup", "10")));
+        clients = Integer.parseInt(args.getOrDefault("clients", "200"));
+        rate = Double.parseDouble(args.getOrDefault("rate", "0"));
+        mix = parseMix(args.getOrDefault("mix", "sale=70,product=15,provider=5,send=5,finalize=5"));
+        products = Long.parseLong(args.getOrDefault("products", "1000000"));
+        providers = Long.parseLong(args.getOrDefault("providers", "5000"));
+        maxLines = Integer.parseInt(args.getOrDefault("max-lines", "5"));
+        refresh = Duration.ofSeconds(Long.parseLong(args.getOrDefault("refresh-seconds", "10")));
+        timeout = Duration.ofMillis(Long.parseLong(args.getOrDefault("timeout-ms", "10000")));
+        report = args.getOrDefault("report", "target/loadtest/report.json");
+        seed = Long.parseLong(args.getOrDefault("seed", "42"));
+
+        if (clients <= 0 || products <= 0 || providers <= 0 || maxLines <= 0) {
+            throw new IllegalArgumentException("clients, products, providers y max-lines tienen que ser positivos");
+        }
+    }
+
+    static LoadTestConfig parse(String[] args) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Argumento invalido: " + arg + " (se espera --clave=valor)");
+            }
+            int equals = arg.indexOf('=');
+            values.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        return new LoadTestConfig(values);
+    }
+
+    Map<String, Object> toReport() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("target", target);
+        report.put("durationSeconds", duration.toSeconds());
+        report.put("warmupSeconds", warmup.toSeconds());
+        report.put("clients", clients);
+        report.put("rate", rate);
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        mix.forEach((operation, weight) -> weights.put(operation.key, weight));
+        report.put("mix", weights);
+        report.put("products", products);
+        report.put("providers", providers);
+        report.put("maxLines", maxLines);
+        report.put("seed", seed);
+        return report;
+    }
+
+    private static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> mix = new LinkedHashMap<>();
+        for (String part : value.split(",")) {
+            String[] entry = part.trim().split("=");
+            if (entry.length != 2) {
+                throw new IllegalArgumentException("Mezcla invalida: " + part);
+            }
+            int weight = Integer.parseInt(entry[1].trim());
+            if (weight > 0) {
+                mix.put(Operation.fromKey(entry[0].trim()), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("La mezcla no tiene ninguna operacion con peso positivo");
+        }
+        return mix;
+    }
+
+    private static String stripTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+}
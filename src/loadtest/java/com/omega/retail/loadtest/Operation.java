@@ -0,0 +1,27 @@
+package com.omega.retail.loadtest;
+
+import java.util.Arrays;
+
+// Operaciones que puede disparar un cliente; key es el nombre en --mix y en el reporte
+enum Operation {
+    SALE("sale", "POST /api/sales"),
+    PRODUCT("product", "GET /api/products/{id}"),
+    PROVIDER("provider", "GET /api/providers/{id}"),
+    SEND("send", "POST /api/purchase-orders/{id}/send"),
+    FINALIZE("finalize", "POST /api/purchase-orders/{id}/finalize");
+
+    final String key;
+    final String endpoint;
+
+    Operation(String key, String endpoint) {
+        this.key = key;
+        this.endpoint = endpoint;
+    }
+
+    static Operation fromKey(String key) {
+        return Arrays.stream(values())
+                .filter(operation -> operation.key.equals(key))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Operacion desconocida en --mix: " + key));
+    }
+}
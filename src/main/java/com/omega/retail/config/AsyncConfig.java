@@ -0,0 +1,105 @@
+package com.omega.retail.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+@EnableAsync
+@Configuration
+public class AsyncConfig implements AsyncConfigurer {
+
+    public static final String EVENT_EXECUTOR = "eventExecutor";
+
+    private final Environment environment;
+
+    public AsyncConfig(Environment environment) {
+        this.environment = environment;
+    }
+
+    // Pool acotado para el drenado del outbox: si la cola se llena la tarea se rechaza (AbortPolicy) en lugar de
+    // correr en el hilo que publica, que es un request o el scheduler. No se pierde nada: los eventos siguen en
+    // outbox_event y OutboxDispatcher los toma en el proximo poll. En modo virtual threads cada tarea tiene su
+    // propio virtual thread y el tope de max-size se mantiene como limite de concurrencia
+    @Bean(name = EVENT_EXECUTOR)
+    public TaskExecutor eventExecutor(@Value("${retail.events.executor.core-size:2}") int coreSize,
+                                      @Value("${retail.events.executor.max-size:4}") int maxSize,
+                                      @Value("${retail.events.executor.queue-capacity:500}") int queueCapacity,
+                                      MeterRegistry meterRegistry) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            return virtualEventExecutor(maxSize, meterRegistry);
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("retail-event-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+
+        Gauge.builder("retail.events.queue.depth", executor, e -> e.getThreadPoolExecutor().getQueue().size())
+                .description("Eventos esperando en la cola del executor")
+                .register(meterRegistry);
+        Gauge.builder("retail.events.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("Eventos procesandose")
+                .register(meterRegistry);
+
+        return executor;
+    }
+
+    @Override
+    public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
+        return (ex, method, params) -> log.error("Error procesando evento en {}", method.getName(), ex);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void logThreading() {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            log.info("Requests, @Scheduled, listeners y workers en virtual threads");
+        } else if (environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            log.warn("spring.threads.virtual.enabled=true requiere Java 21 (JVM actual: {}); se usan threads de plataforma",
+                    System.getProperty("java.version"));
+        }
+    }
+
+    private TaskExecutor virtualEventExecutor(int maxSize, MeterRegistry meterRegistry) {
+        AtomicInteger active = new AtomicInteger();
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("retail-event-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(maxSize);
+        executor.setTaskTerminationTimeout(30_000);
+        executor.setTaskDecorator(task -> () -> {
+            active.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                active.decrementAndGet();
+            }
+        });
+
+        Gauge.builder("retail.events.active", active, AtomicInteger::get)
+                .description("Eventos procesandose")
+                .register(meterRegistry);
+
+        return executor;
+    }
+}
@@ -0,0 +1,42 @@
+package com.omega.retail.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Timer de una operacion de negocio con tag outcome=success|failure. Las dos series se registran una sola vez;
+// cada llamada solo mide y elige cual, sin buscar el meter en el registry ni armar tags
+public final class OutcomeTimer {
+
+    private final Timer success;
+    private final Timer failure;
+
+    public OutcomeTimer(MeterRegistry meterRegistry, String name, String description, Tags tags) {
+        this.success = Timer.builder(name).description(description).tags(tags).tag("outcome", "success")
+                .register(meterRegistry);
+        this.failure = Timer.builder(name).description(description).tags(tags).tag("outcome", "failure")
+                .register(meterRegistry);
+    }
+
+    public <T> T record(Supplier<T> operation) {
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            T result = operation.get();
+            succeeded = true;
+            return result;
+        } finally {
+            (succeeded ? success : failure).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void run(Runnable operation) {
+        record(() -> {
+            operation.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,29 @@
+package com.omega.retail.config;
+
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Threads de los workers propios que bloquean en JDBC (cola de recalculo). Siguen el mismo modo que Tomcat y los
+// @Scheduled: virtual threads con spring.threads.virtual.enabled=true en Java 21+, threads daemon de plataforma si no.
+// Los pools de calculo (ForkJoinPool del recalculo masivo) quedan en plataforma: son CPU, no esperan I/O
+public final class WorkerThreads {
+
+    private WorkerThreads() {
+    }
+
+    public static ThreadFactory factory(Environment environment, String namePrefix) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            return new VirtualThreadTaskExecutor(namePrefix).getVirtualThreadFactory();
+        }
+        AtomicInteger threads = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
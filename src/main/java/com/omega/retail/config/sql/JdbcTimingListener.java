@@ -0,0 +1,37 @@
+package com.omega.retail.config.sql;
+
+import org.hibernate.SessionEventListener;
+
+// Hibernate crea una instancia por sesion (hibernate.session.events.auto); mide el tiempo de ejecucion JDBC
+public class JdbcTimingListener implements SessionEventListener {
+
+    private long executeStart;
+    private long batchStart;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        executeStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        record(executeStart);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        batchStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        record(batchStart);
+    }
+
+    private void record(long start) {
+        SqlRequestStats stats = SqlRequestStats.current();
+        if (stats != null) {
+            stats.jdbcTime(System.nanoTime() - start);
+        }
+    }
+}
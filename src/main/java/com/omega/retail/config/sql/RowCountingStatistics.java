@@ -0,0 +1,22 @@
+package com.omega.retail.config.sql;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.internal.StatisticsImpl;
+
+// Estadisticas de Hibernate que ademas atribuyen al request actual cada entidad cargada desde la base:
+// aproxima las filas leidas, incluidas las que trae un entity graph o una carga lazy
+public class RowCountingStatistics extends StatisticsImpl {
+
+    public RowCountingStatistics(SessionFactoryImplementor sessionFactory) {
+        super(sessionFactory);
+    }
+
+    @Override
+    public void loadEntity(String entityName) {
+        super.loadEntity(entityName);
+        SqlRequestStats stats = SqlRequestStats.current();
+        if (stats != null) {
+            stats.rowsFetched(1);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.omega.retail.config.sql;
+
+// Contadores SQL del request HTTP que atiende el hilo actual. Fuera de un request (listeners asincronicos,
+// jobs programados) no hay contadores activos y los ganchos de Hibernate no registran nada
+public final class SqlRequestStats {
+
+    private static final ThreadLocal<SqlRequestStats> CURRENT = new ThreadLocal<>();
+
+    private int statements;
+    private long rows;
+    private long jdbcNanos;
+
+    private SqlRequestStats() {
+    }
+
+    static SqlRequestStats start() {
+        SqlRequestStats stats = new SqlRequestStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    // Hilo del procesamiento asincronico (StreamingResponseBody): sigue contando sobre los contadores del request
+    static void bind(SqlRequestStats stats) {
+        CURRENT.set(stats);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    static SqlRequestStats current() {
+        return CURRENT.get();
+    }
+
+    void statementPrepared() {
+        statements++;
+    }
+
+    void rowsFetched(long count) {
+        rows += count;
+    }
+
+    void jdbcTime(long nanos) {
+        jdbcNanos += nanos;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getJdbcNanos() {
+        return jdbcNanos;
+    }
+}
@@ -0,0 +1,16 @@
+package com.omega.retail.config.sql;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+// Hibernate pasa por aca cada sentencia que prepara (consultas, inserts, updates, cargas lazy)
+public class SqlStatementCounter implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        SqlRequestStats stats = SqlRequestStats.current();
+        if (stats != null) {
+            stats.statementPrepared();
+        }
+        return sql;
+    }
+}
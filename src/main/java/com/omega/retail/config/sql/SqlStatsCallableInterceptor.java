@@ -0,0 +1,25 @@
+package com.omega.retail.config.sql;
+
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+
+import java.util.concurrent.Callable;
+
+// El body de un StreamingResponseBody se escribe en un hilo del executor de MVC: se le pasan los contadores del
+// request para que el SQL del export cuente en las metricas de ese request
+class SqlStatsCallableInterceptor implements CallableProcessingInterceptor {
+
+    @Override
+    public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+        Object stats = request.getAttribute(SqlStatsFilter.STATS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (stats instanceof SqlRequestStats requestStats) {
+            SqlRequestStats.bind(requestStats);
+        }
+    }
+
+    @Override
+    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+        SqlRequestStats.clear();
+    }
+}
@@ -0,0 +1,52 @@
+package com.omega.retail.config.sql;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.JdbcSettings;
+import org.hibernate.cfg.SessionEventSettings;
+import org.hibernate.cfg.StatisticsSettings;
+import org.hibernate.stat.spi.StatisticsFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+// Perfil debug: cuenta sentencias, filas y tiempo JDBC por request (headers X-SQL-* y metricas retail.sql.*)
+@Profile("debug")
+@Configuration
+public class SqlStatsConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatsHibernateProperties() {
+        StatisticsFactory statisticsFactory = RowCountingStatistics::new;
+        return properties -> {
+            properties.put(JdbcSettings.STATEMENT_INSPECTOR, new SqlStatementCounter());
+            properties.put(SessionEventSettings.AUTO_SESSION_EVENTS_LISTENER, JdbcTimingListener.class.getName());
+            properties.put(StatisticsSettings.GENERATE_STATISTICS, true);
+            properties.put(StatisticsSettings.STATS_BUILDER, statisticsFactory);
+        };
+    }
+
+    @Bean
+    public SqlStatsFilter sqlStatsFilter(MeterRegistry meterRegistry,
+                                         @Qualifier("requestMappingHandlerMapping")
+                                         ObjectProvider<RequestMappingHandlerMapping> handlerMapping,
+                                         @Value("${retail.sql.query-budget:10}") int queryBudget) {
+        return new SqlStatsFilter(meterRegistry, handlerMapping, queryBudget);
+    }
+
+    @Bean
+    public WebMvcConfigurer sqlStatsAsyncSupport() {
+        return new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.registerCallableInterceptors(new SqlStatsCallableInterceptor());
+            }
+        };
+    }
+}
@@ -0,0 +1,160 @@
+package com.omega.retail.config.sql;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Abre los contadores SQL del request y al terminar los publica como headers y metricas. La respuesta
+// se bufferea para poder agregar los headers despues de que el controller escribio el body. Las respuestas en
+// streaming (StreamingResponseBody: export de ventas, descarga del .jfr) no se bufferean, porque se retendria
+// todo el archivo en memoria; no llevan headers y sus contadores se publican solo como metricas al terminar
+@Slf4j
+public class SqlStatsFilter extends OncePerRequestFilter {
+
+    public static final String STATEMENTS_HEADER = "X-SQL-Statements";
+    public static final String ROWS_HEADER = "X-SQL-Rows";
+    public static final String JDBC_TIME_HEADER = "X-SQL-Time-Ms";
+
+    static final String STATS_ATTRIBUTE = SqlRequestStats.class.getName();
+
+    private final MeterRegistry meterRegistry;
+    private final ObjectProvider<RequestMappingHandlerMapping> handlerMapping;
+    private final int queryBudget;
+    private final Counter budgetExceeded;
+
+    public SqlStatsFilter(MeterRegistry meterRegistry, ObjectProvider<RequestMappingHandlerMapping> handlerMapping,
+                          int queryBudget) {
+        this.meterRegistry = meterRegistry;
+        this.handlerMapping = handlerMapping;
+        this.queryBudget = queryBudget;
+        this.budgetExceeded = Counter.builder("retail.sql.budget.exceeded")
+                .description("Requests que superaron retail.sql.query-budget")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        SqlRequestStats stats = SqlRequestStats.start();
+        request.setAttribute(STATS_ATTRIBUTE, stats);
+        if (isStreaming(request)) {
+            try {
+                filterChain.doFilter(request, response);
+            } finally {
+                SqlRequestStats.clear();
+                if (request.isAsyncStarted()) {
+                    request.getAsyncContext().addListener(new RecordOnComplete(request, stats));
+                } else {
+                    record(request, stats);
+                }
+            }
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        try {
+            filterChain.doFilter(request, wrapper);
+        } finally {
+            SqlRequestStats.clear();
+            wrapper.setHeader(STATEMENTS_HEADER, String.valueOf(stats.getStatements()));
+            wrapper.setHeader(ROWS_HEADER, String.valueOf(stats.getRows()));
+            wrapper.setHeader(JDBC_TIME_HEADER, String.valueOf(TimeUnit.NANOSECONDS.toMillis(stats.getJdbcNanos())));
+            record(request, stats);
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    // Se decide antes de ejecutar el controller: el handler que va a atender el request devuelve un StreamingResponseBody
+    private boolean isStreaming(HttpServletRequest request) {
+        RequestMappingHandlerMapping mapping = handlerMapping.getIfAvailable();
+        if (mapping == null) {
+            return false;
+        }
+        try {
+            HandlerExecutionChain chain = mapping.getHandler(request);
+            if (chain == null || !(chain.getHandler() instanceof HandlerMethod method)) {
+                return false;
+            }
+            ResolvableType returnType = ResolvableType.forMethodParameter(method.getReturnType());
+            if (ResponseEntity.class.isAssignableFrom(returnType.toClass())) {
+                returnType = returnType.getGeneric(0);
+            }
+            return StreamingResponseBody.class.isAssignableFrom(returnType.toClass());
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private void record(HttpServletRequest request, SqlRequestStats stats) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        String method = request.getMethod();
+
+        DistributionSummary.builder("retail.sql.statements")
+                .tag("method", method).tag("uri", uri)
+                .register(meterRegistry)
+                .record(stats.getStatements());
+        DistributionSummary.builder("retail.sql.rows")
+                .tag("method", method).tag("uri", uri)
+                .register(meterRegistry)
+                .record(stats.getRows());
+        Timer.builder("retail.sql.jdbc.time")
+                .tag("method", method).tag("uri", uri)
+                .register(meterRegistry)
+                .record(stats.getJdbcNanos(), TimeUnit.NANOSECONDS);
+
+        if (stats.getStatements() > queryBudget) {
+            budgetExceeded.increment();
+            log.warn("{} {} ejecuto {} sentencias SQL (presupuesto: {})", method, uri, stats.getStatements(), queryBudget);
+        }
+    }
+
+    private final class RecordOnComplete implements AsyncListener {
+
+        private final HttpServletRequest request;
+        private final SqlRequestStats stats;
+
+        private RecordOnComplete(HttpServletRequest request, SqlRequestStats stats) {
+            this.request = request;
+            this.stats = stats;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            record(request, stats);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.omega.retail.controller;
+
+import com.omega.retail.dto.response.FlightRecordingResponse;
+import com.omega.retail.service.FlightRecordingService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+@RestController
+@RequestMapping("/api/admin/flight-recording")
+public class FlightRecordingController {
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final FlightRecordingService flightRecordingService;
+
+    public FlightRecordingController(FlightRecordingService flightRecordingService) {
+        this.flightRecordingService = flightRecordingService;
+    }
+
+    @GetMapping
+    public ResponseEntity<FlightRecordingResponse> status() {
+        return ResponseEntity.ok(flightRecordingService.status());
+    }
+
+    // settings: nombre de una configuracion de JFR que trae la JVM (default o profile)
+    @PostMapping("/start")
+    public ResponseEntity<FlightRecordingResponse> start(
+            @RequestParam(defaultValue = "default") String settings,
+            @RequestParam(required = false) Long durationSeconds,
+            @RequestParam(required = false) Long maxSizeMb
+    ) {
+        return ResponseEntity.ok(flightRecordingService.start(settings, durationSeconds, maxSizeMb));
+    }
+
+    // Detiene la grabacion y devuelve el .jfr en streaming; el archivo se borra despues de enviarlo
+    @PostMapping("/stop")
+    public ResponseEntity<StreamingResponseBody> stop() {
+        Path file = flightRecordingService.stop();
+        StreamingResponseBody body = out -> {
+            try {
+                Files.copy(file, out);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"retail-" + LocalDateTime.now().format(FILE_TIMESTAMP) + ".jfr\"")
+                .body(body);
+    }
+}
@@ -0,0 +1,31 @@
+package com.omega.retail.controller;
+
+import com.omega.retail.dto.response.InventorySnapshotCheckResponse;
+import com.omega.retail.service.InventorySnapshot;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/inventory/snapshot")
+public class InventorySnapshotController {
+    private final InventorySnapshot inventorySnapshot;
+
+    public InventorySnapshotController(InventorySnapshot inventorySnapshot) {
+        this.inventorySnapshot = inventorySnapshot;
+    }
+
+    // Compara el snapshot en memoria contra la base, campo por campo
+    @GetMapping("/check")
+    public ResponseEntity<InventorySnapshotCheckResponse> check() {
+        return ResponseEntity.ok(inventorySnapshot.check());
+    }
+
+    @PostMapping("/reload")
+    public ResponseEntity<InventorySnapshotCheckResponse> reload() {
+        inventorySnapshot.reconcile();
+        return ResponseEntity.ok(inventorySnapshot.check());
+    }
+}
@@ -2,22 +2,38 @@ package com.omega.retail.controller;
 
 import com.omega.retail.dto.request.ProductRequest;
 import com.omega.retail.dto.response.ProductResponse;
+import com.omega.retail.dto.response.ProductStockAtDateResponse;
+import com.omega.retail.dto.response.RecalculationQueueResponse;
+import com.omega.retail.dto.response.RecalculationResponse;
+import com.omega.retail.dto.response.StockMovementResponse;
+import com.omega.retail.service.BulkRecalculationService;
 import com.omega.retail.service.ProductService;
+import com.omega.retail.service.RecalculationQueue;
+import com.omega.retail.service.StockLedgerService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/products")
 public class ProductController {
     private final ProductService productService;
+    private final BulkRecalculationService bulkRecalculationService;
+    private final RecalculationQueue recalculationQueue;
+    private final StockLedgerService stockLedgerService;
 
     @Autowired
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, BulkRecalculationService bulkRecalculationService,
+                             RecalculationQueue recalculationQueue, StockLedgerService stockLedgerService) {
         this.productService = productService;
+        this.bulkRecalculationService = bulkRecalculationService;
+        this.recalculationQueue = recalculationQueue;
+        this.stockLedgerService = stockLedgerService;
     }
 
     @PostMapping
@@ -25,6 +41,18 @@ public class ProductController {
         return ResponseEntity.ok(productService.createProduct(request));
     }
 
+    // Recalcula lote optimo, punto de pedido, inventario maximo y costo total de todo el catalogo
+    @PostMapping("/recalculate")
+    public ResponseEntity<RecalculationResponse> recalculate() {
+        return ResponseEntity.ok(bulkRecalculationService.recalculateAll());
+    }
+
+    // Productos modificados cuyos campos derivados todavia no se recalcularon
+    @GetMapping("/recalculation-queue")
+    public ResponseEntity<RecalculationQueueResponse> recalculationQueue() {
+        return ResponseEntity.ok(recalculationQueue.status());
+    }
+
     @GetMapping
     public ResponseEntity<List<ProductResponse>> getAll() {
         return ResponseEntity.ok(productService.getAll());
@@ -40,6 +68,22 @@ public class ProductController {
         return ResponseEntity.ok(productService.getById(id));
     }
 
+    // Stock al cierre de un dia: snapshot diario mas los movimientos del libro entre la fecha y el snapshot
+    @GetMapping("/{id}/stock")
+    public ResponseEntity<ProductStockAtDateResponse> getStockAt(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.ok(stockLedgerService.getStockAt(id, date));
+    }
+
+    @GetMapping("/{id}/movements")
+    public ResponseEntity<List<StockMovementResponse>> getMovements(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(stockLedgerService.getMovements(id, from, to));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<ProductResponse> update(@PathVariable Long id, @RequestBody ProductRequest request) {
         return ResponseEntity.ok(productService.update(id, request));
@@ -1,7 +1,12 @@
 package com.omega.retail.controller;
 
+import com.omega.retail.dto.request.PurchaseOrderBatchRequest;
+import com.omega.retail.dto.request.PurchaseOrderIdsRequest;
 import com.omega.retail.dto.request.PurchaseOrderRequest;
+import com.omega.retail.dto.response.PurchaseOrderBatchResponse;
 import com.omega.retail.dto.response.PurchaseOrderResponse;
+import com.omega.retail.dto.response.PurchaseOrderTransitionResponse;
+import com.omega.retail.enums.PurchaseOrderState;
 import com.omega.retail.service.PurchaseOrderService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,9 +32,16 @@ public class PurchaseOrderController {
         return ResponseEntity.status(HttpStatus.CREATED).body(purchaseOrderService.create(request));
     }
 
+    // Alta de muchas ordenes en una llamada: devuelve el resultado de cada una
+    @PostMapping("/batch")
+    public ResponseEntity<PurchaseOrderBatchResponse> createAll(@RequestBody @Valid PurchaseOrderBatchRequest request) {
+        return ResponseEntity.ok(purchaseOrderService.createAll(request));
+    }
+
+    // Sin estado devuelve todas; con ?state=PENDIENTE solo las de ese estado
     @GetMapping
-    public ResponseEntity<List<PurchaseOrderResponse>> getAll() {
-        return ResponseEntity.ok(purchaseOrderService.getAll());
+    public ResponseEntity<List<PurchaseOrderResponse>> getAll(@RequestParam(required = false) PurchaseOrderState state) {
+        return ResponseEntity.ok(state == null ? purchaseOrderService.getAll() : purchaseOrderService.getByState(state));
     }
 
     @GetMapping("/{id}")
@@ -59,4 +71,20 @@ public class PurchaseOrderController {
         purchaseOrderService.finalize(id);
         return ResponseEntity.ok().build();
     }
+
+    // Transiciones de muchas ordenes en una llamada: devuelven el resultado de cada orden
+    @PostMapping("/send")
+    public ResponseEntity<PurchaseOrderTransitionResponse> sendOrders(@RequestBody @Valid PurchaseOrderIdsRequest request) {
+        return ResponseEntity.ok(purchaseOrderService.sendAll(request.getIds()));
+    }
+
+    @PostMapping("/finalize")
+    public ResponseEntity<PurchaseOrderTransitionResponse> finalizeOrders(@RequestBody @Valid PurchaseOrderIdsRequest request) {
+        return ResponseEntity.ok(purchaseOrderService.finalizeAll(request.getIds()));
+    }
+
+    @PostMapping("/cancel")
+    public ResponseEntity<PurchaseOrderTransitionResponse> cancelOrders(@RequestBody @Valid PurchaseOrderIdsRequest request) {
+        return ResponseEntity.ok(purchaseOrderService.cancelAll(request.getIds()));
+    }
 }
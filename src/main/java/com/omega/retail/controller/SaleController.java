@@ -1,25 +1,39 @@
 package com.omega.retail.controller;
 
+import com.omega.retail.dto.request.SaleBatchRequest;
 import com.omega.retail.dto.request.SaleRequest;
+import com.omega.retail.dto.response.SaleBatchResponse;
+import com.omega.retail.dto.response.SaleCursorPageResponse;
 import com.omega.retail.dto.response.SaleResponse;
+import com.omega.retail.enums.ExportFormat;
+import com.omega.retail.service.SaleExportService;
 import com.omega.retail.service.SaleService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/sales")
 public class SaleController {
 
     private final SaleService saleService;
+    private final SaleExportService saleExportService;
 
     @Autowired
-    public SaleController(SaleService saleService) {
+    public SaleController(SaleService saleService, SaleExportService saleExportService) {
         this.saleService = saleService;
+        this.saleExportService = saleExportService;
     }
 
     @PostMapping
@@ -27,6 +41,11 @@ public class SaleController {
         return ResponseEntity.ok(saleService.createSale(request));
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<SaleBatchResponse> createSales(@RequestBody @Valid SaleBatchRequest request) {
+        return ResponseEntity.ok(saleService.createSales(request));
+    }
+
     @GetMapping
     public ResponseEntity<List<SaleResponse>> getAll() {
         return ResponseEntity.ok(saleService.getAllSales());
@@ -45,6 +64,45 @@ public class SaleController {
         return ResponseEntity.ok(saleService.getSalesPage(page, size));
     }
 
+    @GetMapping("/history")
+    public ResponseEntity<SaleCursorPageResponse> getSalesHistory(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean details
+    ) {
+        return ResponseEntity.ok(saleService.getSalesByCursor(cursor, size, details));
+    }
+
+    // El body se escribe en streaming desde un cursor, fuera del hilo del request
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            @RequestParam(defaultValue = "false") boolean gzip
+    ) {
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024);
+                saleExportService.export(from, to, format, compressed);
+                compressed.finish();
+            } else {
+                saleExportService.export(from, to, format, out);
+            }
+        };
+
+        String extension = format == ExportFormat.CSV ? "csv" : "ndjson";
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(format == ExportFormat.CSV
+                        ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                        : MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"sales." + extension + "\"");
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable Long id) {
         saleService.deleteSale(id);
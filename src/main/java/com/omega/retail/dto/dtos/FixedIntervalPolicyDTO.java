@@ -15,4 +15,5 @@ public class FixedIntervalPolicyDTO {
     private Integer reviewIntervalDays;  // intervaloRevision
     private Integer maxInventoryLevel;   // inventarioMaximo
     private LocalDate lastReviewDate;    // fechaUltimaRevision
+    private LocalDate nextReviewDate;    // fechaProximaRevision
 }
@@ -0,0 +1,22 @@
+package com.omega.retail.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PurchaseOrderBatchRequest {
+
+    @NotEmpty
+    @Builder.Default
+    private List<@Valid PurchaseOrderRequest> orders = new ArrayList<>();
+}
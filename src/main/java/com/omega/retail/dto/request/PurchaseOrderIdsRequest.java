@@ -0,0 +1,25 @@
+package com.omega.retail.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PurchaseOrderIdsRequest {
+
+    // Cada id es un parametro de la sentencia: el tope la mantiene lejos del limite del protocolo
+    @NotEmpty
+    @Size(max = 10_000)
+    @Builder.Default
+    private List<@NotNull Long> ids = new ArrayList<>();
+}
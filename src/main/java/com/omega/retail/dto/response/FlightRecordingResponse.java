@@ -0,0 +1,23 @@
+package com.omega.retail.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlightRecordingResponse {
+    // NONE si no hay grabacion; si no, el estado de jdk.jfr.Recording (RUNNING, STOPPED...)
+    private String state;
+    private String settings;
+    private Instant startedAt;
+    // La grabacion se detiene sola al cumplirse la duracion; el archivo queda hasta que se descarga con /stop
+    private Long maxDurationSeconds;
+    private Long maxSizeBytes;
+    private Long sizeBytes;
+}
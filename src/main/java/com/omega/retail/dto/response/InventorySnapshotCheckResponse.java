@@ -0,0 +1,21 @@
+package com.omega.retail.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventorySnapshotCheckResponse {
+    private LocalDateTime checkedAt;
+    private Integer snapshotProducts;
+    private Integer databaseProducts;
+    private Boolean consistent;
+    private List<InventorySnapshotMismatchResponse> mismatches;
+}
@@ -0,0 +1,18 @@
+package com.omega.retail.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventorySnapshotMismatchResponse {
+    private Long productId;
+    // "product" cuando el producto falta de un lado
+    private String field;
+    private Object snapshotValue;
+    private Object databaseValue;
+}
@@ -10,6 +10,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
@@ -27,6 +28,11 @@ public class ProductResponse {
     private LocalDate deactivationDate;
     private ProductState productState;
     private InventoryPolicy inventoryPolicy;
+    // Version de los campos derivados: sube con cada recalculo. Mientras recalculationPending sea true,
+    // lote, punto de pedido, inventario maximo y costo total todavia no reflejan la ultima modificacion
+    private Long calculationVersion;
+    private LocalDateTime recalculatedAt;
+    private Boolean recalculationPending;
 
     private FixedLotPolicyDTO fixedLotPolicy;
     private FixedIntervalPolicyDTO fixedIntervalPolicy;
@@ -0,0 +1,18 @@
+package com.omega.retail.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductStockAtDateResponse {
+    private Long productId;
+    private LocalDate date;
+    private Integer stock;      // al cierre del dia
+}
@@ -0,0 +1,18 @@
+package com.omega.retail.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PurchaseOrderBatchItemResponse {
+    private Integer index;
+    private Boolean accepted;
+    private Long purchaseOrderId;
+    private Double total;
+    private String message;
+}
@@ -0,0 +1,21 @@
+package com.omega.retail.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PurchaseOrderBatchResponse {
+    private Integer received;
+    private Integer accepted;
+    private Integer rejected;
+    @Builder.Default
+    private List<PurchaseOrderBatchItemResponse> results = new ArrayList<>();
+}
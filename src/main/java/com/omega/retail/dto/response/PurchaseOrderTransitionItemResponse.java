@@ -0,0 +1,16 @@
+package com.omega.retail.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PurchaseOrderTransitionItemResponse {
+    private Long purchaseOrderId;
+    private Boolean accepted;
+    private String message;
+}
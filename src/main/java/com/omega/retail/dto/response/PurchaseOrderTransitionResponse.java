@@ -0,0 +1,23 @@
+package com.omega.retail.dto.response;
+
+import com.omega.retail.enums.PurchaseOrderState;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PurchaseOrderTransitionResponse {
+    private PurchaseOrderState targetState;
+    private Integer received;
+    private Integer accepted;
+    private Integer rejected;
+    @Builder.Default
+    private List<PurchaseOrderTransitionItemResponse> results = new ArrayList<>();
+}
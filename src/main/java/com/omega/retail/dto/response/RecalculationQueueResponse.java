@@ -0,0 +1,20 @@
+package com.omega.retail.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecalculationQueueResponse {
+    // Productos esperando en la cola de esta instancia y recalculandose en este momento
+    private Integer queued;
+    private Integer inFlight;
+    // Productos marcados en la base (incluye los de otras instancias)
+    private Long pendingInDatabase;
+    private Integer workers;
+    private Long debounceMs;
+}
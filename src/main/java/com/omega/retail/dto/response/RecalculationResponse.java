@@ -0,0 +1,25 @@
+package com.omega.retail.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecalculationResponse {
+    private Integer products;
+    // Productos con al menos un valor distinto; updatedRows suma las filas de product y de las politicas
+    private Integer changedProducts;
+    private Integer updatedRows;
+    // Productos cuyo calculo individual fallaria (division por cero, costo no finito, politica faltante)
+    private Integer skippedProducts;
+    private Integer parallelism;
+    private Long loadMs;
+    private Long computeMs;
+    private Long writeMs;
+    private Long elapsedMs;
+    private Double productsPerSecond;
+}
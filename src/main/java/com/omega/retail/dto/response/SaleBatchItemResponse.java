@@ -0,0 +1,18 @@
+package com.omega.retail.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SaleBatchItemResponse {
+    private Integer index;
+    private Boolean accepted;
+    private Long saleId;
+    private Double total;
+    private String message;
+}
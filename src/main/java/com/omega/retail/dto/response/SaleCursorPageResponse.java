@@ -0,0 +1,18 @@
+package com.omega.retail.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SaleCursorPageResponse {
+    private List<SaleResponse> sales;
+    // Se pasa tal cual en el siguiente pedido; null cuando no hay mas ventas
+    private String nextCursor;
+}
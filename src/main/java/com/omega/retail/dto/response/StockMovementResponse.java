@@ -0,0 +1,21 @@
+package com.omega.retail.dto.response;
+
+import com.omega.retail.enums.StockMovementType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovementResponse {
+    private Long id;
+    private Long productId;
+    private StockMovementType movementType;
+    private Integer quantity;
+    private LocalDateTime occurredAt;
+}
@@ -1,23 +1,47 @@
 package com.omega.retail.entity;
 
+import com.omega.retail.listener.InventorySnapshotListener;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
 import lombok.Data;
 
 import java.time.LocalDate;
 
 @Entity
+@Table(indexes = @Index(name = "idx_fixed_interval_policy_next_review_date", columnList = "nextReviewDate"))
+@EntityListeners(InventorySnapshotListener.class)
 @Data
 public class FixedIntervalPolicy {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "fixed_interval_policy_seq")
+    @SequenceGenerator(name = "fixed_interval_policy_seq", sequenceName = "fixed_interval_policy_seq", allocationSize = 50)
     private Long id;
     private Integer safetyStock;     // stockSeguridad
     private Integer reviewIntervalDays;  // intervaloRevision
     private Integer maxInventoryLevel;   // inventarioMaximo
     private LocalDate lastReviewDate;    // fechaUltimaRevision
+    // Derivada de la ultima revision y el intervalo, persistida e indexada para que la generacion programada
+    // consulte solo las politicas vencidas. Sin revision previa vence en el dia; sin intervalo no vence nunca
+    private LocalDate nextReviewDate;    // fechaProximaRevision
 
+    @PrePersist
+    @PreUpdate
+    void updateNextReviewDate() {
+        if (reviewIntervalDays == null) {
+            nextReviewDate = null;
+        } else if (lastReviewDate != null) {
+            nextReviewDate = lastReviewDate.plusDays(reviewIntervalDays);
+        } else if (nextReviewDate == null) {
+            nextReviewDate = LocalDate.now();
+        }
+    }
 }
@@ -1,16 +1,21 @@
 package com.omega.retail.entity;
 
+import com.omega.retail.listener.InventorySnapshotListener;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import lombok.Data;
 
 @Entity
+@EntityListeners(InventorySnapshotListener.class)
 @Data
 public class FixedLotPolicy {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "fixed_lot_policy_seq")
+    @SequenceGenerator(name = "fixed_lot_policy_seq", sequenceName = "fixed_lot_policy_seq", allocationSize = 50)
     private Long id;
     private Integer optimalLotSize;      // loteOptimo
     private Integer reorderPoint;        // puntoPedido
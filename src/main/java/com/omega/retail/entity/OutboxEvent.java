@@ -0,0 +1,34 @@
+package com.omega.retail.entity;
+
+import com.omega.retail.enums.OutboxEventType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(indexes = @Index(name = "idx_outbox_event_available_at", columnList = "availableAt, id"))
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OutboxEvent {
+
+    public static final int LAST_ERROR_LENGTH = 2000;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Enumerated(EnumType.STRING)
+    private OutboxEventType eventType;
+    @Column(columnDefinition = "text")
+    private String payload;
+    private LocalDateTime createdAt;
+    private LocalDateTime availableAt;   // null = agoto los reintentos
+    private Integer attempts;
+    @Column(length = LAST_ERROR_LENGTH)
+    private String lastError;            // recortado: los mensajes de JDBC pueden superar el largo de la columna
+}
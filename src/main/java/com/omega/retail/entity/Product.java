@@ -2,28 +2,48 @@ package com.omega.retail.entity;
 
 import com.omega.retail.enums.InventoryPolicy;
 import com.omega.retail.enums.ProductState;
+import com.omega.retail.listener.InventorySnapshotListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
 
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Table(indexes = @Index(name = "idx_product_recalculation_requested_at", columnList = "recalculationRequestedAt"))
+@EntityListeners(InventorySnapshotListener.class)
+@NamedEntityGraph(name = Product.WITH_PROVIDERS_AND_POLICIES,
+        attributeNodes = {
+                @NamedAttributeNode(value = "productProviders", subgraph = "providers"),
+                @NamedAttributeNode("fixedLotPolicy"),
+                @NamedAttributeNode("fixedIntervalPolicy")
+        },
+        subgraphs = @NamedSubgraph(name = "providers", attributeNodes = @NamedAttributeNode("provider")))
+@DynamicUpdate
 @Data
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
 public class Product {
+    // Todo lo que usa ProductService.toResponse y el calculo de reposicion
+    public static final String WITH_PROVIDERS_AND_POLICIES = "Product.withProvidersAndPolicies";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+    @SequenceGenerator(name = "product_seq", sequenceName = "product_seq", allocationSize = 50)
     private Long id;
     private String code;
     private String description;
+    // Solo se escribe al crear el producto; despues cambia unicamente con UPDATE relativos (ProductStockRepository),
+    // asi guardar la entidad nunca pisa un descuento concurrente con un valor leido antes
+    @Column(updatable = false)
     private Integer currentStock;
     private Integer annualDemand;
     private Double storageCost;
@@ -33,13 +53,18 @@ public class Product {
     private ProductState productState;
     @Enumerated(EnumType.STRING)
     private InventoryPolicy inventoryPolicy;
+    // Campos derivados (lote optimo, punto de pedido, inventario maximo, costo total): los recalcula
+    // RecalculationQueue en segundo plano. requestedAt != null = hay un recalculo pendiente
+    private LocalDateTime recalculationRequestedAt;
+    private LocalDateTime recalculatedAt;
+    private Long calculationVersion;
 
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL)
     private List<ProductProvider> productProviders = new ArrayList<>();
-    @OneToOne(optional = true, cascade = CascadeType.ALL)
+    @OneToOne(optional = true, cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JoinColumn(name = "fixedLotPolicy_id")
     private FixedLotPolicy fixedLotPolicy;
-    @OneToOne(optional = true, cascade = CascadeType.ALL)
+    @OneToOne(optional = true, cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JoinColumn(name = "fixedIntervalPolicy_id")
     private FixedIntervalPolicy fixedIntervalPolicy;
 
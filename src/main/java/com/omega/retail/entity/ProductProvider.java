@@ -10,6 +10,7 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDate;
 
 @Entity
+@Table(indexes = @Index(name = "idx_product_provider_product_id", columnList = "product_id"))
 @Data
 @Builder
 @NoArgsConstructor
@@ -17,7 +18,8 @@ import java.time.LocalDate;
 public class ProductProvider {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_provider_seq")
+    @SequenceGenerator(name = "product_provider_seq", sequenceName = "product_provider_seq", allocationSize = 50)
     private Long id;
     private Double unitCost;
     private Integer leadTime;
@@ -26,10 +28,10 @@ public class ProductProvider {
     @Enumerated(EnumType.STRING)
     private ProductProviderState productProviderState;
     private LocalDate deactivationDate;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Product product;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Provider provider;
 
 }
@@ -19,7 +19,8 @@ import java.util.List;
 public class Provider {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "provider_seq")
+    @SequenceGenerator(name = "provider_seq", sequenceName = "provider_seq", allocationSize = 50)
     private Long id;
     private String name;
     private String email;
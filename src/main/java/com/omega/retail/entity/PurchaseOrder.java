@@ -1,6 +1,7 @@
 package com.omega.retail.entity;
 
 import com.omega.retail.enums.PurchaseOrderState;
+import com.omega.retail.listener.InventorySnapshotListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -11,15 +12,26 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
+// El indice por proveedor y estado resuelve en la base si un proveedor tiene ordenes activas
 @Entity
+@Table(indexes = @Index(name = "idx_purchase_order_provider_state", columnList = "provider_id, purchase_order_state"))
+@EntityListeners(InventorySnapshotListener.class)
+@NamedEntityGraph(name = PurchaseOrder.WITH_PROVIDER_AND_DETAILS,
+        attributeNodes = {
+                @NamedAttributeNode("provider"),
+                @NamedAttributeNode(value = "details", subgraph = "details")
+        },
+        subgraphs = @NamedSubgraph(name = "details", attributeNodes = @NamedAttributeNode("product")))
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class PurchaseOrder {
+    public static final String WITH_PROVIDER_AND_DETAILS = "PurchaseOrder.withProviderAndDetails";
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "purchase_order_seq")
+    @SequenceGenerator(name = "purchase_order_seq", sequenceName = "purchase_order_seq", allocationSize = 50)
     private Long id;
     private LocalDate createdAt;
     private LocalDate sentAt;
@@ -28,7 +40,7 @@ public class PurchaseOrder {
     private PurchaseOrderState purchaseOrderState;
     @OneToMany(mappedBy = "purchaseOrder", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<PurchaseOrderDetail> details = new ArrayList<>();
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "provider_id")
     private Provider provider;
 }
\ No newline at end of file
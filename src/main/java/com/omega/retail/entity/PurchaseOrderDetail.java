@@ -1,12 +1,16 @@
 package com.omega.retail.entity;
 
+import com.omega.retail.listener.InventorySnapshotListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+// El indice por producto resuelve en la base, sin recorrer todos los detalles, si un producto tiene ordenes activas
 @Entity
+@Table(indexes = @Index(name = "idx_purchase_order_detail_product_order", columnList = "product_id, purchase_order_id"))
+@EntityListeners(InventorySnapshotListener.class)
 @Data
 @Builder
 @NoArgsConstructor
@@ -14,17 +18,18 @@ import lombok.NoArgsConstructor;
 public class PurchaseOrderDetail {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "purchase_order_detail_seq")
+    @SequenceGenerator(name = "purchase_order_detail_seq", sequenceName = "purchase_order_detail_seq", allocationSize = 50)
     private Long id;
     private Integer quantity;
     private Double price;
     private Double subtotal;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id")
     private Product product;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "purchase_order_id")
     private PurchaseOrder purchaseOrder;
 }
\ No newline at end of file
@@ -11,13 +11,20 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@NamedEntityGraph(name = Sale.WITH_DETAILS,
+        attributeNodes = @NamedAttributeNode(value = "details", subgraph = "details"),
+        subgraphs = @NamedSubgraph(name = "details", attributeNodes = @NamedAttributeNode("product")))
+@Table(indexes = @Index(name = "idx_sale_date_id", columnList = "date, id"))
 @Data
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
 public class Sale {
+    public static final String WITH_DETAILS = "Sale.withDetails";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sale_seq")
+    @SequenceGenerator(name = "sale_seq", sequenceName = "sale_seq", allocationSize = 50)
     private Long id;
     private LocalDateTime date;
     private Double total;
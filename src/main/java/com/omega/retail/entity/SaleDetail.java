@@ -7,6 +7,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
+@Table(indexes = @Index(name = "idx_sale_detail_sale_id", columnList = "sale_id"))
 @Builder
 @Data
 @AllArgsConstructor
@@ -14,16 +15,17 @@ import lombok.NoArgsConstructor;
 public class SaleDetail {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sale_detail_seq")
+    @SequenceGenerator(name = "sale_detail_seq", sequenceName = "sale_detail_seq", allocationSize = 50)
     private Long id;
 
     private Integer quantity;
     private Double unitPrice;
     private Double subtotal;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Product product;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Sale sale;
 }
\ No newline at end of file
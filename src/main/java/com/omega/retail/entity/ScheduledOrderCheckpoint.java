@@ -0,0 +1,42 @@
+package com.omega.retail.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Avance y lease de una particion de la generacion programada de ordenes (intervalo fijo) en un dia. Se actualiza
+// en la misma transaccion que cada chunk, asi un reinicio retoma despues del ultimo producto confirmado. Con varias
+// instancias, cada una toma particiones con un lease que vence; el fencing token sube en cada toma y cada chunk lo
+// verifica, asi un nodo que perdio el lease no puede confirmar mas trabajo sobre la particion
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_scheduled_order_checkpoint_run_partition",
+        columnNames = {"runDate", "partitionIndex"}))
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ScheduledOrderCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private LocalDate runDate;
+    private Integer partitionIndex;
+    private Integer partitions;          // cantidad de particiones con que arranco la corrida
+    private Long lastProductId;          // keyset: ultimo producto confirmado (0 = ninguno)
+    private Integer productsScanned;
+    private Integer linesAdded;
+    private Integer chunks;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;    // null = particion sin terminar
+    private LocalDateTime failedAt;      // agoto lease.max-attempts sin terminar: no se vuelve a tomar en el dia
+    private String leaseOwner;           // nodo que tomo la particion por ultima vez
+    private LocalDateTime leaseExpiresAt;    // reloj de la base; null o vencido = se puede tomar
+    private Long fencingToken;
+    private Integer attempts;            // tomas de la particion (reintentos y relevos de nodos caidos)
+}
@@ -0,0 +1,31 @@
+package com.omega.retail.entity;
+
+import com.omega.retail.enums.StockMovementType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Libro de movimientos de stock, solo de alta: cada descuento, reposicion o ajuste agrega una fila en la misma
+// transaccion que cambia current_stock. Se escribe con inserts en batch JDBC (StockMovementRepository); la entidad
+// solo define la tabla. product_id no tiene FK: el historial sobrevive a la baja o el borrado del producto
+@Entity
+@Table(indexes = @Index(name = "idx_stock_movement_product_occurred_at", columnList = "productId, occurredAt"))
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockMovement {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private Long productId;
+    @Enumerated(EnumType.STRING)
+    private StockMovementType movementType;
+    private Integer quantity;            // con signo: negativo para ventas
+    private LocalDateTime occurredAt;    // reloj de la aplicacion, el mismo que define los dias del libro
+}
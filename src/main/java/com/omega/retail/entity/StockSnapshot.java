@@ -0,0 +1,28 @@
+package com.omega.retail.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// Stock de un producto al cierre de un dia, compactado del libro de movimientos. Sirve de ancla para el stock a una
+// fecha: solo hace falta sumar los movimientos entre la fecha pedida y el snapshot siguiente
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_stock_snapshot_product_date",
+        columnNames = {"productId", "snapshotDate"}))
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private Long productId;
+    private LocalDate snapshotDate;
+    private Integer stock;
+}
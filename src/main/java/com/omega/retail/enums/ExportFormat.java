@@ -0,0 +1,6 @@
+package com.omega.retail.enums;
+
+public enum ExportFormat {
+    NDJSON,
+    CSV
+}
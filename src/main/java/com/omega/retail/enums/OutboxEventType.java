@@ -0,0 +1,6 @@
+package com.omega.retail.enums;
+
+public enum OutboxEventType {
+    SALE,
+    PURCHASE_ORDER
+}
@@ -0,0 +1,7 @@
+package com.omega.retail.enums;
+
+public enum StockMovementType {
+    VENTA,
+    RECEPCION,
+    AJUSTE
+}
@@ -1,17 +1,18 @@
 package com.omega.retail.event;
 
-import com.omega.retail.entity.PurchaseOrderDetail;
 import lombok.Getter;
 import org.springframework.context.ApplicationEvent;
 
-import java.util.List;
+import java.util.Map;
 
 @Getter
 public class PurchaseOrderEvent  extends ApplicationEvent {
-    private final List<PurchaseOrderDetail> details;
+    private final Long purchaseOrderId;
+    private final Map<Long, Integer> quantitiesByProduct;
 
-    public PurchaseOrderEvent(Object source, List<PurchaseOrderDetail> details) {
+    public PurchaseOrderEvent(Object source, Long purchaseOrderId, Map<Long, Integer> quantitiesByProduct) {
         super(source);
-        this.details = details;
+        this.purchaseOrderId = purchaseOrderId;
+        this.quantitiesByProduct = quantitiesByProduct;
     }
 }
@@ -1,18 +1,18 @@
 package com.omega.retail.event;
 
-import com.omega.retail.entity.SaleDetail;
 import lombok.Getter;
 import org.springframework.context.ApplicationEvent;
 
-import java.util.List;
+import java.util.Set;
 
+// Lleva solo ids: se procesa despues del commit en otro hilo, sin sesion de Hibernate
 @Getter
 public class SaleEvent extends ApplicationEvent {
 
-    private final List<SaleDetail> saleDetails;
+    private final Set<Long> productIds;
 
-    public SaleEvent(Object source, List<SaleDetail> saleDetails) {
+    public SaleEvent(Object source, Set<Long> productIds) {
         super(source);
-        this.saleDetails = saleDetails;
+        this.productIds = productIds;
     }
 }
@@ -0,0 +1,45 @@
+package com.omega.retail.event.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import lombok.Setter;
+
+// Evento JFR de BulkRecalculationService.recalculate: un recalculo masivo o un batch de la cola de productos sucios
+@Name("com.omega.retail.CalculationBatch")
+@Label("Batch de recalculo")
+@Description("Lectura, calculo y escritura de los campos derivados de un conjunto de productos")
+@Category({"Retail", "Calculos"})
+@StackTrace(false)
+@Setter
+public class CalculationBatchEvent extends Event {
+
+    @Label("Alcance")
+    @Description("catalog (todo el catalogo) o subset (batch de la cola)")
+    private String scope;
+
+    @Label("Productos")
+    private int products;
+
+    @Label("Productos modificados")
+    private int changedProducts;
+
+    @Label("Filas actualizadas")
+    private int updatedRows;
+
+    @Label("Lectura")
+    @Timespan(Timespan.NANOSECONDS)
+    private long loadTime;
+
+    @Label("Calculo")
+    @Timespan(Timespan.NANOSECONDS)
+    private long computeTime;
+
+    @Label("Escritura")
+    @Timespan(Timespan.NANOSECONDS)
+    private long writeTime;
+}
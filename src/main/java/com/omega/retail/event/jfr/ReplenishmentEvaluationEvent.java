@@ -0,0 +1,36 @@
+package com.omega.retail.event.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.Setter;
+
+// Evento JFR de PurchaseOrderService.generatePurchaseOrder (evaluacion del punto de pedido de una ventana de ventas)
+@Name("com.omega.retail.ReplenishmentEvaluation")
+@Label("Evaluacion de reposicion")
+@Description("Evaluacion del punto de pedido de los productos vendidos en una ventana")
+@Category({"Retail", "Ordenes de compra"})
+@StackTrace(false)
+@Setter
+public class ReplenishmentEvaluationEvent extends Event {
+
+    @Label("Productos recibidos")
+    @Description("Productos tocados por las ventas de la ventana")
+    private int productsRequested;
+
+    @Label("Productos evaluados")
+    @Description("Productos que el snapshot no descarto y se cargaron de la base")
+    private int productsScanned;
+
+    @Label("Productos a reponer")
+    private int reorders;
+
+    @Label("Ordenes tocadas")
+    private int ordersTouched;
+
+    @Label("Lineas agregadas")
+    private int linesAdded;
+}
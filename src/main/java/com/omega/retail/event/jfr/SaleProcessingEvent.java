@@ -0,0 +1,25 @@
+package com.omega.retail.event.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.Setter;
+
+// Evento JFR de SaleService.createSale: la duracion del evento es la del alta, sin el commit
+@Name("com.omega.retail.SaleProcessing")
+@Label("Procesamiento de venta")
+@Description("Validacion, descuento de stock e insert de una venta")
+@Category({"Retail", "Ventas"})
+@StackTrace(false)
+@Setter
+public class SaleProcessingEvent extends Event {
+
+    @Label("Lineas")
+    private int lines;
+
+    @Label("Exitosa")
+    private boolean success;
+}
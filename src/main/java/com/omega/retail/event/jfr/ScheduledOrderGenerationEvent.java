@@ -0,0 +1,28 @@
+package com.omega.retail.event.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.Setter;
+
+// Evento JFR de PurchaseOrderService.generateScheduledPurchaseOrders (revision de productos de intervalo fijo)
+@Name("com.omega.retail.ScheduledOrderGeneration")
+@Label("Generacion programada de ordenes")
+@Description("Revision de los productos de intervalo fijo y armado de sus ordenes de compra")
+@Category({"Retail", "Ordenes de compra"})
+@StackTrace(false)
+@Setter
+public class ScheduledOrderGenerationEvent extends Event {
+
+    @Label("Productos evaluados")
+    private int productsScanned;
+
+    @Label("Ordenes tocadas")
+    private int ordersTouched;
+
+    @Label("Lineas agregadas")
+    private int linesAdded;
+}
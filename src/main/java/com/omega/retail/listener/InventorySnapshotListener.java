@@ -0,0 +1,47 @@
+package com.omega.retail.listener;
+
+import com.omega.retail.entity.FixedIntervalPolicy;
+import com.omega.retail.entity.FixedLotPolicy;
+import com.omega.retail.entity.Product;
+import com.omega.retail.entity.PurchaseOrder;
+import com.omega.retail.entity.PurchaseOrderDetail;
+import com.omega.retail.service.InventorySnapshot;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+
+// Entity listener de JPA (Hibernate lo instancia a traves de Spring): avisa a InventorySnapshot de cada
+// escritura de productos, politicas y ordenes, sin importar que servicio la hizo. El snapshot se resuelve
+// recien al usarlo porque el EntityManagerFactory (que instancia este listener) se arma antes que el bean
+// InventorySnapshot, que depende de los repositorios; mientras no exista, los avisos se descartan
+public class InventorySnapshotListener {
+
+    private final ObjectProvider<InventorySnapshot> inventorySnapshot;
+
+    public InventorySnapshotListener(ObjectProvider<InventorySnapshot> inventorySnapshot) {
+        this.inventorySnapshot = inventorySnapshot;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void changed(Object entity) {
+        InventorySnapshot snapshot = inventorySnapshot.getIfAvailable();
+        if (snapshot == null) {
+            return;
+        }
+        if (entity instanceof Product product) {
+            snapshot.productChanged(product.getId());
+        } else if (entity instanceof FixedLotPolicy policy) {
+            snapshot.lotPolicyChanged(policy.getId());
+        } else if (entity instanceof FixedIntervalPolicy policy) {
+            snapshot.intervalPolicyChanged(policy.getId());
+        } else if (entity instanceof PurchaseOrder order) {
+            snapshot.purchaseOrderChanged(order.getId());
+        } else if (entity instanceof PurchaseOrderDetail detail && detail.getProduct() != null) {
+            // Un detalle quitado de una orden ya no aparece al releer por orden: se marca su producto
+            snapshot.productChanged(detail.getProduct().getId());
+        }
+    }
+}
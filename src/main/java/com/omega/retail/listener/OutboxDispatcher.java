@@ -0,0 +1,234 @@
+package com.omega.retail.listener;
+
+import com.omega.retail.config.AsyncConfig;
+import com.omega.retail.entity.OutboxEvent;
+import com.omega.retail.event.PurchaseOrderEvent;
+import com.omega.retail.event.SaleEvent;
+import com.omega.retail.repository.OutboxEventRepository;
+import com.omega.retail.service.OutboxService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Drena outbox_event en batches y entrega cada evento a ProductListener. El handler corre en la misma
+// transaccion que borra la fila: si falla, la fila vuelve a quedar disponible (at-least-once)
+@Slf4j
+@Component
+public class OutboxDispatcher {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxService outboxService;
+    private final ProductListener productListener;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor eventExecutor;
+    private final MeterRegistry meterRegistry;
+    private final int batchSize;
+    private final int maxAttempts;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicBoolean requested = new AtomicBoolean(false);
+    private final Counter dispatched;
+    private final Counter failed;
+    private final Counter rejected;
+    private final DistributionSummary coalescedSales;
+    private final DistributionSummary coalescedProducts;
+
+    public OutboxDispatcher(OutboxEventRepository outboxEventRepository,
+                            OutboxService outboxService,
+                            ProductListener productListener,
+                            TransactionTemplate transactionTemplate,
+                            @Qualifier(AsyncConfig.EVENT_EXECUTOR) TaskExecutor eventExecutor,
+                            MeterRegistry meterRegistry,
+                            @Value("${retail.outbox.batch-size:200}") int batchSize,
+                            @Value("${retail.outbox.max-attempts:5}") int maxAttempts) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxService = outboxService;
+        this.productListener = productListener;
+        this.transactionTemplate = transactionTemplate;
+        this.eventExecutor = eventExecutor;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+
+        this.dispatched = Counter.builder("retail.outbox.dispatched").register(meterRegistry);
+        this.failed = Counter.builder("retail.outbox.failed").register(meterRegistry);
+        this.rejected = Counter.builder("retail.outbox.rejected")
+                .description("Drenados rechazados por el executor de eventos saturado")
+                .register(meterRegistry);
+        this.coalescedSales = DistributionSummary.builder("retail.replenishment.window.sales")
+                .description("Eventos de venta fusionados en una evaluacion de reposicion")
+                .register(meterRegistry);
+        this.coalescedProducts = DistributionSummary.builder("retail.replenishment.window.products")
+                .description("Productos distintos evaluados por ventana")
+                .register(meterRegistry);
+        Gauge.builder("retail.outbox.pending", outboxEventRepository, OutboxEventRepository::countPending)
+                .description("Eventos en outbox_event pendientes de procesar")
+                .register(meterRegistry);
+    }
+
+    // Red de seguridad: eventos de otras instancias, reintentos y lo que quedo tras un reinicio
+    @Scheduled(fixedDelayString = "${retail.outbox.poll-interval-ms:1000}")
+    public void poll() {
+        wakeUp();
+    }
+
+    // Pide un drenado; si ya hay uno corriendo, ese mismo vuelve a pasar antes de terminar
+    public void wakeUp() {
+        requested.set(true);
+        if (running.compareAndSet(false, true)) {
+            submitDrain();
+        }
+    }
+
+    private void drainLoop() {
+        try {
+            while (requested.getAndSet(false)) {
+                while (drainBatch() == batchSize) {
+                    // seguimos mientras haya batches completos
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Error drenando outbox_event", e);
+        } finally {
+            running.set(false);
+        }
+        if (requested.get() && running.compareAndSet(false, true)) {
+            submitDrain();
+        }
+    }
+
+    // Con el executor saturado no se bloquea al que llama (request o scheduler): las filas siguen en
+    // outbox_event y el proximo poll vuelve a intentar
+    private void submitDrain() {
+        try {
+            eventExecutor.execute(this::drainLoop);
+        } catch (TaskRejectedException e) {
+            running.set(false);
+            rejected.increment();
+            log.warn("Executor de eventos saturado, el drenado de outbox_event queda para el proximo poll");
+        }
+    }
+
+    private int drainBatch() {
+        List<Long> claimed;
+        try {
+            claimed = transactionTemplate.execute(status -> {
+                List<OutboxEvent> events = outboxEventRepository.claimBatch(LocalDateTime.now(), batchSize);
+                dispatchAll(events);
+                outboxEventRepository.deleteAllInBatch(events);
+                return events.stream().map(OutboxEvent::getId).toList();
+            });
+        } catch (RuntimeException e) {
+            // Algun evento del batch fallo: se reprocesan de a uno para aislarlo
+            log.warn("Fallo un batch de outbox_event, reintentando evento por evento", e);
+            return drainOneByOne();
+        }
+        dispatched.increment(claimed.size());
+        return claimed.size();
+    }
+
+    private int drainOneByOne() {
+        List<Long> ids = transactionTemplate.execute(status ->
+                outboxEventRepository.claimBatch(LocalDateTime.now(), batchSize).stream()
+                        .map(OutboxEvent::getId)
+                        .toList());
+
+        for (Long id : ids) {
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        outboxEventRepository.claimById(id).ifPresent(event -> {
+                            dispatch(event);
+                            outboxEventRepository.delete(event);
+                        }));
+                dispatched.increment();
+            } catch (RuntimeException e) {
+                failed.increment();
+                transactionTemplate.executeWithoutResult(status ->
+                        outboxEventRepository.claimById(id).ifPresent(event -> reschedule(event, e)));
+            }
+        }
+        return ids.size();
+    }
+
+    // Todas las ventas del batch se fusionan en un unico SaleEvent: cada producto (y la orden de su
+    // proveedor) se evalua una vez por ventana, sin importar cuantas lineas de venta lo tocaron
+    private void dispatchAll(List<OutboxEvent> outboxEvents) {
+        Set<Long> soldProductIds = new HashSet<>();
+        int sales = 0;
+
+        for (OutboxEvent outboxEvent : outboxEvents) {
+            recordLag(outboxEvent);
+            ApplicationEvent event = outboxService.toEvent(outboxEvent);
+            if (event instanceof SaleEvent saleEvent) {
+                soldProductIds.addAll(saleEvent.getProductIds());
+                sales++;
+            } else if (event instanceof PurchaseOrderEvent purchaseOrderEvent) {
+                processing("purchase_order").record(() -> productListener.handleOrder(purchaseOrderEvent));
+            }
+        }
+
+        if (sales > 0) {
+            coalescedSales.record(sales);
+            coalescedProducts.record(soldProductIds.size());
+            processing("sale").record(() -> productListener.handleSale(new SaleEvent(this, soldProductIds)));
+        }
+    }
+
+    private void dispatch(OutboxEvent outboxEvent) {
+        recordLag(outboxEvent);
+        ApplicationEvent event = outboxService.toEvent(outboxEvent);
+        if (event instanceof SaleEvent saleEvent) {
+            processing("sale").record(() -> productListener.handleSale(saleEvent));
+        } else if (event instanceof PurchaseOrderEvent purchaseOrderEvent) {
+            processing("purchase_order").record(() -> productListener.handleOrder(purchaseOrderEvent));
+        }
+    }
+
+    private void recordLag(OutboxEvent outboxEvent) {
+        Timer.builder("retail.events.lag")
+                .tag("event", outboxEvent.getEventType().name().toLowerCase())
+                .register(meterRegistry)
+                .record(Duration.between(outboxEvent.getCreatedAt(), LocalDateTime.now()));
+    }
+
+    private Timer processing(String event) {
+        return Timer.builder("retail.events.processing")
+                .tag("event", event)
+                .register(meterRegistry);
+    }
+
+    // Backoff exponencial; al agotar los intentos la fila queda con available_at = null para revisarla a mano
+    private void reschedule(OutboxEvent event, RuntimeException error) {
+        int attempts = event.getAttempts() + 1;
+        event.setAttempts(attempts);
+        // Sin recortar, un mensaje largo haria fallar este UPDATE y la fila se reintentaria sin sumar intentos
+        String message = String.valueOf(error.getMessage());
+        event.setLastError(message.length() > OutboxEvent.LAST_ERROR_LENGTH
+                ? message.substring(0, OutboxEvent.LAST_ERROR_LENGTH) : message);
+        if (attempts >= maxAttempts) {
+            log.error("outbox_event {} descartado tras {} intentos", event.getId(), attempts, error);
+            event.setAvailableAt(null);
+        } else {
+            event.setAvailableAt(LocalDateTime.now().plusSeconds(1L << attempts));
+        }
+        outboxEventRepository.save(event);
+    }
+}
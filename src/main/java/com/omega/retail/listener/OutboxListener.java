@@ -0,0 +1,34 @@
+package com.omega.retail.listener;
+
+import com.omega.retail.event.PurchaseOrderEvent;
+import com.omega.retail.event.SaleEvent;
+import com.omega.retail.service.OutboxService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+// Persiste los eventos en outbox_event antes del commit (misma transaccion que los genera).
+// Las recepciones despiertan al dispatcher al confirmarse; las ventas esperan la ventana de reposicion
+@Component
+@RequiredArgsConstructor
+public class OutboxListener {
+
+    private final OutboxService outboxService;
+    private final OutboxDispatcher outboxDispatcher;
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void storeSale(SaleEvent saleEvent) {
+        outboxService.append(saleEvent);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void storeOrder(PurchaseOrderEvent purchaseOrderEvent) {
+        outboxService.append(purchaseOrderEvent);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void dispatchOrder(PurchaseOrderEvent purchaseOrderEvent) {
+        outboxDispatcher.wakeUp();
+    }
+}
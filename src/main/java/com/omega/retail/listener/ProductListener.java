@@ -7,9 +7,10 @@ import com.omega.retail.event.SaleEvent;
 import com.omega.retail.service.ProductService;
 import com.omega.retail.service.PurchaseOrderService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+// Los eventos no se escuchan en memoria: OutboxDispatcher los lee de outbox_event y los entrega aca,
+// dentro de la transaccion que borra la fila
 @Component
 @RequiredArgsConstructor
 public class ProductListener {
@@ -17,13 +18,11 @@ public class ProductListener {
     private final ProductService productService;
     private final PurchaseOrderService purchaseOrderService;
 
-    @EventListener
     public void handleSale(SaleEvent saleEvent) {
-        productService.reduceStock(saleEvent.getSaleDetails());
-        purchaseOrderService.generatePurchaseOrder(saleEvent.getSaleDetails());
+        purchaseOrderService.generatePurchaseOrder(saleEvent.getProductIds());
     }
-    @EventListener
+
     public void handleOrder(PurchaseOrderEvent purchaseOrderEvent) {
-        productService.increaseStock(purchaseOrderEvent.getDetails());
+        productService.increaseStock(purchaseOrderEvent.getQuantitiesByProduct());
     }
 }
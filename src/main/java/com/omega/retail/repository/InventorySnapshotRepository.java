@@ -0,0 +1,93 @@
+package com.omega.retail.repository;
+
+import com.omega.retail.enums.InventoryPolicy;
+import com.omega.retail.enums.ProductState;
+import com.omega.retail.enums.PurchaseOrderState;
+import com.omega.retail.repository.projection.InventoryRow;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Lecturas planas para InventorySnapshot: una fila por producto con sus politicas y el flag de orden activa.
+// Las ordenes activas se juntan una vez y se cruzan por hash, sin una subconsulta por producto
+@Repository
+public class InventorySnapshotRepository {
+
+    private static final String SELECT_ROWS = """
+        SELECT p.id, p.current_stock, p.product_state, p.inventory_policy,
+               CASE p.inventory_policy
+                   WHEN 'LOTE_FIJO' THEN flp.safety_stock
+                   WHEN 'INTERVALO_FIJO' THEN fip.safety_stock
+               END AS safety_stock,
+               flp.reorder_point,
+               fip.max_inventory_level,
+               ao.product_id IS NOT NULL AS active_order
+        FROM product p
+        LEFT JOIN fixed_lot_policy flp ON flp.id = p.fixed_lot_policy_id
+        LEFT JOIN fixed_interval_policy fip ON fip.id = p.fixed_interval_policy_id
+        LEFT JOIN (
+            SELECT DISTINCT pod.product_id
+            FROM purchase_order_detail pod
+            JOIN purchase_order po ON po.id = pod.purchase_order_id
+            WHERE po.purchase_order_state IN (:activeStates)
+        ) ao ON ao.product_id = p.id
+    """;
+
+    // El estado de la orden se persiste como ordinal
+    private static final List<Integer> ACTIVE_STATES =
+            List.of(PurchaseOrderState.PENDIENTE.ordinal(), PurchaseOrderState.ENVIADA.ordinal());
+
+    private static final RowMapper<InventoryRow> ROW_MAPPER = (rs, rowNum) -> new InventoryRow(
+            rs.getLong("id"),
+            rs.getObject("current_stock", Integer.class),
+            rs.getString("product_state") != null ? ProductState.valueOf(rs.getString("product_state")) : null,
+            rs.getString("inventory_policy") != null ? InventoryPolicy.valueOf(rs.getString("inventory_policy")) : null,
+            rs.getObject("safety_stock", Integer.class),
+            rs.getObject("reorder_point", Integer.class),
+            rs.getObject("max_inventory_level", Integer.class),
+            rs.getBoolean("active_order"));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public InventorySnapshotRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<InventoryRow> findAll() {
+        return jdbcTemplate.query(SELECT_ROWS + " ORDER BY p.id",
+                new MapSqlParameterSource("activeStates", ACTIVE_STATES), ROW_MAPPER);
+    }
+
+    // Productos afectados por un cambio: por id, por politica o por pertenecer a una orden de compra
+    public List<InventoryRow> findAffected(Collection<Long> productIds, Collection<Long> lotPolicyIds,
+                                           Collection<Long> intervalPolicyIds, Collection<Long> orderIds) {
+        MapSqlParameterSource params = new MapSqlParameterSource("activeStates", ACTIVE_STATES);
+        List<String> conditions = new ArrayList<>();
+        if (!productIds.isEmpty()) {
+            conditions.add("p.id IN (:productIds)");
+            params.addValue("productIds", productIds);
+        }
+        if (!lotPolicyIds.isEmpty()) {
+            conditions.add("p.fixed_lot_policy_id IN (:lotPolicyIds)");
+            params.addValue("lotPolicyIds", lotPolicyIds);
+        }
+        if (!intervalPolicyIds.isEmpty()) {
+            conditions.add("p.fixed_interval_policy_id IN (:intervalPolicyIds)");
+            params.addValue("intervalPolicyIds", intervalPolicyIds);
+        }
+        if (!orderIds.isEmpty()) {
+            conditions.add("p.id IN (SELECT product_id FROM purchase_order_detail WHERE purchase_order_id IN (:orderIds))");
+            params.addValue("orderIds", orderIds);
+        }
+        if (conditions.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(SELECT_ROWS + " WHERE " + String.join(" OR ", conditions) + " ORDER BY p.id",
+                params, ROW_MAPPER);
+    }
+}
@@ -0,0 +1,32 @@
+package com.omega.retail.repository;
+
+import com.omega.retail.entity.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // SKIP LOCKED: varias instancias pueden drenar la tabla en paralelo sin pisarse
+    @Query(nativeQuery = true, value = """
+        SELECT *
+        FROM outbox_event
+        WHERE available_at <= :now
+        ORDER BY id
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+    """)
+    List<OutboxEvent> claimBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Query(nativeQuery = true, value = "SELECT * FROM outbox_event WHERE id = :id FOR UPDATE SKIP LOCKED")
+    Optional<OutboxEvent> claimById(@Param("id") Long id);
+
+    @Query(nativeQuery = true, value = "SELECT count(*) FROM outbox_event WHERE available_at IS NOT NULL")
+    long countPending();
+}
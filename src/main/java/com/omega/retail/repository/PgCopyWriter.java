@@ -0,0 +1,114 @@
+package com.omega.retail.repository;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Carga de filas con COPY ... FROM STDIN (formato CSV). Las filas se arman en un buffer y se mandan en
+// bloques, sin un objeto por fila ni un round trip por batch. Los textos no se escapan: quien escribe
+// garantiza que no tienen comas, comillas ni saltos de linea
+public class PgCopyWriter implements AutoCloseable {
+
+    private static final int FLUSH_BYTES = 4 * 1024 * 1024;
+
+    private final CopyIn copyIn;
+    private final StringBuilder buffer = new StringBuilder(FLUSH_BYTES + 1024);
+    private boolean firstColumn = true;
+    private long rows;
+
+    public PgCopyWriter(Connection connection, String table, String columns) throws SQLException {
+        this.copyIn = connection.unwrap(PGConnection.class).getCopyAPI()
+                .copyIn("COPY " + table + " (" + columns + ") FROM STDIN WITH (FORMAT csv)");
+    }
+
+    public PgCopyWriter col(long value) {
+        separator().append(value);
+        return this;
+    }
+
+    public PgCopyWriter col(int value) {
+        separator().append(value);
+        return this;
+    }
+
+    public PgCopyWriter col(double value) {
+        separator().append(value);
+        return this;
+    }
+
+    public PgCopyWriter col(boolean value) {
+        separator().append(value ? 't' : 'f');
+        return this;
+    }
+
+    public PgCopyWriter col(String value) {
+        StringBuilder sb = separator();
+        if (value != null) {
+            sb.append(value);
+        }
+        return this;
+    }
+
+    public PgCopyWriter col(LocalDate value) {
+        StringBuilder sb = separator();
+        if (value != null) {
+            sb.append(value);
+        }
+        return this;
+    }
+
+    public PgCopyWriter col(LocalDateTime value) {
+        StringBuilder sb = separator();
+        if (value != null) {
+            sb.append(value);
+        }
+        return this;
+    }
+
+    // Columna vacia = NULL en el formato CSV de COPY
+    public PgCopyWriter nul() {
+        separator();
+        return this;
+    }
+
+    public void endRow() throws SQLException {
+        buffer.append('\n');
+        firstColumn = true;
+        rows++;
+        if (buffer.length() >= FLUSH_BYTES) {
+            flush();
+        }
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        flush();
+        copyIn.endCopy();
+    }
+
+    private StringBuilder separator() {
+        if (!firstColumn) {
+            buffer.append(',');
+        }
+        firstColumn = false;
+        return buffer;
+    }
+
+    private void flush() throws SQLException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+}
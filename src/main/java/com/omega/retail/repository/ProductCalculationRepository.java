@@ -0,0 +1,147 @@
+package com.omega.retail.repository;
+
+import com.omega.retail.enums.InventoryPolicy;
+import com.omega.retail.repository.projection.RecalculationRow;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+// Acceso JDBC del recalculo masivo y de la cola de productos sucios: lecturas de una sola consulta y
+// escrituras en batch
+@Repository
+public class ProductCalculationRepository {
+
+    // El predeterminado es el primero por id, como el findFirst sobre productProviders. Se resuelve con
+    // un solo recorrido de product_provider (DISTINCT ON) en vez de una subconsulta por producto.
+    // Los %s son los filtros por producto (vacios para todo el catalogo)
+    private static final String SELECT_INPUTS = """
+        SELECT p.id, p.inventory_policy, p.annual_demand, p.storage_cost, p.total_cost,
+               flp.id AS lot_policy_id, flp.optimal_lot_size, flp.reorder_point, flp.safety_stock AS lot_safety_stock,
+               fip.id AS interval_policy_id, fip.review_interval_days, fip.safety_stock AS interval_safety_stock,
+               fip.max_inventory_level,
+               dp.shipping_cost, dp.lead_time, dp.unit_cost
+        FROM product p
+        LEFT JOIN fixed_lot_policy flp ON flp.id = p.fixed_lot_policy_id
+        LEFT JOIN fixed_interval_policy fip ON fip.id = p.fixed_interval_policy_id
+        LEFT JOIN (
+            SELECT DISTINCT ON (pp.product_id) pp.product_id, pp.shipping_cost, pp.lead_time, pp.unit_cost
+            FROM product_provider pp
+            WHERE pp.is_default %s
+            ORDER BY pp.product_id, pp.id
+        ) dp ON dp.product_id = p.id
+        %s
+        ORDER BY p.id
+    """;
+
+    private static final String UPDATE_LOT_POLICY =
+            "UPDATE fixed_lot_policy SET optimal_lot_size = ?, reorder_point = ? WHERE id = ?";
+    private static final String UPDATE_INTERVAL_POLICY =
+            "UPDATE fixed_interval_policy SET max_inventory_level = ? WHERE id = ?";
+    private static final String UPDATE_TOTAL_COST =
+            "UPDATE product SET total_cost = ? WHERE id = ?";
+
+    // Siempre se pisa con el ultimo pedido: el worker solo limpia los pedidos anteriores a su lectura
+    private static final String MARK_REQUESTED =
+            "UPDATE product SET recalculation_requested_at = :now WHERE id IN (:ids)";
+    private static final String MARK_RECALCULATED = """
+        UPDATE product
+        SET recalculated_at = :now,
+            calculation_version = coalesce(calculation_version, 0) + 1,
+            recalculation_requested_at = CASE WHEN recalculation_requested_at <= :claimedAt
+                                              THEN NULL ELSE recalculation_requested_at END
+        WHERE id IN (:ids)
+    """;
+
+    private static final RowMapper<RecalculationRow> ROW_MAPPER = (rs, rowNum) -> new RecalculationRow(
+            rs.getLong("id"),
+            rs.getString("inventory_policy") != null ? InventoryPolicy.valueOf(rs.getString("inventory_policy")) : null,
+            rs.getObject("annual_demand", Integer.class),
+            rs.getObject("storage_cost", Double.class),
+            rs.getObject("total_cost", Double.class),
+            rs.getObject("lot_policy_id", Long.class),
+            rs.getObject("optimal_lot_size", Integer.class),
+            rs.getObject("reorder_point", Integer.class),
+            rs.getObject("lot_safety_stock", Integer.class),
+            rs.getObject("interval_policy_id", Long.class),
+            rs.getObject("review_interval_days", Integer.class),
+            rs.getObject("interval_safety_stock", Integer.class),
+            rs.getObject("max_inventory_level", Integer.class),
+            rs.getObject("shipping_cost", Double.class),
+            rs.getObject("lead_time", Integer.class),
+            rs.getObject("unit_cost", Double.class));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public ProductCalculationRepository(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+    }
+
+    public List<RecalculationRow> findInputs() {
+        return jdbcTemplate.query(SELECT_INPUTS.formatted("", ""), ROW_MAPPER);
+    }
+
+    public List<RecalculationRow> findInputs(Collection<Long> productIds) {
+        return namedJdbcTemplate.query(
+                SELECT_INPUTS.formatted("AND pp.product_id IN (:ids)", "WHERE p.id IN (:ids)"),
+                new MapSqlParameterSource("ids", productIds), ROW_MAPPER);
+    }
+
+    public void markRecalculationRequested(Collection<Long> productIds, LocalDateTime now) {
+        namedJdbcTemplate.update(MARK_REQUESTED, new MapSqlParameterSource("ids", productIds).addValue("now", now));
+    }
+
+    // Sube la version de los productos recalculados y limpia los pedidos hechos hasta claimedAt
+    public void markRecalculated(Collection<Long> productIds, LocalDateTime claimedAt, LocalDateTime now) {
+        namedJdbcTemplate.update(MARK_RECALCULATED, new MapSqlParameterSource("ids", productIds)
+                .addValue("claimedAt", claimedAt)
+                .addValue("now", now));
+    }
+
+    // Pedidos pendientes, del mas viejo al mas nuevo (los que quedaron tras un reinicio)
+    public List<Long> findRecalculationRequested() {
+        return jdbcTemplate.queryForList(
+                "SELECT id FROM product WHERE recalculation_requested_at IS NOT NULL ORDER BY recalculation_requested_at",
+                Long.class);
+    }
+
+    public long countRecalculationRequested() {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM product WHERE recalculation_requested_at IS NOT NULL", Long.class);
+        return count != null ? count : 0;
+    }
+
+    // Cada fila: {optimal_lot_size, reorder_point, id}
+    public int updateLotPolicies(List<Object[]> rows, int batchSize) {
+        return batch(UPDATE_LOT_POLICY, rows, new int[]{Types.INTEGER, Types.INTEGER, Types.BIGINT}, batchSize);
+    }
+
+    // Cada fila: {max_inventory_level, id}
+    public int updateIntervalPolicies(List<Object[]> rows, int batchSize) {
+        return batch(UPDATE_INTERVAL_POLICY, rows, new int[]{Types.INTEGER, Types.BIGINT}, batchSize);
+    }
+
+    // Cada fila: {total_cost, id}
+    public int updateTotalCosts(List<Object[]> rows, int batchSize) {
+        return batch(UPDATE_TOTAL_COST, rows, new int[]{Types.DOUBLE, Types.BIGINT}, batchSize);
+    }
+
+    private int batch(String sql, List<Object[]> rows, int[] types, int batchSize) {
+        int updated = 0;
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            List<Object[]> chunk = rows.subList(from, Math.min(rows.size(), from + batchSize));
+            for (int count : jdbcTemplate.batchUpdate(sql, chunk, types)) {
+                updated += count;
+            }
+        }
+        return updated;
+    }
+}
@@ -1,14 +1,33 @@
 package com.omega.retail.repository;
 
 import com.omega.retail.entity.ProductProvider;
+import com.omega.retail.repository.projection.ProductProviderCostView;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface ProductProviderRepository extends JpaRepository<ProductProvider, Long> {
+    @Override
+    @EntityGraph(attributePaths = "provider")
+    List<ProductProvider> findAll();
+
+    // Costo unitario de cada par proveedor-producto, para armar ordenes sin recorrer los productos de cada proveedor
+    @Query("""
+        SELECT pp.provider.id AS providerId, pp.product.id AS productId, pp.unitCost AS unitCost
+        FROM ProductProvider pp
+        WHERE pp.provider.id IN :providerIds
+          AND pp.product.id IN :productIds
+    """)
+    List<ProductProviderCostView> findUnitCosts(@Param("providerIds") Collection<Long> providerIds,
+                                                @Param("productIds") Collection<Long> productIds);
+
     @Modifying
     @Query("UPDATE ProductProvider pp SET pp.isDefault = false WHERE pp.product.id = :productId")
     void unsetAllDefaultByProduct(@Param("productId") Long productId);
@@ -3,12 +3,16 @@ package com.omega.retail.repository;
 import com.omega.retail.entity.Product;
 import com.omega.retail.enums.ProductState;
 import com.omega.retail.enums.PurchaseOrderState;
+import com.omega.retail.repository.projection.ProductStockView;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,37 +24,35 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query(
             nativeQuery = true,
             value = """
-        SELECT COUNT(*) > 0
-        FROM purchase_order po
-        JOIN purchase_order_detail pod ON pod.purchase_order_id = po.id
-        WHERE pod.product_id = :id
-        AND po.purchase_order_state IN (:states)
+        SELECT EXISTS (
+            SELECT 1
+            FROM purchase_order_detail pod
+            JOIN purchase_order po ON po.id = pod.purchase_order_id
+            WHERE pod.product_id = :id
+            AND po.purchase_order_state IN (:states)
+        )
     """
     )
     boolean existsByActivePurchaseOrder(@Param("id") Long id, @Param("states") List<PurchaseOrderState> states);
 
-    @Query(value = """
-        SELECT *
-        FROM product p
-        WHERE p.product_state = 'ALTA'
+    @EntityGraph(Product.WITH_PROVIDERS_AND_POLICIES)
+    @Query("""
+        SELECT p
+        FROM Product p
+        LEFT JOIN p.fixedLotPolicy flp
+        LEFT JOIN p.fixedIntervalPolicy fip
+        WHERE p.productState = 'ALTA'
           AND (
-            (p.inventory_policy = 'LOTE_FIJO' AND p.fixed_lot_policy_id IS NOT NULL AND p.current_stock < (
-              SELECT flp.safety_stock
-              FROM fixed_lot_policy flp
-              WHERE flp.id = p.fixed_lot_policy_id
-            ))
+            (p.inventoryPolicy = 'LOTE_FIJO' AND p.currentStock < flp.safetyStock)
             OR
-            (p.inventory_policy = 'INTERVALO_FIJO' AND p.fixed_interval_policy_id IS NOT NULL AND p.current_stock < (
-              SELECT fip.safety_stock
-              FROM fixed_interval_policy fip
-              WHERE fip.id = p.fixed_interval_policy_id
-            ))
+            (p.inventoryPolicy = 'INTERVALO_FIJO' AND p.currentStock < fip.safetyStock)
           )
-     """, nativeQuery = true)
+     """)
     List<Product> findBelowStockSecurity();
 
 
 
+    @EntityGraph(Product.WITH_PROVIDERS_AND_POLICIES)
     @Query("""
         SELECT p
         FROM Product p
@@ -66,6 +68,7 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findBelowReorderPointWithoutPendingOrders(@Param("states") List<PurchaseOrderState> states);
 
 
+    @EntityGraph(Product.WITH_PROVIDERS_AND_POLICIES)
     @Query("SELECT p FROM Product p " +
             "JOIN p.productProviders pp " +
             "WHERE pp.provider.id = :providerId " +
@@ -73,6 +76,36 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
             "AND pp.productProviderState = 'ALTA'")
     List<Product> findActiveProductsByProviderId(Long providerId);
 
+    @Override
+    @EntityGraph(Product.WITH_PROVIDERS_AND_POLICIES)
+    List<Product> findAll();
+
+    @EntityGraph(Product.WITH_PROVIDERS_AND_POLICIES)
     List<Product> findByProductState(ProductState state);
 
+    @EntityGraph(Product.WITH_PROVIDERS_AND_POLICIES)
+    List<Product> findWithProvidersByIdIn(Collection<Long> ids);
+
+    // Productos de intervalo fijo con la revision vencida, paginados por keyset sobre el id (idx por next_review_date).
+    // La particion sale del proveedor predeterminado: los productos de un mismo proveedor caen siempre en la misma,
+    // asi dos particiones nunca completan la misma orden pendiente. Sin proveedor predeterminado no se reponen
+    @Query(nativeQuery = true, value = """
+        SELECT p.id
+        FROM product p
+        JOIN fixed_interval_policy fip ON fip.id = p.fixed_interval_policy_id
+        WHERE p.inventory_policy = 'INTERVALO_FIJO'
+          AND fip.next_review_date <= :today
+          AND p.id > :afterId
+          AND mod((SELECT MIN(pp.provider_id) FROM product_provider pp
+                   WHERE pp.product_id = p.id AND pp.is_default), :partitions) = :partition
+        ORDER BY p.id
+        LIMIT :limit
+    """)
+    List<Long> findDueForReview(@Param("today") LocalDate today, @Param("afterId") long afterId,
+                                @Param("partition") int partition, @Param("partitions") int partitions,
+                                @Param("limit") int limit);
+
+    @Query("SELECT p.id AS id, p.description AS description, p.currentStock AS currentStock FROM Product p WHERE p.id IN :ids")
+    List<ProductStockView> findStockByIdIn(@Param("ids") Collection<Long> ids);
+
 }
@@ -0,0 +1,104 @@
+package com.omega.retail.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+@Repository
+public class ProductStockRepository {
+
+    private static final String DECREMENT_STOCK = """
+        UPDATE product SET current_stock = current_stock - :quantity
+        WHERE id = :id AND current_stock >= :quantity
+    """;
+
+    // Un solo UPDATE para todos los productos: las filas se bloquean en orden de id (CTE materializado con
+    // FOR UPDATE), igual que el batch de descuentos, asi dos transacciones concurrentes no se cruzan
+    private static final String INCREMENT_STOCK = """
+        WITH increments(id, quantity) AS (VALUES %s),
+        locked AS MATERIALIZED (
+            SELECT p.id FROM product p JOIN increments i ON i.id = p.id ORDER BY p.id FOR UPDATE OF p
+        )
+        UPDATE product p SET current_stock = p.current_stock + i.quantity
+        FROM increments i JOIN locked l ON l.id = i.id
+        WHERE p.id = i.id
+    """;
+
+    // Ajuste manual relativo; no deja el stock negativo aunque otra transaccion haya descontado mientras tanto
+    private static final String ADJUST_STOCK = """
+        UPDATE product SET current_stock = current_stock + :delta
+        WHERE id = :id AND current_stock + :delta >= 0
+        RETURNING current_stock
+    """;
+
+    // Productos por sentencia (dos parametros cada uno; el protocolo de Postgres admite hasta 32767)
+    private static final int INCREMENT_CHUNK = 1000;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public ProductStockRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Descuento condicionado: devuelve los productos que no tenian stock suficiente (y no se modificaron)
+    public Set<Long> decrementStock(Map<Long, Integer> quantitiesByProduct) {
+        List<Long> ids = new ArrayList<>();
+        int[] updated = batch(DECREMENT_STOCK, quantitiesByProduct, ids);
+
+        Set<Long> insufficient = new HashSet<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                insufficient.add(ids.get(i));
+            }
+        }
+        return insufficient;
+    }
+
+    // Reposicion agregada: UPDATE ... FROM (VALUES ...) con una fila por producto, en vez de un UPDATE por producto
+    public void incrementStock(Map<Long, Integer> quantitiesByProduct) {
+        List<Map.Entry<Long, Integer>> sorted = new ArrayList<>(new TreeMap<>(quantitiesByProduct).entrySet());
+        for (int from = 0; from < sorted.size(); from += INCREMENT_CHUNK) {
+            List<Map.Entry<Long, Integer>> chunk = sorted.subList(from, Math.min(from + INCREMENT_CHUNK, sorted.size()));
+            MapSqlParameterSource params = new MapSqlParameterSource();
+            StringJoiner values = new StringJoiner(", ");
+            for (int i = 0; i < chunk.size(); i++) {
+                values.add("(CAST(:id" + i + " AS bigint), CAST(:quantity" + i + " AS integer))");
+                params.addValue("id" + i, chunk.get(i).getKey());
+                params.addValue("quantity" + i, chunk.get(i).getValue());
+            }
+            jdbcTemplate.update(INCREMENT_STOCK.formatted(values), params);
+        }
+    }
+
+    // Devuelve el stock resultante, o vacio si el ajuste lo dejaria negativo (y no se modifico)
+    public Optional<Integer> adjustStock(Long id, int delta) {
+        List<Integer> stock = jdbcTemplate.queryForList(ADJUST_STOCK,
+                new MapSqlParameterSource().addValue("id", id).addValue("delta", delta), Integer.class);
+        return stock.stream().findFirst();
+    }
+
+    // Un UPDATE por producto, ordenados por id para que dos transacciones concurrentes bloqueen en el mismo orden
+    private int[] batch(String sql, Map<Long, Integer> quantitiesByProduct, List<Long> ids) {
+        if (quantitiesByProduct.isEmpty()) {
+            return new int[0];
+        }
+        TreeMap<Long, Integer> sorted = new TreeMap<>(quantitiesByProduct);
+        ids.addAll(sorted.keySet());
+        SqlParameterSource[] params = sorted.entrySet().stream()
+                .map(e -> new MapSqlParameterSource()
+                        .addValue("id", e.getKey())
+                        .addValue("quantity", e.getValue()))
+                .toArray(SqlParameterSource[]::new);
+        return jdbcTemplate.batchUpdate(sql, params);
+    }
+}
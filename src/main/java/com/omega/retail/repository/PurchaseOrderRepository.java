@@ -2,25 +2,51 @@ package com.omega.retail.repository;
 
 import com.omega.retail.entity.PurchaseOrder;
 import com.omega.retail.enums.PurchaseOrderState;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface PurchaseOrderRepository extends JpaRepository<PurchaseOrder,Long> {
+    // Productos con alguna orden activa: una sola consulta para todos los productos
     @Query("""
-        SELECT CASE WHEN COUNT(d) > 0 THEN TRUE ELSE FALSE END
+        SELECT DISTINCT d.product.id
         FROM PurchaseOrder po
         JOIN po.details d
-        WHERE d.product.id = :productId
+        WHERE d.product.id IN :productIds
           AND po.purchaseOrderState IN :states
     """)
-    boolean existsActiveByProductId(@Param("productId") Long productId ,@Param("states") List<PurchaseOrderState> states);
+    List<Long> findProductIdsWithActiveOrder(@Param("productIds") Collection<Long> productIds,
+                                             @Param("states") List<PurchaseOrderState> states);
+
+    // [estado, cantidad de ordenes]
+    @Query("SELECT po.purchaseOrderState, COUNT(po) FROM PurchaseOrder po GROUP BY po.purchaseOrderState")
+    List<Object[]> countByState();
+
+    @Override
+    @EntityGraph(PurchaseOrder.WITH_PROVIDER_AND_DETAILS)
+    List<PurchaseOrder> findAll();
+
+    @EntityGraph(PurchaseOrder.WITH_PROVIDER_AND_DETAILS)
+    List<PurchaseOrder> findByPurchaseOrderStateOrderById(PurchaseOrderState state);
 
     Optional<PurchaseOrder> findFirstByProviderIdAndPurchaseOrderState(Long providerId, PurchaseOrderState state);
 
+    @Query("""
+        SELECT DISTINCT po
+        FROM PurchaseOrder po
+        LEFT JOIN FETCH po.details
+        WHERE po.provider.id IN :providerIds
+          AND po.purchaseOrderState = :state
+        ORDER BY po.id
+    """)
+    List<PurchaseOrder> findWithDetailsByProviderIdInAndState(@Param("providerIds") Collection<Long> providerIds,
+                                                              @Param("state") PurchaseOrderState state);
+
 }
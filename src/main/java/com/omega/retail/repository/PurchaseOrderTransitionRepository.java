@@ -0,0 +1,84 @@
+package com.omega.retail.repository;
+
+import com.omega.retail.enums.PurchaseOrderState;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Cambios de estado de muchas ordenes a la vez. Cada transicion es una sola sentencia: el UPDATE solo toca las
+// ordenes que estan en el estado de origen (esa es la validacion) y devuelve sus lineas para reponer stock y
+// actualizar los indices. purchase_order_state se guarda como ordinal
+@Repository
+public class PurchaseOrderTransitionRepository {
+
+    private static final String TRANSITION = """
+        WITH moved AS (
+            UPDATE purchase_order
+            SET purchase_order_state = :to%s
+            WHERE id IN (:ids) AND purchase_order_state = :from
+            RETURNING id, provider_id
+        )
+        SELECT m.id, m.provider_id, d.product_id, d.quantity
+        FROM moved m
+        LEFT JOIN purchase_order_detail d ON d.purchase_order_id = m.id
+    """;
+
+    private static final String FIND_STATES = """
+        SELECT id, purchase_order_state FROM purchase_order WHERE id IN (:ids)
+    """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public PurchaseOrderTransitionRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Una fila por linea de cada orden que cambio de estado (productId null si la orden no tiene lineas)
+    public record TransitionedLine(Long orderId, Long providerId, Long productId, Integer quantity) {
+    }
+
+    public List<TransitionedLine> send(Collection<Long> ids, LocalDate sentAt) {
+        return transition(ids, PurchaseOrderState.PENDIENTE, PurchaseOrderState.ENVIADA, "sent_at", sentAt);
+    }
+
+    public List<TransitionedLine> finalize(Collection<Long> ids, LocalDate receivedAt) {
+        return transition(ids, PurchaseOrderState.ENVIADA, PurchaseOrderState.FINALIZADA, "received_at", receivedAt);
+    }
+
+    public List<TransitionedLine> cancel(Collection<Long> ids) {
+        return transition(ids, PurchaseOrderState.PENDIENTE, PurchaseOrderState.CANCELADA, null, null);
+    }
+
+    public Map<Long, PurchaseOrderState> findStates(Collection<Long> ids) {
+        Map<Long, PurchaseOrderState> states = new HashMap<>();
+        jdbcTemplate.query(FIND_STATES, new MapSqlParameterSource("ids", ids), rs -> {
+            states.put(rs.getLong("id"), PurchaseOrderState.values()[rs.getInt("purchase_order_state")]);
+        });
+        return states;
+    }
+
+    // dateColumn sale de las constantes de arriba, nunca del request
+    private List<TransitionedLine> transition(Collection<Long> ids, PurchaseOrderState from, PurchaseOrderState to,
+                                              String dateColumn, LocalDate date) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("ids", ids)
+                .addValue("from", from.ordinal())
+                .addValue("to", to.ordinal());
+        String setDate = "";
+        if (dateColumn != null) {
+            setDate = ", " + dateColumn + " = :date";
+            params.addValue("date", date);
+        }
+        return jdbcTemplate.query(TRANSITION.formatted(setDate), params, (rs, rowNum) -> new TransitionedLine(
+                rs.getLong("id"),
+                rs.getObject("provider_id", Long.class),
+                rs.getObject("product_id", Long.class),
+                rs.getObject("quantity", Integer.class)));
+    }
+}
@@ -1,12 +1,65 @@
 package com.omega.retail.repository;
 
 import com.omega.retail.entity.Sale;
+import com.omega.retail.repository.projection.SaleSummaryView;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
 @Repository
 public interface SaleRepository extends JpaRepository<Sale, Long> {
     Page<Sale> findAllByOrderByDateDesc(Pageable pageable);
+
+    @Override
+    @EntityGraph(Sale.WITH_DETAILS)
+    List<Sale> findAll();
+
+    // Segundo paso de la pagina: los detalles no se pueden traer con fetch join sobre la consulta paginada
+    @EntityGraph(Sale.WITH_DETAILS)
+    List<Sale> findWithDetailsByIdIn(Collection<Long> ids);
+
+    // Keyset sobre idx_sale_date_id: la pagina N cuesta lo mismo que la primera (sin OFFSET ni COUNT)
+    @Query(nativeQuery = true, value = """
+        SELECT s.id AS id, s.date AS date, s.total AS total
+        FROM sale s
+        ORDER BY s.date DESC, s.id DESC
+        LIMIT :limit
+    """)
+    List<SaleSummaryView> findLatestSummaries(@Param("limit") int limit);
+
+    @Query(nativeQuery = true, value = """
+        SELECT s.id AS id, s.date AS date, s.total AS total
+        FROM sale s
+        WHERE (s.date, s.id) < (:date, :id)
+        ORDER BY s.date DESC, s.id DESC
+        LIMIT :limit
+    """)
+    List<SaleSummaryView> findSummariesBefore(@Param("date") LocalDateTime date, @Param("id") Long id,
+                                              @Param("limit") int limit);
+
+    // Cursor de solo lectura hacia adelante: el driver trae las filas de a 500 en vez de materializar la tabla
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+        SELECT s
+        FROM Sale s
+        WHERE (cast(:from AS LocalDateTime) IS NULL OR s.date >= :from)
+          AND (cast(:to AS LocalDateTime) IS NULL OR s.date < :to)
+        ORDER BY s.date, s.id
+    """)
+    Stream<Sale> streamByDateRange(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
 }
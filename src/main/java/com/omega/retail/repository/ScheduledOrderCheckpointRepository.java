@@ -0,0 +1,127 @@
+package com.omega.retail.repository;
+
+import com.omega.retail.entity.ScheduledOrderCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+// Los vencimientos de los leases se comparan con el reloj de la base (localtimestamp), no con el de cada nodo
+@Repository
+public interface ScheduledOrderCheckpointRepository extends JpaRepository<ScheduledOrderCheckpoint, Long> {
+
+    List<ScheduledOrderCheckpoint> findByRunDateOrderByPartitionIndex(LocalDate runDate);
+
+    // Particiones que todavia pueden terminar: sin terminar y sin agotar sus tomas
+    boolean existsByRunDateAndFinishedAtIsNullAndFailedAtIsNull(LocalDate runDate);
+
+    long countByRunDateAndFailedAtIsNotNull(LocalDate runDate);
+
+    // La primera instancia que arranca la corrida del dia crea todas sus particiones; las demas no insertan nada
+    @Modifying
+    @Query(nativeQuery = true, value = """
+        INSERT INTO scheduled_order_checkpoint (run_date, partition_index, partitions, last_product_id,
+                                                products_scanned, lines_added, chunks, attempts, fencing_token, started_at)
+        SELECT :runDate, p, :partitions, 0, 0, 0, 0, 0, 0, localtimestamp
+        FROM generate_series(0, :partitions - 1) p
+        WHERE NOT EXISTS (SELECT 1 FROM scheduled_order_checkpoint WHERE run_date = :runDate)
+        ON CONFLICT (run_date, partition_index) DO NOTHING
+    """)
+    int createPartitions(@Param("runDate") LocalDate runDate, @Param("partitions") int partitions);
+
+    // SKIP LOCKED: una particion que otro nodo esta tomando o procesando (fila bloqueada por su chunk) se saltea
+    @Query(nativeQuery = true, value = """
+        SELECT id
+        FROM scheduled_order_checkpoint
+        WHERE run_date = :runDate
+          AND finished_at IS NULL
+          AND failed_at IS NULL
+          AND COALESCE(attempts, 0) < :maxAttempts
+          AND (lease_expires_at IS NULL OR lease_expires_at < localtimestamp)
+        ORDER BY partition_index
+        LIMIT 1
+        FOR UPDATE SKIP LOCKED
+    """)
+    Optional<Long> findClaimable(@Param("runDate") LocalDate runDate, @Param("maxAttempts") int maxAttempts);
+
+    @Modifying(clearAutomatically = true)
+    @Query(nativeQuery = true, value = """
+        UPDATE scheduled_order_checkpoint
+        SET lease_owner = :owner,
+            lease_expires_at = localtimestamp + make_interval(secs => :leaseSeconds),
+            fencing_token = COALESCE(fencing_token, 0) + 1,
+            attempts = COALESCE(attempts, 0) + 1
+        WHERE id = :id
+    """)
+    void lease(@Param("id") Long id, @Param("owner") String owner, @Param("leaseSeconds") double leaseSeconds);
+
+    // Particiones que todavia pueden terminar y no estan en manos de owner: tomables o con un lease vigente de otro nodo
+    @Query(nativeQuery = true, value = """
+        SELECT count(*)
+        FROM scheduled_order_checkpoint
+        WHERE run_date = :runDate
+          AND finished_at IS NULL
+          AND failed_at IS NULL
+          AND (COALESCE(attempts, 0) < :maxAttempts OR lease_expires_at >= localtimestamp)
+          AND NOT (lease_owner = :owner AND lease_expires_at >= localtimestamp)
+    """)
+    long countOutstanding(@Param("runDate") LocalDate runDate, @Param("maxAttempts") int maxAttempts,
+                          @Param("owner") String owner);
+
+    // Las operaciones con fencing devuelven 0 si otro nodo tomo la particion despues (token mayor)
+    @Modifying
+    @Query(nativeQuery = true, value = """
+        UPDATE scheduled_order_checkpoint
+        SET lease_expires_at = localtimestamp + make_interval(secs => :leaseSeconds)
+        WHERE id = :id AND fencing_token = :token AND finished_at IS NULL
+    """)
+    int renew(@Param("id") Long id, @Param("token") long token, @Param("leaseSeconds") double leaseSeconds);
+
+    @Modifying
+    @Query(nativeQuery = true, value = """
+        UPDATE scheduled_order_checkpoint
+        SET last_product_id = :lastProductId,
+            products_scanned = products_scanned + :products,
+            lines_added = lines_added + :lines,
+            chunks = chunks + 1
+        WHERE id = :id AND fencing_token = :token
+    """)
+    int recordChunk(@Param("id") Long id, @Param("token") long token, @Param("lastProductId") long lastProductId,
+                    @Param("products") int products, @Param("lines") int lines);
+
+    @Modifying
+    @Query(nativeQuery = true, value = """
+        UPDATE scheduled_order_checkpoint
+        SET finished_at = localtimestamp, lease_expires_at = NULL
+        WHERE id = :id AND fencing_token = :token
+    """)
+    int finish(@Param("id") Long id, @Param("token") long token);
+
+    // Particiones que agotaron sus tomas y ya no tienen un lease vigente (fallaron o su ultimo nodo se cayo): quedan
+    // terminales, asi la corrida del dia cuenta como completa y no se retoma en cada arranque
+    @Modifying
+    @Query(nativeQuery = true, value = """
+        UPDATE scheduled_order_checkpoint
+        SET failed_at = localtimestamp, lease_expires_at = NULL
+        WHERE run_date = :runDate
+          AND finished_at IS NULL
+          AND failed_at IS NULL
+          AND COALESCE(attempts, 0) >= :maxAttempts
+          AND (lease_expires_at IS NULL OR lease_expires_at < localtimestamp)
+    """)
+    int failExhausted(@Param("runDate") LocalDate runDate, @Param("maxAttempts") int maxAttempts);
+
+    // Libera el lease sin esperar el vencimiento (la particion fallo y se puede reintentar)
+    @Modifying
+    @Query(nativeQuery = true, value = """
+        UPDATE scheduled_order_checkpoint
+        SET lease_expires_at = NULL
+        WHERE id = :id AND fencing_token = :token
+    """)
+    int release(@Param("id") Long id, @Param("token") long token);
+}
@@ -0,0 +1,124 @@
+package com.omega.retail.repository;
+
+import com.omega.retail.entity.StockMovement;
+import com.omega.retail.enums.StockMovementType;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Libro de movimientos de stock y sus snapshots diarios. El stock a una fecha se calcula desde el primer snapshot
+// posterior (o current_stock si no hay) restando los movimientos que ocurrieron despues de la fecha: el ancla y los
+// movimientos se leen en la misma sentencia, asi el resultado es consistente aunque haya ventas en curso.
+// occurred_at y los limites de cada dia salen del mismo reloj, el de la aplicacion
+@Repository
+public class StockMovementRepository {
+
+    private static final String APPEND = """
+        INSERT INTO stock_movement (product_id, movement_type, quantity, occurred_at)
+        VALUES (:productId, :movementType, :quantity, :occurredAt)
+    """;
+
+    private static final String STOCK_AT = """
+        SELECT p.id, COALESCE(s.stock, p.current_stock) - COALESCE((
+            SELECT sum(m.quantity) FROM stock_movement m
+            WHERE m.product_id = p.id AND m.occurred_at >= :after
+              AND (s.snapshot_date IS NULL OR m.occurred_at < CAST(s.snapshot_date + 1 AS timestamp))
+        ), 0) AS stock
+        FROM product p
+        LEFT JOIN LATERAL (
+            SELECT ss.snapshot_date, ss.stock FROM stock_snapshot ss
+            WHERE ss.product_id = p.id AND ss.snapshot_date >= :date
+            ORDER BY ss.snapshot_date
+            LIMIT 1
+        ) s ON true
+        WHERE p.id IN (:ids)
+    """;
+
+    private static final String FIND_MOVEMENTS = """
+        SELECT id, product_id, movement_type, quantity, occurred_at FROM stock_movement
+        WHERE product_id = :productId AND occurred_at >= :from AND occurred_at < :until
+        ORDER BY occurred_at, id
+    """;
+
+    // Un snapshot al cierre de :date por cada producto con movimientos desde su ultimo snapshot. Idempotente:
+    // si dos instancias compactan el mismo dia, la segunda no inserta nada
+    private static final String COMPACT = """
+        INSERT INTO stock_snapshot (product_id, snapshot_date, stock)
+        SELECT p.id, :date, p.current_stock - COALESCE((
+            SELECT sum(m.quantity) FROM stock_movement m WHERE m.product_id = p.id AND m.occurred_at >= :after
+        ), 0)
+        FROM product p
+        WHERE EXISTS (
+            SELECT 1 FROM stock_movement m
+            WHERE m.product_id = p.id AND m.occurred_at < :after
+              AND m.occurred_at >= COALESCE((
+                  SELECT CAST(max(s.snapshot_date) + 1 AS timestamp) FROM stock_snapshot s WHERE s.product_id = p.id
+              ), CAST('-infinity' AS timestamp))
+        )
+        ON CONFLICT (product_id, snapshot_date) DO NOTHING
+    """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public StockMovementRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Una fila por producto, en un batch JDBC (reWriteBatchedInserts lo manda como un INSERT multi-fila)
+    public void append(StockMovementType type, Map<Long, Integer> quantitiesByProduct) {
+        if (quantitiesByProduct.isEmpty()) {
+            return;
+        }
+        LocalDateTime occurredAt = LocalDateTime.now();
+        SqlParameterSource[] params = quantitiesByProduct.entrySet().stream()
+                .map(e -> new MapSqlParameterSource()
+                        .addValue("productId", e.getKey())
+                        .addValue("movementType", type.name())
+                        .addValue("quantity", e.getValue())
+                        .addValue("occurredAt", occurredAt))
+                .toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(APPEND, params);
+    }
+
+    // Stock al cierre de date; los productos inexistentes no aparecen en el mapa
+    public Map<Long, Integer> findStockAt(Collection<Long> ids, LocalDate date) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("ids", ids)
+                .addValue("date", date)
+                .addValue("after", date.plusDays(1).atStartOfDay());
+        Map<Long, Integer> stock = new HashMap<>();
+        jdbcTemplate.query(STOCK_AT, params, rs -> {
+            stock.put(rs.getLong("id"), rs.getInt("stock"));
+        });
+        return stock;
+    }
+
+    // Movimientos entre el inicio de from y el cierre de to
+    public List<StockMovement> findMovements(Long productId, LocalDate from, LocalDate to) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("productId", productId)
+                .addValue("from", from.atStartOfDay())
+                .addValue("until", to.plusDays(1).atStartOfDay());
+        return jdbcTemplate.query(FIND_MOVEMENTS, params, (rs, rowNum) -> StockMovement.builder()
+                .id(rs.getLong("id"))
+                .productId(rs.getLong("product_id"))
+                .movementType(StockMovementType.valueOf(rs.getString("movement_type")))
+                .quantity(rs.getInt("quantity"))
+                .occurredAt(rs.getTimestamp("occurred_at").toLocalDateTime())
+                .build());
+    }
+
+    public int compact(LocalDate date) {
+        return jdbcTemplate.update(COMPACT, new MapSqlParameterSource()
+                .addValue("date", date)
+                .addValue("after", date.plusDays(1).atStartOfDay()));
+    }
+}
@@ -0,0 +1,17 @@
+package com.omega.retail.repository.projection;
+
+import com.omega.retail.enums.InventoryPolicy;
+import com.omega.retail.enums.ProductState;
+
+// Lo que el snapshot de inventario guarda de cada producto. safetyStock es el de la politica vigente;
+// reorderPoint viene de la politica de lote fijo y maxInventoryLevel de la de intervalo fijo
+public record InventoryRow(
+        long productId,
+        Integer currentStock,
+        ProductState productState,
+        InventoryPolicy inventoryPolicy,
+        Integer safetyStock,
+        Integer reorderPoint,
+        Integer maxInventoryLevel,
+        boolean activeOrder) {
+}
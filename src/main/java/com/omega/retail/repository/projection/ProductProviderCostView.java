@@ -0,0 +1,7 @@
+package com.omega.retail.repository.projection;
+
+public interface ProductProviderCostView {
+    Long getProviderId();
+    Long getProductId();
+    Double getUnitCost();
+}
@@ -0,0 +1,7 @@
+package com.omega.retail.repository.projection;
+
+public interface ProductStockView {
+    Long getId();
+    String getDescription();
+    Integer getCurrentStock();
+}
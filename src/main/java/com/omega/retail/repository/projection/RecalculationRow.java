@@ -0,0 +1,24 @@
+package com.omega.retail.repository.projection;
+
+import com.omega.retail.enums.InventoryPolicy;
+
+// Entradas del recalculo de un producto: sus valores, sus politicas y los del proveedor predeterminado
+// (nulos si no tiene uno)
+public record RecalculationRow(
+        long productId,
+        InventoryPolicy inventoryPolicy,
+        Integer annualDemand,
+        Double storageCost,
+        Double totalCost,
+        Long lotPolicyId,
+        Integer optimalLotSize,
+        Integer reorderPoint,
+        Integer lotSafetyStock,
+        Long intervalPolicyId,
+        Integer reviewIntervalDays,
+        Integer intervalSafetyStock,
+        Integer maxInventoryLevel,
+        Double shippingCost,
+        Integer leadTime,
+        Double unitCost) {
+}
@@ -0,0 +1,9 @@
+package com.omega.retail.repository.projection;
+
+import java.time.LocalDateTime;
+
+public interface SaleSummaryView {
+    Long getId();
+    LocalDateTime getDate();
+    Double getTotal();
+}
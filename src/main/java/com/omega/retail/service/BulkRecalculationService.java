@@ -0,0 +1,364 @@
+package com.omega.retail.service;
+
+import com.omega.retail.dto.response.RecalculationResponse;
+import com.omega.retail.enums.InventoryPolicy;
+import com.omega.retail.event.jfr.CalculationBatchEvent;
+import com.omega.retail.repository.ProductCalculationRepository;
+import com.omega.retail.repository.projection.RecalculationRow;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+// Recalculo de lote optimo, punto de pedido, inventario maximo y costo total para todo el catalogo
+// (por ejemplo, despues de un cambio de precios de un proveedor). Lee todo con una consulta, aplana las
+// entradas en arreglos primitivos, evalua las formulas de CalculationService en paralelo en un ForkJoinPool
+// propio y escribe solo las filas que cambiaron, en batches JDBC
+@Slf4j
+@Service
+public class BulkRecalculationService {
+
+    // Campos enteros nulos; los double nulos se representan con NaN
+    private static final int NONE = Integer.MIN_VALUE;
+    // Productos por tarea antes de dejar de dividir el rango
+    private static final int SPLIT_THRESHOLD = 2_048;
+
+    private final ProductCalculationRepository calculationRepository;
+    private final InventorySnapshot inventorySnapshot;
+    private final ForkJoinPool pool;
+    private final int batchSize;
+    private final Timer catalogTimer;
+    private final Timer subsetTimer;
+    private final Timer catalogEvaluateTimer;
+    private final Timer subsetEvaluateTimer;
+
+    public BulkRecalculationService(ProductCalculationRepository calculationRepository,
+                                    InventorySnapshot inventorySnapshot,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${retail.recalculation.parallelism:0}") int parallelism,
+                                    @Value("${retail.recalculation.batch-size:1000}") int batchSize) {
+        this.calculationRepository = calculationRepository;
+        this.inventorySnapshot = inventorySnapshot;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.batchSize = batchSize;
+        this.catalogTimer = Timer.builder("retail.calculation.bulk")
+                .description("Recalculo de campos derivados por lote (lectura, calculo y escritura)")
+                .tag("scope", "catalog")
+                .register(meterRegistry);
+        this.subsetTimer = Timer.builder("retail.calculation.bulk")
+                .description("Recalculo de campos derivados por lote (lectura, calculo y escritura)")
+                .tag("scope", "subset")
+                .register(meterRegistry);
+        this.catalogEvaluateTimer = Timer.builder("retail.calculation.update")
+                .description("Evaluacion de las formulas de los campos derivados, sin lectura ni escritura")
+                .tag("scope", "catalog")
+                .register(meterRegistry);
+        this.subsetEvaluateTimer = Timer.builder("retail.calculation.update")
+                .description("Evaluacion de las formulas de los campos derivados, sin lectura ni escritura")
+                .tag("scope", "subset")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Transactional
+    public RecalculationResponse recalculateAll() {
+        RecalculationResponse response = recalculate(null);
+        log.info("Recalculo masivo: {} productos, {} cambiaron, {} filas actualizadas, {} omitidos en {} ms",
+                response.getProducts(), response.getChangedProducts(), response.getUpdatedRows(),
+                response.getSkippedProducts(), response.getElapsedMs());
+        return response;
+    }
+
+    // Mismo recalculo limitado a algunos productos (los que drena RecalculationQueue)
+    @Transactional
+    public RecalculationResponse recalculate(Collection<Long> productIds) {
+        if (productIds != null && productIds.isEmpty()) {
+            return RecalculationResponse.builder().parallelism(pool.getParallelism()).build();
+        }
+        CalculationBatchEvent event = new CalculationBatchEvent();
+        event.begin();
+        long start = System.nanoTime();
+        Inputs inputs = Inputs.of(productIds == null
+                ? calculationRepository.findInputs()
+                : calculationRepository.findInputs(productIds));
+        long loaded = System.nanoTime();
+
+        Outputs outputs = new Outputs(inputs);
+        pool.invoke(new Evaluate(inputs, outputs, 0, inputs.size));
+        long computed = System.nanoTime();
+
+        List<Object[]> lotRows = new ArrayList<>();
+        List<Object[]> intervalRows = new ArrayList<>();
+        List<Object[]> costRows = new ArrayList<>();
+        List<Long> policyChanged = new ArrayList<>();
+        int changedProducts = 0;
+        int skipped = 0;
+        for (int i = 0; i < inputs.size; i++) {
+            if (outputs.skipped[i]) {
+                skipped++;
+                continue;
+            }
+            boolean changed = false;
+            if (outputs.optimalLotSize[i] != inputs.optimalLotSize[i] || outputs.reorderPoint[i] != inputs.reorderPoint[i]) {
+                lotRows.add(new Object[]{nullable(outputs.optimalLotSize[i]), nullable(outputs.reorderPoint[i]), inputs.lotPolicyId[i]});
+                changed = true;
+            }
+            if (outputs.maxInventoryLevel[i] != inputs.maxInventoryLevel[i]) {
+                intervalRows.add(new Object[]{nullable(outputs.maxInventoryLevel[i]), inputs.intervalPolicyId[i]});
+                changed = true;
+            }
+            if (Double.compare(outputs.totalCost[i], inputs.totalCost[i]) != 0) {
+                costRows.add(new Object[]{outputs.totalCost[i], inputs.productIds[i]});
+                changed = true;
+            }
+            if (changed) {
+                changedProducts++;
+            }
+            if (outputs.optimalLotSize[i] != inputs.optimalLotSize[i] || outputs.reorderPoint[i] != inputs.reorderPoint[i]
+                    || outputs.maxInventoryLevel[i] != inputs.maxInventoryLevel[i]) {
+                policyChanged.add(inputs.productIds[i]);
+            }
+        }
+
+        int updatedRows = calculationRepository.updateLotPolicies(lotRows, batchSize)
+                + calculationRepository.updateIntervalPolicies(intervalRows, batchSize)
+                + calculationRepository.updateTotalCosts(costRows, batchSize);
+        // Las escrituras JDBC no pasan por el entity listener: para todo el catalogo se recarga el snapshot
+        // completo; para un subconjunto alcanza con releer los productos cuya politica cambio
+        if (productIds == null && !policyChanged.isEmpty()) {
+            inventorySnapshot.reloadAfterCommit();
+        } else {
+            policyChanged.forEach(inventorySnapshot::productChanged);
+        }
+        long written = System.nanoTime();
+
+        (productIds == null ? catalogEvaluateTimer : subsetEvaluateTimer).record(computed - loaded, TimeUnit.NANOSECONDS);
+        (productIds == null ? catalogTimer : subsetTimer).record(written - start, TimeUnit.NANOSECONDS);
+        event.setScope(productIds == null ? "catalog" : "subset");
+        event.setProducts(inputs.size);
+        event.setChangedProducts(changedProducts);
+        event.setUpdatedRows(updatedRows);
+        event.setLoadTime(loaded - start);
+        event.setComputeTime(computed - loaded);
+        event.setWriteTime(written - computed);
+        event.commit();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(written - start);
+        return RecalculationResponse.builder()
+                .products(inputs.size)
+                .changedProducts(changedProducts)
+                .updatedRows(updatedRows)
+                .skippedProducts(skipped)
+                .parallelism(pool.getParallelism())
+                .loadMs(TimeUnit.NANOSECONDS.toMillis(loaded - start))
+                .computeMs(TimeUnit.NANOSECONDS.toMillis(computed - loaded))
+                .writeMs(TimeUnit.NANOSECONDS.toMillis(written - computed))
+                .elapsedMs(elapsedMs)
+                .productsPerSecond(inputs.size * 1_000_000_000.0 / Math.max(1, written - start))
+                .build();
+    }
+
+    // El costo total usa el lote y el inventario maximo recien calculados y se redondea a centavos en las dos
+    // politicas. Si una formula no da un valor valido (division por cero, costo no finito o sin politica) el
+    // producto se omite y no se escribe nada
+    private static void evaluate(Inputs in, Outputs out, int i) {
+        int demand = in.annualDemand[i];
+        double storageCost = in.storageCost[i];
+        double shippingCost = in.shippingCost[i];
+        double unitCost = in.unitCost[i];
+        int leadTime = in.leadTime[i];
+        boolean lotPolicy = in.policy[i] == InventoryPolicy.LOTE_FIJO;
+        boolean intervalPolicy = in.policy[i] == InventoryPolicy.INTERVALO_FIJO;
+
+        if (lotPolicy && demand != NONE && !Double.isNaN(storageCost) && !Double.isNaN(shippingCost)) {
+            if (in.lotPolicyId[i] == null) {
+                out.skipped[i] = true;
+                return;
+            }
+            out.optimalLotSize[i] = CalculationService.optimalLotSize(demand, shippingCost, storageCost);
+        }
+        if (lotPolicy && demand != NONE && in.lotPolicyId[i] != null && in.lotSafetyStock[i] != NONE && leadTime != NONE) {
+            out.reorderPoint[i] = CalculationService.reorderPoint(demand, leadTime, in.lotSafetyStock[i]);
+        }
+        if (intervalPolicy && demand != NONE && in.intervalPolicyId[i] != null && in.reviewIntervalDays[i] != NONE
+                && in.intervalSafetyStock[i] != NONE && leadTime != NONE) {
+            out.maxInventoryLevel[i] = CalculationService.maxInventoryLevel(demand, leadTime,
+                    in.reviewIntervalDays[i], in.intervalSafetyStock[i]);
+        }
+
+        if (demand == NONE || Double.isNaN(storageCost) || Double.isNaN(shippingCost) || Double.isNaN(unitCost)) {
+            return;
+        }
+        if (lotPolicy && in.lotPolicyId[i] != null && out.optimalLotSize[i] != NONE) {
+            if (out.optimalLotSize[i] == 0) {
+                out.skipped[i] = true;
+                return;
+            }
+            double totalCost = CalculationService.fixedLotTotalCost(demand, out.optimalLotSize[i], shippingCost, storageCost, unitCost);
+            if (!Double.isFinite(totalCost)) {
+                out.skipped[i] = true;
+                return;
+            }
+            out.totalCost[i] = new BigDecimal(totalCost).setScale(2, RoundingMode.HALF_UP).doubleValue();
+        } else if (intervalPolicy && in.intervalPolicyId[i] != null && in.reviewIntervalDays[i] != NONE
+                && out.maxInventoryLevel[i] != NONE && leadTime != NONE) {
+            double totalCost = CalculationService.fixedIntervalTotalCost(demand, out.maxInventoryLevel[i],
+                    in.reviewIntervalDays[i], leadTime, shippingCost, storageCost, unitCost);
+            if (!Double.isFinite(totalCost)) {
+                out.skipped[i] = true;
+                return;
+            }
+            out.totalCost[i] = new BigDecimal(totalCost).setScale(2, RoundingMode.HALF_UP).doubleValue();
+        } else if (in.policy[i] == null) {
+            out.skipped[i] = true;
+        }
+    }
+
+    // Todas las entradas en el hilo actual, sin base ni pool: la misma evaluacion que corre cada hoja de Evaluate
+    static Outputs evaluate(Inputs inputs) {
+        Outputs outputs = new Outputs(inputs);
+        for (int i = 0; i < inputs.size; i++) {
+            evaluate(inputs, outputs, i);
+        }
+        return outputs;
+    }
+
+    private static Integer nullable(int value) {
+        return value != NONE ? value : null;
+    }
+
+    private static int value(Integer value) {
+        return value != null ? value : NONE;
+    }
+
+    private static double value(Double value) {
+        return value != null ? value : Double.NaN;
+    }
+
+    // Divide el rango hasta SPLIT_THRESHOLD productos; cada hoja escribe solo sus posiciones de Outputs
+    private static final class Evaluate extends RecursiveAction {
+
+        private final Inputs inputs;
+        private final Outputs outputs;
+        private final int from;
+        private final int to;
+
+        private Evaluate(Inputs inputs, Outputs outputs, int from, int to) {
+            this.inputs = inputs;
+            this.outputs = outputs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    evaluate(inputs, outputs, i);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Evaluate(inputs, outputs, from, middle), new Evaluate(inputs, outputs, middle, to));
+        }
+    }
+
+    // Entradas aplanadas: la posicion i de cada arreglo es el producto productIds[i]
+    static final class Inputs {
+
+        private final int size;
+        private final long[] productIds;
+        private final InventoryPolicy[] policy;
+        private final int[] annualDemand;
+        private final double[] storageCost;
+        private final double[] totalCost;
+        private final Long[] lotPolicyId;
+        private final int[] optimalLotSize;
+        private final int[] reorderPoint;
+        private final int[] lotSafetyStock;
+        private final Long[] intervalPolicyId;
+        private final int[] reviewIntervalDays;
+        private final int[] intervalSafetyStock;
+        private final int[] maxInventoryLevel;
+        private final double[] shippingCost;
+        private final int[] leadTime;
+        private final double[] unitCost;
+
+        private Inputs(int size) {
+            this.size = size;
+            productIds = new long[size];
+            policy = new InventoryPolicy[size];
+            annualDemand = new int[size];
+            storageCost = new double[size];
+            totalCost = new double[size];
+            lotPolicyId = new Long[size];
+            optimalLotSize = new int[size];
+            reorderPoint = new int[size];
+            lotSafetyStock = new int[size];
+            intervalPolicyId = new Long[size];
+            reviewIntervalDays = new int[size];
+            intervalSafetyStock = new int[size];
+            maxInventoryLevel = new int[size];
+            shippingCost = new double[size];
+            leadTime = new int[size];
+            unitCost = new double[size];
+        }
+
+        static Inputs of(List<RecalculationRow> rows) {
+            Inputs inputs = new Inputs(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                RecalculationRow row = rows.get(i);
+                inputs.productIds[i] = row.productId();
+                inputs.policy[i] = row.inventoryPolicy();
+                inputs.annualDemand[i] = value(row.annualDemand());
+                inputs.storageCost[i] = value(row.storageCost());
+                inputs.totalCost[i] = value(row.totalCost());
+                inputs.lotPolicyId[i] = row.lotPolicyId();
+                inputs.optimalLotSize[i] = value(row.optimalLotSize());
+                inputs.reorderPoint[i] = value(row.reorderPoint());
+                inputs.lotSafetyStock[i] = value(row.lotSafetyStock());
+                inputs.intervalPolicyId[i] = row.intervalPolicyId();
+                inputs.reviewIntervalDays[i] = value(row.reviewIntervalDays());
+                inputs.intervalSafetyStock[i] = value(row.intervalSafetyStock());
+                inputs.maxInventoryLevel[i] = value(row.maxInventoryLevel());
+                inputs.shippingCost[i] = value(row.shippingCost());
+                inputs.leadTime[i] = value(row.leadTime());
+                inputs.unitCost[i] = value(row.unitCost());
+            }
+            return inputs;
+        }
+    }
+
+    // Resultados; arrancan con los valores actuales, asi lo que no se recalcula queda igual
+    static final class Outputs {
+
+        private final int[] optimalLotSize;
+        private final int[] reorderPoint;
+        private final int[] maxInventoryLevel;
+        private final double[] totalCost;
+        private final boolean[] skipped;
+
+        private Outputs(Inputs inputs) {
+            optimalLotSize = inputs.optimalLotSize.clone();
+            reorderPoint = inputs.reorderPoint.clone();
+            maxInventoryLevel = inputs.maxInventoryLevel.clone();
+            totalCost = inputs.totalCost.clone();
+            skipped = new boolean[inputs.size];
+        }
+    }
+}
@@ -1,221 +1,69 @@
 package com.omega.retail.service;
 
-import com.omega.retail.entity.FixedIntervalPolicy;
-import com.omega.retail.entity.FixedLotPolicy;
-import com.omega.retail.entity.Product;
-import com.omega.retail.entity.ProductProvider;
-import com.omega.retail.enums.InventoryPolicy;
-import com.omega.retail.repository.ProductRepository;
-import org.springframework.stereotype.Service;
+// Formulas de los campos derivados de un producto. Las evalua BulkRecalculationService, para todo el catalogo o
+// para los productos que drena RecalculationQueue. Respetan la aritmetica original (float y division entera)
+final class CalculationService {
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.List;
-
-@Service
-public class CalculationService {
-
-    private final ProductRepository productRepository;
-
-    public CalculationService(ProductRepository productRepository) {
-        this.productRepository = productRepository;
+    private CalculationService() {
     }
 
-    public void updateCalculatedFields(Product product) {
-        List<ProductProvider> providers = product.getProductProviders();
-        if (providers == null || providers.isEmpty()) {
-            return;
-        }
-
-        ProductProvider defaultProvider = providers.stream()
-                .filter(ProductProvider::getIsDefault)
-                .findFirst()
-                .orElse(null);
-
-        Integer demand = product.getAnnualDemand();
-        Double storageCost = product.getStorageCost();
-
-        // === LOTE ÓPTIMO ===
-        if (validateOptimalLotSizeFields(product)) {
-            // Lote óptimo = sqrt((2 * D * S) / H)
-            // donde:
-            // D = demanda anual
-            // S = costo de envío
-            // H = costo de almacenamiento
-
-            Double shippingCost = defaultProvider.getShippingCost();
-
-            Float optimalLotSize = (float) Math.sqrt((2*demand*shippingCost)/storageCost);
-
-            product.getFixedLotPolicy().setOptimalLotSize(Math.round(optimalLotSize));
-        }
-
-        // === PUNTO DE PEDIDO ===
-        if (validateReorderPointFields(product)) {
-            // Punto de pedido = d * L + SS
-            // donde:
-            // d = demanda diaria = D / 365
-            // L = lead time
-            // SS = stock de seguridad
-
-            Integer leadTime = defaultProvider.getLeadTime();
-            Float dailyDemand = demand/365f;
-            Integer safetyStock = product.getFixedLotPolicy().getSafetyStock();
-
-            Float reorderPoint = (dailyDemand * leadTime) + safetyStock;
-
-            product.getFixedLotPolicy().setReorderPoint(Math.round(reorderPoint));
-        }
-
-        // === INVENTARIO MÁXIMO ===
-        if (validateMaxInventoryLevelFields(product)) {
-            // Inventario máximo = d * (T + L) + SS
-            // donde:
-            // d = demanda diaria = D / 365
-            // T = intervalo de revisión (en días)
-            // L = lead time
-            // SS = stock de seguridad
-
-            Integer leadTime = defaultProvider.getLeadTime();
-            Float dailyDemand = demand/365f;
-            Integer safetyStock = product.getFixedIntervalPolicy().getSafetyStock();
-            Integer reviewIntervalDays = product.getFixedIntervalPolicy().getReviewIntervalDays();
-
-            Float maxInventoryLevel = dailyDemand * (leadTime + reviewIntervalDays) + safetyStock;
-
-            product.getFixedIntervalPolicy().setMaxInventoryLevel(Math.round(maxInventoryLevel));
-        }
-
-        // === COSTO TOTAL ===
-        if (validateTotalCostFields(product)) {
-            if (product.getInventoryPolicy() == InventoryPolicy.LOTE_FIJO) {
-                // Costo total = (D / Q) * S + (Q / 2) * H + D * C
-                // donde:
-                // D = demanda anual
-                // Q = tamaño de lote óptimo
-                // S = costo de envío
-                // H = costo de almacenamiento anual por unidad
-                // C = costo unitario
-
-                Double unitCost =  defaultProvider.getUnitCost();
-                Integer optimalLot = product.getFixedLotPolicy().getOptimalLotSize();
-                Double shippingCost = defaultProvider.getShippingCost();
-
-                Double totalCost = (demand/optimalLot)*shippingCost + (optimalLot/2)*storageCost + demand*unitCost;
-                BigDecimal roundedCost = new BigDecimal(totalCost)
-                        .setScale(2, RoundingMode.HALF_UP);
-
-                product.setTotalCost(roundedCost.doubleValue());
-            } else if (product.getInventoryPolicy() == InventoryPolicy.INTERVALO_FIJO) {
-                // Costo total = D * C + (D / Q) * S + ((Imax - d * L) / 2) * H
-                // donde:
-                // D = demanda anual
-                // Q = cantidad pedida por vez = d * T
-                // S = costo de envío
-                // Imax = inventario máximo
-                // d = demanda diaria = D / 365
-                // L = lead time
-                // H = costo de almacenamiento
-                // C = costo unitario
-
-                Double unitCost =  defaultProvider.getUnitCost();
-                Double shippingCost = defaultProvider.getShippingCost();
-                Float dailyDemand = demand/365f;
-                Integer leadTime = defaultProvider.getLeadTime();
-                Integer maxInventoryLevel = product.getFixedIntervalPolicy().getMaxInventoryLevel();
-                Integer reviewIntervalDays = product.getFixedIntervalPolicy().getReviewIntervalDays();
-
-                double totalCost = demand*unitCost + (demand/(dailyDemand*reviewIntervalDays))*shippingCost + ((maxInventoryLevel-dailyDemand*leadTime)/2)*storageCost;
-
-                BigDecimal roundedCost = new BigDecimal(totalCost)
-                        .setScale(2, RoundingMode.HALF_UP);
-
-                product.setTotalCost(roundedCost.doubleValue());
-
-                product.setTotalCost(totalCost);
-            }
-        }
-        productRepository.save(product);
+    // Lote óptimo = sqrt((2 * D * S) / H)
+    // donde:
+    // D = demanda anual
+    // S = costo de envío
+    // H = costo de almacenamiento
+    static int optimalLotSize(int demand, double shippingCost, double storageCost) {
+        float optimalLotSize = (float) Math.sqrt((2*demand*shippingCost)/storageCost);
+        return Math.round(optimalLotSize);
     }
 
-    public boolean validateTotalCostFields(Product product) {
-        if (product.getAnnualDemand() == null || product.getStorageCost() == null) {
-            return false;
-        }
-
-        ProductProvider defaultProvider = product.getProductProviders().stream()
-                .filter(ProductProvider::getIsDefault)
-                .findFirst()
-                .orElse(null);
-
-        if (defaultProvider == null ||
-                defaultProvider.getShippingCost() == null ||
-                defaultProvider.getUnitCost() == null) {
-            return false;
-        }
-
-        switch (product.getInventoryPolicy()) {
-            case LOTE_FIJO:
-                FixedLotPolicy lotPolicy = product.getFixedLotPolicy();
-                return lotPolicy != null && lotPolicy.getOptimalLotSize() != null;
-
-            case INTERVALO_FIJO:
-                FixedIntervalPolicy intervalPolicy = product.getFixedIntervalPolicy();
-                return intervalPolicy != null &&
-                        intervalPolicy.getReviewIntervalDays() != null &&
-                        intervalPolicy.getMaxInventoryLevel() != null &&
-                        defaultProvider.getLeadTime() != null;
-
-
-            default:
-                return false;
-        }
+    // Punto de pedido = d * L + SS
+    // donde:
+    // d = demanda diaria = D / 365
+    // L = lead time
+    // SS = stock de seguridad
+    static int reorderPoint(int demand, int leadTime, int safetyStock) {
+        float dailyDemand = demand/365f;
+        float reorderPoint = (dailyDemand * leadTime) + safetyStock;
+        return Math.round(reorderPoint);
     }
-    public boolean validateOptimalLotSizeFields(Product product) {
-        if (product.getAnnualDemand() == null ||
-                product.getStorageCost() == null ||
-                product.getInventoryPolicy() != InventoryPolicy.LOTE_FIJO) {
-            return false;
-        }
-
-        ProductProvider defaultProvider = product.getProductProviders().stream()
-                .filter(ProductProvider::getIsDefault)
-                .findFirst()
-                .orElse(null);
 
-        return defaultProvider != null && defaultProvider.getShippingCost() != null;
+    // Inventario máximo = d * (T + L) + SS
+    // donde:
+    // d = demanda diaria = D / 365
+    // T = intervalo de revisión (en días)
+    // L = lead time
+    // SS = stock de seguridad
+    static int maxInventoryLevel(int demand, int leadTime, int reviewIntervalDays, int safetyStock) {
+        float dailyDemand = demand/365f;
+        float maxInventoryLevel = dailyDemand * (leadTime + reviewIntervalDays) + safetyStock;
+        return Math.round(maxInventoryLevel);
     }
-    public boolean validateReorderPointFields(Product product) {
-        if (product.getAnnualDemand() == null ||
-                product.getFixedLotPolicy() == null ||
-                product.getFixedLotPolicy().getSafetyStock() == null ||
-                product.getInventoryPolicy() != InventoryPolicy.LOTE_FIJO) {
-            return false;
-        }
 
-        ProductProvider defaultProvider = product.getProductProviders().stream()
-                .filter(ProductProvider::getIsDefault)
-                .findFirst()
-                .orElse(null);
-
-        return defaultProvider != null && defaultProvider.getLeadTime() != null;
+    // Costo total (lote fijo) = (D / Q) * S + (Q / 2) * H + D * C
+    // donde:
+    // D = demanda anual
+    // Q = tamaño de lote óptimo
+    // S = costo de envío
+    // H = costo de almacenamiento anual por unidad
+    // C = costo unitario
+    static double fixedLotTotalCost(int demand, int optimalLot, double shippingCost, double storageCost, double unitCost) {
+        return (demand/optimalLot)*shippingCost + (optimalLot/2)*storageCost + demand*unitCost;
     }
 
-    public boolean validateMaxInventoryLevelFields(Product product) {
-        if (product.getAnnualDemand() == null ||
-                product.getFixedIntervalPolicy() == null ||
-                product.getFixedIntervalPolicy().getReviewIntervalDays() == null ||
-                product.getFixedIntervalPolicy().getSafetyStock() == null ||
-                product.getInventoryPolicy() != InventoryPolicy.INTERVALO_FIJO ) {
-            return false;
-        }
-
-        ProductProvider defaultProvider = product.getProductProviders().stream()
-                .filter(ProductProvider::getIsDefault)
-                .findFirst()
-                .orElse(null);
-
-        return defaultProvider != null && defaultProvider.getLeadTime() != null;
+    // Costo total (intervalo fijo) = D * C + (D / Q) * S + ((Imax - d * L) / 2) * H
+    // donde:
+    // D = demanda anual
+    // Q = cantidad pedida por vez = d * T
+    // S = costo de envío
+    // Imax = inventario máximo
+    // d = demanda diaria = D / 365
+    // L = lead time
+    // H = costo de almacenamiento
+    // C = costo unitario
+    static double fixedIntervalTotalCost(int demand, int maxInventoryLevel, int reviewIntervalDays, int leadTime,
+                                         double shippingCost, double storageCost, double unitCost) {
+        float dailyDemand = demand/365f;
+        return demand*unitCost + (demand/(dailyDemand*reviewIntervalDays))*shippingCost + ((maxInventoryLevel-dailyDemand*leadTime)/2)*storageCost;
     }
-
 }
@@ -0,0 +1,529 @@
+package com.omega.retail.service;
+
+import com.omega.retail.enums.InventoryPolicy;
+import com.omega.retail.enums.ProductProviderState;
+import com.omega.retail.enums.ProductState;
+import com.omega.retail.enums.ProviderState;
+import com.omega.retail.enums.PurchaseOrderState;
+import com.omega.retail.repository.PgCopyWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Dataset sintetico para pruebas de rendimiento (perfil "dataset"): proveedores, productos con sus politicas,
+// vinculos producto-proveedor, ventas con sus lineas y ordenes de compra en todos los estados, cargados con COPY.
+// Es determinista: cada fila sale de un generador sembrado con (seed, tabla, id), asi la misma semilla y la
+// misma escala dan exactamente los mismos datos en cualquier maquina. Respeta las reglas de la aplicacion:
+// el proveedor predeterminado del producto i es el (i - 1) % proveedores + 1, cada producto esta en a lo sumo
+// una orden activa y cada proveedor tiene a lo sumo una orden PENDIENTE.
+// mvn spring-boot:run -Dspring-boot.run.profiles=dataset -Dspring-boot.run.arguments=--retail.dataset.scale=0.1
+@Slf4j
+@Service
+@Profile("dataset")
+public class DatasetGenerator implements ApplicationRunner {
+
+    private static final long PRODUCT = 1;
+    private static final long PRODUCT_PROVIDER = 2;
+    private static final long SALE = 3;
+    private static final long PURCHASE_ORDER = 4;
+    private static final long PROVIDER_ORDERS = 5;
+
+    private static final String[] TABLES = {"purchase_order_detail", "purchase_order", "sale_detail", "sale",
+            "product_provider", "product", "fixed_lot_policy", "fixed_interval_policy", "provider", "outbox_event",
+            "stock_movement", "stock_snapshot"};
+
+    private final DataSource dataSource;
+    private final BulkRecalculationService bulkRecalculationService;
+    private final ConfigurableApplicationContext context;
+    private final long seed;
+    private final int providers;
+    private final int products;
+    private final int providersPerProduct;
+    private final int sales;
+    private final int linesPerSale;
+    private final int purchaseOrders;
+    private final int linesPerOrder;
+    private final int historyDays;
+    private final boolean truncate;
+    private final boolean recalculate;
+    private final boolean exit;
+    private final LocalDate today = LocalDate.now();
+
+    public DatasetGenerator(DataSource dataSource, BulkRecalculationService bulkRecalculationService,
+                            ConfigurableApplicationContext context,
+                            @Value("${retail.dataset.seed:42}") long seed,
+                            @Value("${retail.dataset.scale:1.0}") double scale,
+                            @Value("${retail.dataset.providers:5000}") int providers,
+                            @Value("${retail.dataset.products:1000000}") int products,
+                            @Value("${retail.dataset.providers-per-product:3}") int providersPerProduct,
+                            @Value("${retail.dataset.sales:5000000}") int sales,
+                            @Value("${retail.dataset.lines-per-sale:3}") int linesPerSale,
+                            @Value("${retail.dataset.purchase-orders:200000}") int purchaseOrders,
+                            @Value("${retail.dataset.lines-per-order:5}") int linesPerOrder,
+                            @Value("${retail.dataset.history-days:365}") int historyDays,
+                            @Value("${retail.dataset.truncate:false}") boolean truncate,
+                            @Value("${retail.dataset.recalculate:true}") boolean recalculate,
+                            @Value("${retail.dataset.exit:true}") boolean exit) {
+        this.dataSource = dataSource;
+        this.bulkRecalculationService = bulkRecalculationService;
+        this.context = context;
+        this.seed = seed;
+        // La escala multiplica todos los volumenes; los promedios por fila no cambian
+        this.providers = scaled(providers, scale);
+        this.products = scaled(products, scale);
+        this.providersPerProduct = Math.max(1, providersPerProduct);
+        this.sales = scaled(sales, scale);
+        this.linesPerSale = Math.max(1, linesPerSale);
+        this.purchaseOrders = scaled(purchaseOrders, scale);
+        this.linesPerOrder = Math.max(1, linesPerOrder);
+        this.historyDays = Math.max(1, historyDays);
+        this.truncate = truncate;
+        this.recalculate = recalculate;
+        this.exit = exit;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws SQLException {
+        generate();
+        if (exit) {
+            System.exit(SpringApplication.exit(context, () -> 0));
+        }
+    }
+
+    public void generate() throws SQLException {
+        log.info("Generando dataset (seed {}): {} proveedores, {} productos, {} ventas, {} ordenes de compra",
+                seed, providers, products, sales, purchaseOrders);
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                prepare(connection);
+                List<String> restore = dropForeignKeysAndIndexes(connection);
+                timed("provider", () -> writeProviders(connection));
+                timed("fixed_lot_policy / fixed_interval_policy", () -> writePolicies(connection));
+                timed("product", () -> writeProducts(connection));
+                timed("product_provider", () -> writeProductProviders(connection));
+                timed("sale", () -> writeSales(connection));
+                timed("sale_detail", () -> writeSaleDetails(connection));
+                timed("purchase_order", () -> writePurchaseOrders(connection, false));
+                timed("purchase_order_detail", () -> writePurchaseOrders(connection, true));
+                timed("claves foraneas e indices", () -> execute(connection, restore));
+                // Las secuencias pooled quedan por encima de los ids cargados (el mismo script del arranque)
+                ScriptUtils.executeSqlScript(connection, new ClassPathResource("data.sql"));
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+            connection.setAutoCommit(true);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("ANALYZE");
+            }
+        }
+        log.info("Dataset cargado en {} s", TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+
+        if (recalculate) {
+            bulkRecalculationService.recalculateAll();
+        }
+    }
+
+    // Solo sobre una base vacia, salvo que se pida vaciarla
+    private void prepare(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            if (truncate) {
+                statement.execute("TRUNCATE " + String.join(", ", TABLES) + " CASCADE");
+                return;
+            }
+            for (String table : TABLES) {
+                try (ResultSet rs = statement.executeQuery("SELECT EXISTS (SELECT 1 FROM " + table + ")")) {
+                    rs.next();
+                    if (rs.getBoolean(1)) {
+                        throw new IllegalStateException("La tabla " + table
+                                + " ya tiene datos; usar --retail.dataset.truncate=true para reemplazarlos");
+                    }
+                }
+            }
+        }
+    }
+
+    // Con las claves foraneas y los indices secundarios activos, cada fila dispara un trigger por FK y un
+    // insert por indice. Se sacan durante la carga y se vuelven a crear al final, en la misma transaccion:
+    // validar una FK sobre la tabla completa es un solo join. Devuelve las sentencias que los recrean
+    private List<String> dropForeignKeysAndIndexes(Connection connection) throws SQLException {
+        List<String> drop = new ArrayList<>();
+        List<String> restore = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement("""
+                SELECT format('ALTER TABLE %I DROP CONSTRAINT %I', c.conrelid::regclass::text, c.conname),
+                       format('ALTER TABLE %I ADD CONSTRAINT %I %s', c.conrelid::regclass::text, c.conname,
+                              pg_get_constraintdef(c.oid))
+                FROM pg_constraint c
+                WHERE c.contype = 'f' AND c.conrelid::regclass::text = ANY (?)
+                UNION ALL
+                SELECT format('DROP INDEX %I', i.indexname), i.indexdef
+                FROM pg_indexes i
+                WHERE i.schemaname = current_schema() AND i.tablename = ANY (?)
+                  AND NOT EXISTS (SELECT 1 FROM pg_constraint c WHERE c.conname = i.indexname)
+                """)) {
+            statement.setArray(1, connection.createArrayOf("text", TABLES));
+            statement.setArray(2, connection.createArrayOf("text", TABLES));
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    drop.add(rs.getString(1));
+                    restore.add(rs.getString(2));
+                }
+            }
+        }
+        execute(connection, drop);
+        return restore;
+    }
+
+    private static void execute(Connection connection, List<String> sqls) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : sqls) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    private void writeProviders(Connection connection) throws SQLException {
+        try (PgCopyWriter copy = new PgCopyWriter(connection, "provider", "id, name, email, phone, provider_state")) {
+            for (long id = 1; id <= providers; id++) {
+                copy.col(id)
+                        .col("Proveedor " + id)
+                        .col("proveedor" + id + "@retail.test")
+                        .col(String.format("11%08d", id))
+                        .col(ProviderState.ALTA.name())
+                        .endRow();
+            }
+        }
+    }
+
+    // La politica de cada producto comparte el id del producto
+    private void writePolicies(Connection connection) throws SQLException {
+        try (PgCopyWriter copy = new PgCopyWriter(connection, "fixed_lot_policy", "id, safety_stock")) {
+            for (long id = 1; id <= products; id++) {
+                ProductRow product = product(id);
+                if (product.policy == InventoryPolicy.LOTE_FIJO) {
+                    copy.col(id).col(product.safetyStock).endRow();
+                }
+            }
+        }
+        try (PgCopyWriter copy = new PgCopyWriter(connection, "fixed_interval_policy",
+                "id, safety_stock, review_interval_days, last_review_date, next_review_date")) {
+            for (long id = 1; id <= products; id++) {
+                ProductRow product = product(id);
+                if (product.policy == InventoryPolicy.INTERVALO_FIJO) {
+                    LocalDate lastReview = today.minusDays(product.daysSinceReview);
+                    copy.col(id)
+                            .col(product.safetyStock)
+                            .col(product.reviewIntervalDays)
+                            .col(lastReview)
+                            .col(lastReview.plusDays(product.reviewIntervalDays))
+                            .endRow();
+                }
+            }
+        }
+    }
+
+    private void writeProducts(Connection connection) throws SQLException {
+        try (PgCopyWriter copy = new PgCopyWriter(connection, "product", "id, code, description, current_stock, "
+                + "annual_demand, storage_cost, product_state, inventory_policy, fixed_lot_policy_id, fixed_interval_policy_id")) {
+            for (long id = 1; id <= products; id++) {
+                ProductRow product = product(id);
+                copy.col(id)
+                        .col(String.format("SKU-%07d", id))
+                        .col("Producto " + id)
+                        .col(product.currentStock)
+                        .col(product.annualDemand)
+                        .col(product.storageCost)
+                        .col(ProductState.ALTA.name())
+                        .col(product.policy.name());
+                if (product.policy == InventoryPolicy.LOTE_FIJO) {
+                    copy.col(id).nul();
+                } else {
+                    copy.nul().col(id);
+                }
+                copy.endRow();
+            }
+        }
+    }
+
+    // El primer vinculo es el predeterminado; los demas van a proveedores distintos elegidos al azar
+    private void writeProductProviders(Connection connection) throws SQLException {
+        try (PgCopyWriter copy = new PgCopyWriter(connection, "product_provider", "id, product_id, provider_id, "
+                + "unit_cost, shipping_cost, lead_time, is_default, product_provider_state")) {
+            long linkId = 1;
+            long[] chosen = new long[2 * providersPerProduct];
+            for (long productId = 1; productId <= products; productId++) {
+                SplittableRandom random = random(PRODUCT_PROVIDER, productId);
+                int links = Math.min(providers, 1 + random.nextInt(2 * providersPerProduct - 1));
+                chosen[0] = defaultProvider(productId);
+                int count = 1;
+                while (count < links) {
+                    long providerId = 1 + random.nextInt(providers);
+                    if (!contains(chosen, count, providerId)) {
+                        chosen[count++] = providerId;
+                    }
+                }
+                for (int i = 0; i < count; i++) {
+                    boolean isDefault = i == 0;
+                    copy.col(linkId++)
+                            .col(productId)
+                            .col(chosen[i])
+                            .col(isDefault ? unitCost(productId) : round(unitCost(productId) * (0.9 + random.nextDouble() * 0.3)))
+                            .col(round(5 + random.nextDouble() * 95))
+                            .col(1 + random.nextInt(30))
+                            .col(isDefault)
+                            .col(ProductProviderState.ALTA.name())
+                            .endRow();
+                }
+            }
+        }
+    }
+
+    // Las ventas se reparten en forma pareja en el historial, con el id en el mismo orden que la fecha
+    private void writeSales(Connection connection) throws SQLException {
+        LocalDateTime from = today.minusDays(historyDays).atStartOfDay();
+        long historySeconds = TimeUnit.DAYS.toSeconds(historyDays);
+        long[] productIds = new long[2 * linesPerSale];
+        int[] quantities = new int[2 * linesPerSale];
+        try (PgCopyWriter copy = new PgCopyWriter(connection, "sale", "id, date, total")) {
+            for (long saleId = 1; saleId <= sales; saleId++) {
+                int lines = saleLines(saleId, productIds, quantities);
+                double total = 0;
+                for (int i = 0; i < lines; i++) {
+                    total += round(quantities[i] * salePrice(productIds[i]));
+                }
+                copy.col(saleId)
+                        .col(from.plusSeconds(historySeconds * (saleId - 1) / sales))
+                        .col(round(total))
+                        .endRow();
+            }
+        }
+    }
+
+    private void writeSaleDetails(Connection connection) throws SQLException {
+        long[] productIds = new long[2 * linesPerSale];
+        int[] quantities = new int[2 * linesPerSale];
+        try (PgCopyWriter copy = new PgCopyWriter(connection, "sale_detail",
+                "id, sale_id, product_id, quantity, unit_price, subtotal")) {
+            long detailId = 1;
+            for (long saleId = 1; saleId <= sales; saleId++) {
+                int lines = saleLines(saleId, productIds, quantities);
+                for (int i = 0; i < lines; i++) {
+                    double price = salePrice(productIds[i]);
+                    copy.col(detailId++)
+                            .col(saleId)
+                            .col(productIds[i])
+                            .col(quantities[i])
+                            .col(price)
+                            .col(round(quantities[i] * price))
+                            .endRow();
+                }
+            }
+        }
+    }
+
+    // Lineas de una venta, sin productos repetidos. Los productos de id bajo venden mucho mas (cola larga)
+    private int saleLines(long saleId, long[] productIds, int[] quantities) {
+        SplittableRandom random = random(SALE, saleId);
+        int lines = 1 + random.nextInt(2 * linesPerSale - 1);
+        int count = 0;
+        for (int attempt = 0; attempt < lines; attempt++) {
+            long productId = 1 + (long) (products * Math.pow(random.nextDouble(), 2.5));
+            int quantity = 1 + random.nextInt(5);
+            if (!contains(productIds, count, productId)) {
+                productIds[count] = productId;
+                quantities[count++] = quantity;
+            }
+        }
+        return count;
+    }
+
+    // Las ordenes se generan proveedor por proveedor, de la mas vieja a la mas nueva, en dos pasadas con los
+    // mismos generadores: la primera escribe las cabeceras (con el total) y la segunda las lineas
+    private void writePurchaseOrders(Connection connection, boolean details) throws SQLException {
+        String table = details ? "purchase_order_detail" : "purchase_order";
+        String columns = details
+                ? "id, purchase_order_id, product_id, quantity, price, subtotal"
+                : "id, provider_id, purchase_order_state, created_at, sent_at, received_at, total";
+        long[] productIds = new long[2 * linesPerOrder];
+        int[] quantities = new int[2 * linesPerOrder];
+        try (PgCopyWriter copy = new PgCopyWriter(connection, table, columns)) {
+            long orderId = 1;
+            long detailId = 1;
+            for (long providerId = 1; providerId <= providers; providerId++) {
+                int orders = purchaseOrders / providers + (providerId <= purchaseOrders % providers ? 1 : 0);
+                // Productos cuyo predeterminado es este proveedor: providerId, providerId + P, ...
+                int ownProducts = providerId <= products ? (int) ((products - providerId) / providers + 1) : 0;
+                if (ownProducts == 0) {
+                    continue;
+                }
+                SplittableRandom providerRandom = random(PROVIDER_ORDERS, providerId);
+                int activeCursor = 0;
+                for (int k = 0; k < orders; k++, orderId++) {
+                    SplittableRandom random = random(PURCHASE_ORDER, orderId);
+                    LocalDate createdAt = today.minusDays(historyDays - (long) historyDays * (k + 1) / (orders + 1));
+                    PurchaseOrderState state = orderState(providerRandom, k == orders - 1, createdAt);
+                    int lines = Math.min(ownProducts, 1 + random.nextInt(2 * linesPerOrder - 1));
+                    boolean active = state == PurchaseOrderState.PENDIENTE || state == PurchaseOrderState.ENVIADA;
+                    if (active && activeCursor + lines > ownProducts) {
+                        // No quedan productos sin orden activa para este proveedor
+                        state = PurchaseOrderState.FINALIZADA;
+                        active = false;
+                    }
+
+                    int count = 0;
+                    for (int i = 0; i < lines; i++) {
+                        long index = active ? activeCursor++ : random.nextInt(ownProducts);
+                        long productId = providerId + index * providers;
+                        int quantity = 10 + random.nextInt(491);
+                        if (!contains(productIds, count, productId)) {
+                            productIds[count] = productId;
+                            quantities[count++] = quantity;
+                        }
+                    }
+
+                    if (details) {
+                        for (int i = 0; i < count; i++) {
+                            double price = unitCost(productIds[i]);
+                            copy.col(detailId++)
+                                    .col(orderId)
+                                    .col(productIds[i])
+                                    .col(quantities[i])
+                                    .col(price)
+                                    .col(quantities[i] * price)
+                                    .endRow();
+                        }
+                        continue;
+                    }
+
+                    double total = 0;
+                    for (int i = 0; i < count; i++) {
+                        total += quantities[i] * unitCost(productIds[i]);
+                    }
+                    LocalDate sentAt = state == PurchaseOrderState.ENVIADA || state == PurchaseOrderState.FINALIZADA
+                            ? createdAt.plusDays(1 + random.nextInt(3)) : null;
+                    LocalDate receivedAt = state == PurchaseOrderState.FINALIZADA
+                            ? sentAt.plusDays(1 + random.nextInt(15)) : null;
+                    copy.col(orderId)
+                            .col(providerId)
+                            .col(state.ordinal())
+                            .col(createdAt)
+                            .col(sentAt)
+                            .col(receivedAt)
+                            .col(total)
+                            .endRow();
+                }
+            }
+        }
+    }
+
+    // Solo la ultima orden de cada proveedor puede quedar PENDIENTE; las de las ultimas semanas pueden
+    // seguir ENVIADAS; el resto se finalizo o se cancelo
+    private PurchaseOrderState orderState(SplittableRandom random, boolean last, LocalDate createdAt) {
+        double roll = random.nextDouble();
+        if (last && roll < 0.4) {
+            return PurchaseOrderState.PENDIENTE;
+        }
+        if (createdAt.isAfter(today.minusDays(21)) && roll < 0.7) {
+            return PurchaseOrderState.ENVIADA;
+        }
+        return roll < 0.85 ? PurchaseOrderState.FINALIZADA : PurchaseOrderState.CANCELADA;
+    }
+
+    private ProductRow product(long id) {
+        SplittableRandom random = random(PRODUCT, id);
+        ProductRow row = new ProductRow();
+        row.policy = random.nextBoolean() ? InventoryPolicy.LOTE_FIJO : InventoryPolicy.INTERVALO_FIJO;
+        row.currentStock = random.nextInt(500);
+        row.annualDemand = 100 + (int) (20_000 * Math.pow(random.nextDouble(), 2));
+        row.storageCost = round(0.5 + random.nextDouble() * 19.5);
+        row.safetyStock = random.nextInt(50);
+        row.reviewIntervalDays = 7 + random.nextInt(54);
+        row.daysSinceReview = random.nextInt(row.reviewIntervalDays);
+        return row;
+    }
+
+    private long defaultProvider(long productId) {
+        return (productId - 1) % providers + 1;
+    }
+
+    // Costo unitario del proveedor predeterminado: se usa en product_provider y en las lineas de las ordenes
+    private double unitCost(long productId) {
+        return round(1 + (mix(seed ^ mix(productId)) >>> 1) % 20_000 / 100.0);
+    }
+
+    private double salePrice(long productId) {
+        return round(unitCost(productId) * 1.4);
+    }
+
+    private SplittableRandom random(long table, long id) {
+        return new SplittableRandom(mix(seed ^ mix(table * 0x9E3779B97F4A7C15L + id)));
+    }
+
+    // Finalizador de SplitMix64: dispersa ids consecutivos en semillas independientes
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static boolean contains(long[] values, int count, long value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private static int scaled(int value, double scale) {
+        return (int) Math.max(1, Math.round(value * scale));
+    }
+
+    private void timed(String table, SqlStep step) throws SQLException {
+        long start = System.nanoTime();
+        step.run();
+        log.info("{}: {} ms", table, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @FunctionalInterface
+    private interface SqlStep {
+        void run() throws SQLException;
+    }
+
+    private static final class ProductRow {
+        private InventoryPolicy policy;
+        private int currentStock;
+        private int annualDemand;
+        private double storageCost;
+        private int safetyStock;
+        private int reviewIntervalDays;
+        private int daysSinceReview;
+    }
+}
@@ -0,0 +1,184 @@
+package com.omega.retail.service;
+
+import com.omega.retail.dto.response.FlightRecordingResponse;
+import com.omega.retail.event.jfr.CalculationBatchEvent;
+import com.omega.retail.event.jfr.ReplenishmentEvaluationEvent;
+import com.omega.retail.event.jfr.SaleProcessingEvent;
+import com.omega.retail.event.jfr.ScheduledOrderGenerationEvent;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Grabacion de JDK Flight Recorder a pedido, sin reiniciar el proceso. Hay a lo sumo una por instancia: se inicia
+// con una configuracion de JFR (default ~1% de overhead, profile algo mas) y tope de duracion y tamaño, y al
+// detenerla se devuelve el archivo .jfr. Ademas de los eventos de la JVM graba los eventos de negocio de event.jfr
+@Slf4j
+@Service
+public class FlightRecordingService {
+
+    private static final String RECORDING_NAME = "retail-on-demand";
+
+    private final Path directory;
+    private final long maxDurationSeconds;
+    private final long maxSizeMb;
+    // ReentrantLock y no synchronized: los requests pueden correr en virtual threads
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private Recording recording;
+    private String settings;
+    private Path file;
+
+    public FlightRecordingService(@Value("${retail.jfr.directory:${java.io.tmpdir}}") String directory,
+                                  @Value("${retail.jfr.max-duration-seconds:900}") long maxDurationSeconds,
+                                  @Value("${retail.jfr.max-size-mb:512}") long maxSizeMb) {
+        this.directory = Path.of(directory);
+        this.maxDurationSeconds = maxDurationSeconds;
+        this.maxSizeMb = maxSizeMb;
+    }
+
+    // durationSeconds y sizeMb se recortan a los maximos configurados
+    public FlightRecordingResponse start(String settingsName, Long durationSeconds, Long sizeMb) {
+        lock.lock();
+        try {
+            if (recording != null) {
+                throw new RuntimeException("Ya hay una grabacion JFR en curso o sin descargar");
+            }
+            Configuration configuration = configuration(settingsName);
+
+            Recording started = new Recording(configuration);
+            started.setName(RECORDING_NAME);
+            started.setToDisk(true);
+            started.setDuration(Duration.ofSeconds(cap(durationSeconds, maxDurationSeconds)));
+            started.setMaxSize(cap(sizeMb, maxSizeMb) * 1024 * 1024);
+            started.enable(SaleProcessingEvent.class);
+            started.enable(ReplenishmentEvaluationEvent.class);
+            started.enable(ScheduledOrderGenerationEvent.class);
+            started.enable(CalculationBatchEvent.class);
+            // Los campos se asignan recien con la grabacion iniciada: si algo falla no queda estado ni archivo colgado
+            Path destination = null;
+            try {
+                Files.createDirectories(directory);
+                destination = Files.createTempFile(directory, RECORDING_NAME + "-", ".jfr");
+                started.setDestination(destination);
+                started.start();
+            } catch (IOException e) {
+                discard(started, destination);
+                throw new UncheckedIOException(e);
+            } catch (RuntimeException e) {
+                discard(started, destination);
+                throw e;
+            }
+
+            recording = started;
+            settings = settingsName;
+            file = destination;
+            log.info("Grabacion JFR iniciada ({}, hasta {} s) en {}", settingsName, started.getDuration().toSeconds(), file);
+            return status();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public FlightRecordingResponse status() {
+        lock.lock();
+        try {
+            if (recording == null) {
+                return FlightRecordingResponse.builder().state("NONE").build();
+            }
+            return FlightRecordingResponse.builder()
+                    .state(recording.getState().name())
+                    .settings(settings)
+                    .startedAt(recording.getStartTime())
+                    .maxDurationSeconds(recording.getDuration().toSeconds())
+                    .maxSizeBytes(recording.getMaxSize())
+                    .sizeBytes(recording.getSize())
+                    .build();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Detiene la grabacion (si no se detuvo sola) y devuelve el archivo; quien lo recibe lo borra al terminar
+    public Path stop() {
+        lock.lock();
+        try {
+            if (recording == null) {
+                throw new RuntimeException("No hay una grabacion JFR en curso");
+            }
+            if (recording.getState() == RecordingState.RUNNING) {
+                recording.stop();
+            }
+            recording.close();
+            Path recorded = file;
+            recording = null;
+            settings = null;
+            file = null;
+            log.info("Grabacion JFR detenida: {} ({} bytes)", recorded, sizeOf(recorded));
+            return recorded;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lock.lock();
+        try {
+            if (recording != null) {
+                recording.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Solo las configuraciones que trae la JVM (default, profile): no se leen archivos .jfc del filesystem
+    private static Configuration configuration(String name) {
+        boolean predefined = Configuration.getConfigurations().stream()
+                .anyMatch(configuration -> configuration.getName().equals(name));
+        if (!predefined) {
+            throw new RuntimeException("Configuracion JFR invalida: " + name);
+        }
+        try {
+            return Configuration.getConfiguration(name);
+        } catch (IOException | ParseException e) {
+            throw new RuntimeException("Configuracion JFR invalida: " + name);
+        }
+    }
+
+    private static void discard(Recording recording, Path path) {
+        recording.close();
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("No se pudo borrar {}", path, e);
+        }
+    }
+
+    private static long cap(Long requested, long max) {
+        return requested == null || requested <= 0 ? max : Math.min(requested, max);
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,583 @@
+package com.omega.retail.service;
+
+import com.omega.retail.dto.response.InventorySnapshotCheckResponse;
+import com.omega.retail.dto.response.InventorySnapshotMismatchResponse;
+import com.omega.retail.enums.InventoryPolicy;
+import com.omega.retail.enums.ProductState;
+import com.omega.retail.repository.InventorySnapshotRepository;
+import com.omega.retail.repository.projection.InventoryRow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+// Copia en memoria de lo que miran los chequeos de stock de seguridad y punto de pedido, en arreglos
+// primitivos paralelos ordenados por id de producto. Se carga al arrancar; los descuentos y reposiciones
+// de stock se aplican como deltas al confirmarse la transaccion y los cambios de productos, politicas u
+// ordenes releen solo las filas afectadas. La reconciliacion periodica corrige cualquier desvio.
+// Es una copia por instancia: lo que escriben otros nodos se ve recien en la proxima reconciliacion
+// (retail.inventory.snapshot.reconcile-interval-ms), asi que solo sirve para listados que toleran ese atraso
+@Slf4j
+@Service
+public class InventorySnapshot {
+
+    // Valor de los campos nulos: como en SQL, ninguna comparacion contra un nulo es verdadera
+    private static final int NONE = Integer.MIN_VALUE;
+
+    private static final byte NO_POLICY = 0;
+    private static final byte LOT_POLICY = 1;
+    private static final byte INTERVAL_POLICY = 2;
+
+    // Relecturas de los productos que cambiaron durante una reconciliacion antes de dejarlos para la proxima
+    private static final int RECONCILE_REREADS = 3;
+
+    private final InventorySnapshotRepository repository;
+    private final TransactionTemplate refreshTransaction;
+    private final Counter drift;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock reconcileLock = new ReentrantLock();
+
+    private Columns columns = new Columns(0);
+    private volatile boolean loaded;
+    // Productos que cambiaron mientras una reconciliacion leia la base (null = no hay reconciliacion en curso).
+    // Su fila en la lectura completa puede ser anterior al cambio, asi que se releen despues de reemplazar columns
+    private Set<Long> changedDuringReconcile;
+
+    public InventorySnapshot(InventorySnapshotRepository repository,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry) {
+        this.repository = repository;
+        // Los cambios se releen despues del commit: la transaccion original ya no sirve para consultar
+        this.refreshTransaction = new TransactionTemplate(transactionManager);
+        this.refreshTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.refreshTransaction.setReadOnly(true);
+
+        Gauge.builder("retail.inventory.snapshot.products", this, InventorySnapshot::size)
+                .description("Productos en el snapshot de inventario")
+                .register(meterRegistry);
+        // Se calculan al leer las metricas recorriendo los arreglos del snapshot, sin ir a la base
+        Gauge.builder("retail.inventory.below-safety-stock", this, InventorySnapshot::countBelowSafetyStock)
+                .description("Productos activos por debajo del stock de seguridad")
+                .register(meterRegistry);
+        Gauge.builder("retail.inventory.below-reorder-point", this, InventorySnapshot::countBelowReorderPoint)
+                .description("Productos activos de lote fijo por debajo del punto de pedido")
+                .register(meterRegistry);
+        this.drift = Counter.builder("retail.inventory.snapshot.drift")
+                .description("Productos que la reconciliacion encontro desactualizados")
+                .register(meterRegistry);
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return columns.size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reconcile();
+    }
+
+    // Recarga completa desde la base; cuenta como desvio cada producto que no coincidia. Los cambios que se
+    // confirman durante la lectura se registran y sus productos se releen al final, para no pisarlos
+    @Scheduled(fixedDelayString = "${retail.inventory.snapshot.reconcile-interval-ms:300000}",
+            initialDelayString = "${retail.inventory.snapshot.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        reconcileLock.lock();
+        try {
+            trackChanges();
+            List<InventoryRow> rows = repository.findAll();
+            Columns fresh = Columns.of(rows);
+
+            int outdated;
+            Set<Long> changed;
+            lock.writeLock().lock();
+            try {
+                outdated = loaded ? countOutdated(compare(rows)) : 0;
+                columns = fresh;
+                loaded = true;
+                changed = restartTracking();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            for (int attempt = 0; attempt < RECONCILE_REREADS && !changed.isEmpty(); attempt++) {
+                changed = reread(changed);
+            }
+            stopTracking();
+            if (!changed.isEmpty()) {
+                log.warn("Snapshot de inventario: {} productos siguieron cambiando durante la reconciliacion", changed.size());
+            }
+
+            if (outdated > 0) {
+                drift.increment(outdated);
+                log.warn("Snapshot de inventario reconciliado: {} productos estaban desactualizados", outdated);
+            }
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    // Relee los productos; devuelve los que volvieron a cambiar mientras tanto
+    private Set<Long> reread(Set<Long> productIds) {
+        List<InventoryRow> rows = refreshTransaction.execute(status ->
+                repository.findAffected(productIds, Set.of(), Set.of(), Set.of()));
+        lock.writeLock().lock();
+        try {
+            Set<Long> removed = new HashSet<>(productIds);
+            for (InventoryRow row : rows) {
+                removed.remove(row.productId());
+                columns.upsert(row);
+            }
+            removed.forEach(columns::remove);
+            return restartTracking();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void trackChanges() {
+        lock.writeLock().lock();
+        try {
+            changedDuringReconcile = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Llamar con el write lock tomado
+    private Set<Long> restartTracking() {
+        Set<Long> changed = changedDuringReconcile;
+        changedDuringReconcile = new HashSet<>();
+        return changed;
+    }
+
+    private void stopTracking() {
+        lock.writeLock().lock();
+        try {
+            changedDuringReconcile = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Compara el snapshot con la base sin modificarlo
+    public InventorySnapshotCheckResponse check() {
+        List<InventoryRow> rows = repository.findAll();
+        lock.readLock().lock();
+        try {
+            List<InventorySnapshotMismatchResponse> mismatches = compare(rows);
+            return InventorySnapshotCheckResponse.builder()
+                    .checkedAt(LocalDateTime.now())
+                    .snapshotProducts(columns.size)
+                    .databaseProducts(rows.size())
+                    .consistent(mismatches.isEmpty())
+                    .mismatches(mismatches)
+                    .build();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Equivale a ProductRepository.findBelowStockSecurity
+    public List<Long> findBelowSafetyStock() {
+        lock.readLock().lock();
+        try {
+            Columns c = columns;
+            List<Long> result = new ArrayList<>();
+            for (int i = 0; i < c.size; i++) {
+                if (c.active[i] && below(c.stock[i], c.safetyStock[i])) {
+                    result.add(c.ids[i]);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int countBelowSafetyStock() {
+        lock.readLock().lock();
+        try {
+            Columns c = columns;
+            int count = 0;
+            for (int i = 0; i < c.size; i++) {
+                if (c.active[i] && below(c.stock[i], c.safetyStock[i])) {
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int countBelowReorderPoint() {
+        lock.readLock().lock();
+        try {
+            Columns c = columns;
+            int count = 0;
+            for (int i = 0; i < c.size; i++) {
+                if (c.active[i] && c.policy[i] == LOT_POLICY && below(c.stock[i], c.reorderPoint[i])) {
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Equivale a ProductRepository.findBelowReorderPointWithoutPendingOrders (ordenes pendientes o enviadas)
+    public List<Long> findBelowReorderPointWithoutActiveOrder() {
+        lock.readLock().lock();
+        try {
+            Columns c = columns;
+            List<Long> result = new ArrayList<>();
+            for (int i = 0; i < c.size; i++) {
+                if (c.active[i] && !c.activeOrder[i] && below(c.stock[i], c.reorderPoint[i])) {
+                    result.add(c.ids[i]);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Deltas de current_stock (negativos para descuentos); se aplican al confirmarse la transaccion
+    public void stockChanged(Map<Long, Integer> deltasByProduct) {
+        PendingChanges changes = pendingChanges();
+        deltasByProduct.forEach((id, delta) -> changes.stockDeltas.merge(id, delta, Integer::sum));
+        applyIfNoTransaction(changes);
+    }
+
+    // Para escrituras masivas que no pasan por JPA: una recarga completa al confirmar en vez de fila por fila
+    public void reloadAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reconcile();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                reconcile();
+            }
+        });
+    }
+
+    public void productChanged(Long productId) {
+        markAffected(changes -> changes.productIds.add(productId));
+    }
+
+    public void lotPolicyChanged(Long policyId) {
+        markAffected(changes -> changes.lotPolicyIds.add(policyId));
+    }
+
+    public void intervalPolicyChanged(Long policyId) {
+        markAffected(changes -> changes.intervalPolicyIds.add(policyId));
+    }
+
+    public void purchaseOrderChanged(Long orderId) {
+        markAffected(changes -> changes.orderIds.add(orderId));
+    }
+
+    private void markAffected(Consumer<PendingChanges> mark) {
+        PendingChanges changes = pendingChanges();
+        mark.accept(changes);
+        applyIfNoTransaction(changes);
+    }
+
+    // Un PendingChanges por transaccion, registrado como su sincronizacion
+    private PendingChanges pendingChanges() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new PendingChanges(false);
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingChanges changes) {
+                return changes;
+            }
+        }
+        PendingChanges changes = new PendingChanges(true);
+        TransactionSynchronizationManager.registerSynchronization(changes);
+        return changes;
+    }
+
+    private void applyIfNoTransaction(PendingChanges changes) {
+        if (!changes.transactional) {
+            apply(changes);
+        }
+    }
+
+    private void apply(PendingChanges changes) {
+        if (!loaded) {
+            // La carga inicial todavia no termino: la lectura puede ser anterior al cambio, se relee al final
+            lock.writeLock().lock();
+            try {
+                if (changedDuringReconcile != null) {
+                    changedDuringReconcile.addAll(changes.stockDeltas.keySet());
+                    changedDuringReconcile.addAll(changes.productIds);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+        try {
+            List<InventoryRow> rows = changes.hasAffectedRows()
+                    ? refreshTransaction.execute(status -> repository.findAffected(
+                            changes.productIds, changes.lotPolicyIds, changes.intervalPolicyIds, changes.orderIds))
+                    : List.of();
+
+            lock.writeLock().lock();
+            try {
+                Columns c = columns;
+                changes.stockDeltas.forEach((id, delta) -> {
+                    int i = c.indexOf(id);
+                    if (i >= 0 && c.stock[i] != NONE) {
+                        c.stock[i] += delta;
+                    }
+                });
+                Set<Long> removed = new HashSet<>(changes.productIds);
+                for (InventoryRow row : rows) {
+                    removed.remove(row.productId());
+                    c.upsert(row);
+                }
+                removed.forEach(c::remove);
+                if (changedDuringReconcile != null) {
+                    changedDuringReconcile.addAll(changes.stockDeltas.keySet());
+                    changedDuringReconcile.addAll(changes.productIds);
+                    rows.forEach(row -> changedDuringReconcile.add(row.productId()));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (RuntimeException e) {
+            // La transaccion ya esta confirmada: no se propaga, la proxima reconciliacion lo corrige
+            log.warn("No se pudo actualizar el snapshot de inventario", e);
+        }
+    }
+
+    private List<InventorySnapshotMismatchResponse> compare(List<InventoryRow> rows) {
+        Columns c = columns;
+        List<InventorySnapshotMismatchResponse> mismatches = new ArrayList<>();
+        Set<Long> inDatabase = new HashSet<>();
+        for (InventoryRow row : rows) {
+            inDatabase.add(row.productId());
+            int i = c.indexOf(row.productId());
+            if (i < 0) {
+                mismatches.add(mismatch(row.productId(), "product", null, "presente"));
+                continue;
+            }
+            compareField(mismatches, row.productId(), "currentStock", c.stock[i], value(row.currentStock()));
+            compareField(mismatches, row.productId(), "active", c.active[i], row.productState() == ProductState.ALTA);
+            compareField(mismatches, row.productId(), "inventoryPolicy", c.policy[i], policy(row.inventoryPolicy()));
+            compareField(mismatches, row.productId(), "safetyStock", c.safetyStock[i], value(row.safetyStock()));
+            compareField(mismatches, row.productId(), "reorderPoint", c.reorderPoint[i], value(row.reorderPoint()));
+            compareField(mismatches, row.productId(), "maxInventoryLevel", c.maxInventoryLevel[i], value(row.maxInventoryLevel()));
+            compareField(mismatches, row.productId(), "activeOrder", c.activeOrder[i], row.activeOrder());
+        }
+        for (int i = 0; i < c.size; i++) {
+            if (!inDatabase.contains(c.ids[i])) {
+                mismatches.add(mismatch(c.ids[i], "product", "presente", null));
+            }
+        }
+        return mismatches;
+    }
+
+    private void compareField(List<InventorySnapshotMismatchResponse> mismatches, long productId, String field,
+                              Object snapshot, Object database) {
+        if (!snapshot.equals(database)) {
+            mismatches.add(mismatch(productId, field, display(field, snapshot), display(field, database)));
+        }
+    }
+
+    private Object display(String field, Object value) {
+        if (value instanceof Integer number && number == NONE) {
+            return null;
+        }
+        if (value instanceof Byte code && field.equals("inventoryPolicy")) {
+            return switch (code) {
+                case LOT_POLICY -> InventoryPolicy.LOTE_FIJO;
+                case INTERVAL_POLICY -> InventoryPolicy.INTERVALO_FIJO;
+                default -> null;
+            };
+        }
+        return value;
+    }
+
+    private InventorySnapshotMismatchResponse mismatch(long productId, String field, Object snapshot, Object database) {
+        return InventorySnapshotMismatchResponse.builder()
+                .productId(productId)
+                .field(field)
+                .snapshotValue(snapshot)
+                .databaseValue(database)
+                .build();
+    }
+
+    private static int countOutdated(List<InventorySnapshotMismatchResponse> mismatches) {
+        return (int) mismatches.stream().map(InventorySnapshotMismatchResponse::getProductId).distinct().count();
+    }
+
+    private static boolean below(int value, int limit) {
+        return value != NONE && limit != NONE && value < limit;
+    }
+
+    private static int value(Integer value) {
+        return value != null ? value : NONE;
+    }
+
+    private static byte policy(InventoryPolicy policy) {
+        if (policy == InventoryPolicy.LOTE_FIJO) {
+            return LOT_POLICY;
+        }
+        return policy == InventoryPolicy.INTERVALO_FIJO ? INTERVAL_POLICY : NO_POLICY;
+    }
+
+    // Cambios de una transaccion; se aplican todos juntos despues del commit y se descartan si hay rollback
+    private final class PendingChanges implements TransactionSynchronization {
+
+        private final boolean transactional;
+        private final Map<Long, Integer> stockDeltas = new HashMap<>();
+        private final Set<Long> productIds = new HashSet<>();
+        private final Set<Long> lotPolicyIds = new HashSet<>();
+        private final Set<Long> intervalPolicyIds = new HashSet<>();
+        private final Set<Long> orderIds = new HashSet<>();
+
+        private PendingChanges(boolean transactional) {
+            this.transactional = transactional;
+        }
+
+        private boolean hasAffectedRows() {
+            return !productIds.isEmpty() || !lotPolicyIds.isEmpty() || !intervalPolicyIds.isEmpty() || !orderIds.isEmpty();
+        }
+
+        @Override
+        public void afterCommit() {
+            apply(this);
+        }
+    }
+
+    // Struct-of-arrays: la posicion i de cada arreglo describe al producto ids[i]; ids esta ordenado
+    private static final class Columns {
+
+        private long[] ids;
+        private int[] stock;
+        private int[] safetyStock;
+        private int[] reorderPoint;
+        private int[] maxInventoryLevel;
+        private byte[] policy;
+        private boolean[] active;
+        private boolean[] activeOrder;
+        private int size;
+
+        private Columns(int capacity) {
+            ids = new long[capacity];
+            stock = new int[capacity];
+            safetyStock = new int[capacity];
+            reorderPoint = new int[capacity];
+            maxInventoryLevel = new int[capacity];
+            policy = new byte[capacity];
+            active = new boolean[capacity];
+            activeOrder = new boolean[capacity];
+        }
+
+        // rows ordenadas por id
+        private static Columns of(List<InventoryRow> rows) {
+            Columns columns = new Columns(rows.size());
+            for (InventoryRow row : rows) {
+                columns.ids[columns.size] = row.productId();
+                columns.set(columns.size, row);
+                columns.size++;
+            }
+            return columns;
+        }
+
+        private int indexOf(long id) {
+            return Arrays.binarySearch(ids, 0, size, id);
+        }
+
+        private void set(int i, InventoryRow row) {
+            stock[i] = value(row.currentStock());
+            safetyStock[i] = value(row.safetyStock());
+            reorderPoint[i] = value(row.reorderPoint());
+            maxInventoryLevel[i] = value(row.maxInventoryLevel());
+            policy[i] = policy(row.inventoryPolicy());
+            active[i] = row.productState() == ProductState.ALTA;
+            activeOrder[i] = row.activeOrder();
+        }
+
+        // Los productos nuevos casi siempre tienen el id mas alto y caen al final sin desplazar nada
+        private void upsert(InventoryRow row) {
+            int i = indexOf(row.productId());
+            if (i < 0) {
+                i = -i - 1;
+                if (size == ids.length) {
+                    grow(Math.max(16, size + (size >> 1)));
+                }
+                shift(i, i + 1, size - i);
+                ids[i] = row.productId();
+                size++;
+            }
+            set(i, row);
+        }
+
+        private void remove(long id) {
+            int i = indexOf(id);
+            if (i >= 0) {
+                shift(i + 1, i, size - i - 1);
+                size--;
+            }
+        }
+
+        private void shift(int from, int to, int length) {
+            System.arraycopy(ids, from, ids, to, length);
+            System.arraycopy(stock, from, stock, to, length);
+            System.arraycopy(safetyStock, from, safetyStock, to, length);
+            System.arraycopy(reorderPoint, from, reorderPoint, to, length);
+            System.arraycopy(maxInventoryLevel, from, maxInventoryLevel, to, length);
+            System.arraycopy(policy, from, policy, to, length);
+            System.arraycopy(active, from, active, to, length);
+            System.arraycopy(activeOrder, from, activeOrder, to, length);
+        }
+
+        private void grow(int capacity) {
+            ids = Arrays.copyOf(ids, capacity);
+            stock = Arrays.copyOf(stock, capacity);
+            safetyStock = Arrays.copyOf(safetyStock, capacity);
+            reorderPoint = Arrays.copyOf(reorderPoint, capacity);
+            maxInventoryLevel = Arrays.copyOf(maxInventoryLevel, capacity);
+            policy = Arrays.copyOf(policy, capacity);
+            active = Arrays.copyOf(active, capacity);
+            activeOrder = Arrays.copyOf(activeOrder, capacity);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.omega.retail.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.omega.retail.entity.OutboxEvent;
+import com.omega.retail.enums.OutboxEventType;
+import com.omega.retail.event.PurchaseOrderEvent;
+import com.omega.retail.event.SaleEvent;
+import com.omega.retail.repository.OutboxEventRepository;
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+public class OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+    private final long replenishmentWindowMs;
+
+    public OutboxService(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper,
+                         @Value("${retail.replenishment.window-ms:2000}") long replenishmentWindowMs) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+        this.replenishmentWindowMs = replenishmentWindowMs;
+    }
+
+    // Se llama dentro de la transaccion de la venta / orden: el evento se persiste o se pierde junto con ella
+    // Las ventas quedan disponibles recien al cerrar la ventana de reposicion: todas las que caen en
+    // la misma ventana se reclaman juntas y cada producto se evalua una sola vez
+    @Transactional
+    public void append(SaleEvent event) {
+        save(OutboxEventType.SALE, new SalePayload(event.getProductIds()), replenishmentWindowMs);
+    }
+
+    @Transactional
+    public void append(PurchaseOrderEvent event) {
+        save(OutboxEventType.PURCHASE_ORDER,
+                new PurchaseOrderPayload(event.getPurchaseOrderId(), event.getQuantitiesByProduct()), 0);
+    }
+
+    public ApplicationEvent toEvent(OutboxEvent outboxEvent) {
+        try {
+            return switch (outboxEvent.getEventType()) {
+                case SALE -> new SaleEvent(this,
+                        objectMapper.readValue(outboxEvent.getPayload(), SalePayload.class).productIds());
+                case PURCHASE_ORDER -> {
+                    PurchaseOrderPayload payload = objectMapper.readValue(outboxEvent.getPayload(), PurchaseOrderPayload.class);
+                    yield new PurchaseOrderEvent(this, payload.purchaseOrderId(), payload.quantitiesByProduct());
+                }
+            };
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Payload invalido en outbox_event " + outboxEvent.getId(), e);
+        }
+    }
+
+    private void save(OutboxEventType type, Object payload, long delayMs) {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            outboxEventRepository.save(OutboxEvent.builder()
+                    .eventType(type)
+                    .payload(objectMapper.writeValueAsString(payload))
+                    .createdAt(now)
+                    .availableAt(now.plus(delayMs, ChronoUnit.MILLIS))
+                    .attempts(0)
+                    .build());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el evento " + type, e);
+        }
+    }
+
+    private record SalePayload(Set<Long> productIds) {
+    }
+
+    private record PurchaseOrderPayload(Long purchaseOrderId, Map<Long, Integer> quantitiesByProduct) {
+    }
+}
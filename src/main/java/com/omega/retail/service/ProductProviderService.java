@@ -16,6 +16,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.util.HashSet;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -25,16 +26,16 @@ public class ProductProviderService {
     private final ProductProviderRepository productProviderRepository;
     private final ProductRepository productRepository;
     private final ProviderRepository providerRepository;
-    private final CalculationService calculationService;
+    private final RecalculationQueue recalculationQueue;
 
     @Autowired
     public ProductProviderService(ProductProviderRepository productProviderRepository,
                                   ProductRepository productRepository,
-                                  ProviderRepository providerRepository, CalculationService calculationService) {
+                                  ProviderRepository providerRepository, RecalculationQueue recalculationQueue) {
         this.productProviderRepository = productProviderRepository;
         this.productRepository = productRepository;
         this.providerRepository = providerRepository;
-        this.calculationService = calculationService;
+        this.recalculationQueue = recalculationQueue;
     }
 
     public List<ProductProviderResponse> getAll() {
@@ -75,9 +76,11 @@ public class ProductProviderService {
         return toResponse(productProvider);
     }
 
+    @Transactional
     public ProductProviderResponse update(Long id, ProductProviderRequest request) {
         ProductProvider pp = productProviderRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("ProductProvider not found"));
+        Long previousProductId = pp.getProduct().getId();
 
         if (request.getProductId() != null) {
             Product product = productRepository.findById(request.getProductId())
@@ -97,10 +100,8 @@ public class ProductProviderService {
 
         ProductProvider productProvider = productProviderRepository.save(pp);
 
-        Product updatedProduct = productRepository.findById(pp.getProduct().getId())
-                .orElseThrow(() -> new RuntimeException("Product not found"));
-
-        calculationService.updateCalculatedFields(updatedProduct);
+        // Si la relacion cambio de producto, los dos tienen que recalcularse (lo normal es que sean el mismo)
+        recalculationQueue.markDirty(new HashSet<>(List.of(previousProductId, pp.getProduct().getId())));
 
         return toResponse(productProvider);
     }
@@ -143,19 +144,7 @@ public class ProductProviderService {
         productProviderRepository.unsetAllDefaultByProduct(productId);
         productProviderRepository.setDefaultById(productProviderId);
 
-        productProviderRepository.flush();
-
-        Product updatedProduct = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
-
-
-        updatedProduct.getProductProviders().forEach(pp -> {
-            pp.setIsDefault(pp.getId().equals(productProviderId));
-        });
-
-
-
-        calculationService.updateCalculatedFields(updatedProduct);
+        recalculationQueue.markDirty(List.of(productId));
     }
 
 }
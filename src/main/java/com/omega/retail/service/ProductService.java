@@ -1,5 +1,6 @@
 package com.omega.retail.service;
 
+import com.omega.retail.config.OutcomeTimer;
 import com.omega.retail.dto.dtos.FixedIntervalPolicyDTO;
 import com.omega.retail.dto.dtos.FixedLotPolicyDTO;
 import com.omega.retail.dto.request.ProductRequest;
@@ -9,7 +10,13 @@ import com.omega.retail.entity.*;
 import com.omega.retail.enums.InventoryPolicy;
 import com.omega.retail.enums.ProductState;
 import com.omega.retail.enums.PurchaseOrderState;
+import com.omega.retail.enums.StockMovementType;
 import com.omega.retail.repository.ProductRepository;
+import com.omega.retail.repository.ProductStockRepository;
+import com.omega.retail.repository.StockMovementRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,22 +24,56 @@ import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class ProductService {
 
     private final ProductRepository productRepository;
-    private final CalculationService calculationService;
+    private final ProductStockRepository productStockRepository;
+    private final StockMovementRepository stockMovementRepository;
+    private final RecalculationQueue recalculationQueue;
+    private final InventorySnapshot inventorySnapshot;
+    private final OutcomeTimer reduceStockTimer;
+    private final OutcomeTimer increaseStockTimer;
+    private final Counter unitsOut;
+    private final Counter unitsIn;
+    private final Counter insufficientStock;
     
     @Autowired
-    public ProductService(ProductRepository productRepository, CalculationService calculationService) {
+    public ProductService(ProductRepository productRepository, ProductStockRepository productStockRepository,
+                          StockMovementRepository stockMovementRepository, RecalculationQueue recalculationQueue, InventorySnapshot inventorySnapshot,
+                          MeterRegistry meterRegistry) {
         this.productRepository = productRepository;
-        this.calculationService = calculationService;
+        this.productStockRepository = productStockRepository;
+        this.stockMovementRepository = stockMovementRepository;
+        this.recalculationQueue = recalculationQueue;
+        this.inventorySnapshot = inventorySnapshot;
+
+        this.reduceStockTimer = new OutcomeTimer(meterRegistry, "retail.stock.update",
+                "Actualizacion atomica de stock", Tags.of("operation", "reduce"));
+        this.increaseStockTimer = new OutcomeTimer(meterRegistry, "retail.stock.update",
+                "Actualizacion atomica de stock", Tags.of("operation", "increase"));
+        this.unitsOut = Counter.builder("retail.stock.units")
+                .description("Unidades descontadas o repuestas")
+                .tag("direction", "out")
+                .register(meterRegistry);
+        this.unitsIn = Counter.builder("retail.stock.units")
+                .description("Unidades descontadas o repuestas")
+                .tag("direction", "in")
+                .register(meterRegistry);
+        this.insufficientStock = Counter.builder("retail.stock.insufficient")
+                .description("Productos cuyo descuento se rechazo por falta de stock")
+                .register(meterRegistry);
     }
     
+    @Transactional
     public ProductResponse createProduct(ProductRequest request) {
         Product product = Product.builder()
                 .code(request.getCode())
@@ -58,6 +99,10 @@ public class ProductService {
         }
 
         product = productRepository.save(product);
+        // El stock inicial entra al libro como ajuste
+        if (product.getCurrentStock() != null && product.getCurrentStock() != 0) {
+            stockMovementRepository.append(StockMovementType.AJUSTE, Map.of(product.getId(), product.getCurrentStock()));
+        }
 
         return toResponse(product);
     }
@@ -80,14 +125,31 @@ public class ProductService {
         return toResponse(product);
     }
 
+    // El filtro se resuelve en InventorySnapshot; la base solo se consulta por id para armar la respuesta
     public List<ProductResponse> getProductsBelowSecurityStock() {
+        if (inventorySnapshot.isLoaded()) {
+            return findForResponse(inventorySnapshot.findBelowSafetyStock());
+        }
         return productRepository.findBelowStockSecurity().stream().map(this::toResponse).collect(Collectors.toList());
     }
 
     public List<ProductResponse> getProductsBelowReorderPointWithoutPendingOrders(){
+        if (inventorySnapshot.isLoaded()) {
+            return findForResponse(inventorySnapshot.findBelowReorderPointWithoutActiveOrder());
+        }
         return productRepository.findBelowReorderPointWithoutPendingOrders(List.of(PurchaseOrderState.PENDIENTE,PurchaseOrderState.ENVIADA))
                 .stream().map(this::toResponse).collect(Collectors.toList());
     }
+
+    private List<ProductResponse> findForResponse(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return productRepository.findWithProvidersByIdIn(ids).stream()
+                .sorted(Comparator.comparing(Product::getId))
+                .map(this::toResponse)
+                .collect(Collectors.toList());
+    }
     public List<ProductResponse> getActiveProductsByProvider(Long providerId) {
         return productRepository.findActiveProductsByProviderId(providerId)
                 .stream()
@@ -103,17 +165,24 @@ public class ProductService {
     
         product.setCode(request.getCode());
         product.setDescription(request.getDescription());
-        product.setCurrentStock(request.getCurrentStock());
+        // Un cambio manual de stock se aplica como delta sobre el valor leido (current_stock no se escribe con la
+        // entidad): una venta confirmada mientras tanto no se pisa. Queda en el libro como ajuste
+        int adjustment = Optional.ofNullable(request.getCurrentStock()).orElse(0)
+                - Optional.ofNullable(product.getCurrentStock()).orElse(0);
+        if (adjustment != 0) {
+            Integer stock = productStockRepository.adjustStock(id, adjustment)
+                    .orElseThrow(() -> new RuntimeException("El ajuste dejaria el stock del producto en negativo"));
+            stockMovementRepository.append(StockMovementType.AJUSTE, Map.of(id, adjustment));
+            inventorySnapshot.stockChanged(Map.of(id, adjustment));
+            product.setCurrentStock(stock);
+        }
         product.setAnnualDemand(request.getAnnualDemand());
         product.setStorageCost(request.getStorageCost());
         product.setInventoryPolicy(request.getInventoryPolicy());
+        // Los campos derivados se recalculan en segundo plano: la respuesta sale con recalculationPending = true
+        recalculationQueue.markDirty(product);
     
         product = productRepository.save(product);
-
-        Product updatedProduct = productRepository.findById(product.getId())
-                .orElseThrow(() -> new RuntimeException("Product not found"));
-
-        calculationService.updateCalculatedFields(updatedProduct);
     
         return toResponse(product);
     }
@@ -124,7 +193,7 @@ public class ProductService {
         if (productRepository.existsByCurrentStock(id)){
             throw new RuntimeException("No se puede eliminar porque el producto tiene stock");
         }
-        if (productRepository.existsByActivePurchaseOrder(id, List.of(PurchaseOrderState.PENDIENTE, PurchaseOrderState.ENVIADA))) {
+        if (productRepository.existsByActivePurchaseOrder(id, PurchaseOrderService.ACTIVE_STATES)) {
             throw new RuntimeException("No se puede eliminar porque el producto tiene una orden pendiente o enviada");
         }
         Optional<Product> productOptional = productRepository.findById(id);
@@ -138,27 +207,44 @@ public class ProductService {
         }
     }
 
+    // Descuento atomico y condicionado (current_stock >= cantidad); devuelve los productos sin stock suficiente
     @Transactional
-    public void reduceStock(List<SaleDetail> saleDetails) {
-        for (SaleDetail detail : saleDetails) {
-            Product product = detail.getProduct();
+    public Set<Long> reduceStock(Map<Long, Integer> quantitiesByProduct) {
+        return reduceStockTimer.record(() -> {
+            Set<Long> insufficient = productStockRepository.decrementStock(quantitiesByProduct);
 
-            product.setCurrentStock(product.getCurrentStock() - detail.getQuantity());
-            productRepository.save(product);
-        }
+            Map<Long, Integer> deltas = new HashMap<>();
+            quantitiesByProduct.forEach((id, quantity) -> {
+                if (!insufficient.contains(id)) {
+                    deltas.put(id, -quantity);
+                    unitsOut.increment(quantity);
+                }
+            });
+            insufficientStock.increment(insufficient.size());
+            stockMovementRepository.append(StockMovementType.VENTA, deltas);
+            inventorySnapshot.stockChanged(deltas);
+            return insufficient;
+        });
     }
+
     @Transactional
-    public void increaseStock(List<PurchaseOrderDetail> orderDetails) {
-        for (PurchaseOrderDetail detail : orderDetails) {
-            Product product = detail.getProduct();
+    public void increaseStock(Map<Long, Integer> quantitiesByProduct) {
+        increaseStock(quantitiesByProduct, StockMovementType.RECEPCION);
+    }
 
-            product.setCurrentStock(product.getCurrentStock() + detail.getQuantity());
-            productRepository.save(product);
-        }
+    // type queda en el libro: RECEPCION para ordenes finalizadas, AJUSTE (positivo) para revertir una venta rechazada
+    @Transactional
+    public void increaseStock(Map<Long, Integer> quantitiesByProduct, StockMovementType type) {
+        increaseStockTimer.run(() -> {
+            productStockRepository.incrementStock(quantitiesByProduct);
+            stockMovementRepository.append(type, quantitiesByProduct);
+            quantitiesByProduct.values().forEach(unitsIn::increment);
+            inventorySnapshot.stockChanged(quantitiesByProduct);
+        });
     }
 
 
-    private ProductResponse toResponse(Product product) {
+    ProductResponse toResponse(Product product) {
 
         List<ProductProviderResponse> providerResponses = Optional.ofNullable(product.getProductProviders())
                 .orElse(Collections.emptyList())
@@ -187,6 +273,7 @@ public class ProductService {
         } else if (product.getInventoryPolicy() == InventoryPolicy.INTERVALO_FIJO) {
             intervalPolicy = FixedIntervalPolicyDTO.builder()
                     .lastReviewDate(product.getFixedIntervalPolicy().getLastReviewDate())
+                    .nextReviewDate(product.getFixedIntervalPolicy().getNextReviewDate())
                     .maxInventoryLevel(product.getFixedIntervalPolicy().getMaxInventoryLevel())
                     .reviewIntervalDays(product.getFixedIntervalPolicy().getReviewIntervalDays())
                     .safetyStock(product.getFixedIntervalPolicy().getSafetyStock())
@@ -204,6 +291,9 @@ public class ProductService {
                 .deactivationDate(product.getDeactivationDate())
                 .productState(product.getProductState())
                 .inventoryPolicy(product.getInventoryPolicy())
+                .calculationVersion(product.getCalculationVersion())
+                .recalculatedAt(product.getRecalculatedAt())
+                .recalculationPending(product.getRecalculationRequestedAt() != null)
                 .fixedLotPolicy(lotPolicy)
                 .fixedIntervalPolicy(intervalPolicy)
                 .providers(providerResponses)
@@ -3,7 +3,6 @@ import com.omega.retail.dto.request.ProviderRequest;
 import com.omega.retail.dto.response.ProviderResponse;
 import com.omega.retail.entity.Provider;
 import com.omega.retail.enums.ProviderState;
-import com.omega.retail.enums.PurchaseOrderState;
 import com.omega.retail.repository.ProviderRepository;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.stereotype.Service;
@@ -75,7 +74,7 @@ public class ProviderService {
         if(providerRepository.existsDefaultProvider(id)){
             throw new RuntimeException("No se puede eliminar porque es el predeterminado de al menos un producto");
         }
-        if(providerRepository.existsByOrderStatus(id, List.of(PurchaseOrderState.PENDIENTE, PurchaseOrderState.ENVIADA))){
+        if(providerRepository.existsByOrderStatus(id, PurchaseOrderService.ACTIVE_STATES)){
             throw new RuntimeException("No se puede eliminar porque tiene ordenes pendientes o enviadas");
         }
         Optional<Provider> providerOptional = providerRepository.findById(id);
@@ -0,0 +1,46 @@
+package com.omega.retail.service;
+
+import com.omega.retail.enums.PurchaseOrderState;
+import com.omega.retail.repository.PurchaseOrderRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Ordenes de compra por estado (gauge retail.purchase-orders, tag state). Se cuentan con una sola consulta
+// agrupada cada refresh-interval-ms y el gauge devuelve el ultimo valor: leer las metricas no toca la base
+@Service
+public class PurchaseOrderMetrics {
+
+    private final PurchaseOrderRepository orderRepository;
+    private final Map<PurchaseOrderState, AtomicLong> ordersByState = new EnumMap<>(PurchaseOrderState.class);
+
+    public PurchaseOrderMetrics(PurchaseOrderRepository orderRepository, MeterRegistry meterRegistry) {
+        this.orderRepository = orderRepository;
+        for (PurchaseOrderState state : PurchaseOrderState.values()) {
+            AtomicLong count = new AtomicLong();
+            ordersByState.put(state, count);
+            Gauge.builder("retail.purchase-orders", count, AtomicLong::get)
+                    .description("Ordenes de compra por estado")
+                    .tag("state", state.name())
+                    .register(meterRegistry);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${retail.metrics.purchase-orders.refresh-interval-ms:30000}",
+            initialDelayString = "${retail.metrics.purchase-orders.refresh-interval-ms:30000}")
+    public void refresh() {
+        Map<PurchaseOrderState, Long> counts = new EnumMap<>(PurchaseOrderState.class);
+        for (Object[] row : orderRepository.countByState()) {
+            counts.put((PurchaseOrderState) row[0], (Long) row[1]);
+        }
+        ordersByState.forEach((state, count) -> count.set(counts.getOrDefault(state, 0L)));
+    }
+}
@@ -1,51 +1,185 @@
 package com.omega.retail.service;
 
+import com.omega.retail.config.OutcomeTimer;
+import com.omega.retail.dto.request.PurchaseOrderBatchRequest;
 import com.omega.retail.dto.request.PurchaseOrderDetailRequest;
 import com.omega.retail.dto.request.PurchaseOrderRequest;
+import com.omega.retail.dto.response.PurchaseOrderBatchItemResponse;
+import com.omega.retail.dto.response.PurchaseOrderBatchResponse;
 import com.omega.retail.dto.response.PurchaseOrderDetailResponse;
 import com.omega.retail.dto.response.PurchaseOrderResponse;
+import com.omega.retail.dto.response.PurchaseOrderTransitionItemResponse;
+import com.omega.retail.dto.response.PurchaseOrderTransitionResponse;
 import com.omega.retail.entity.*;
 import com.omega.retail.enums.InventoryPolicy;
 import com.omega.retail.enums.PurchaseOrderState;
 import com.omega.retail.event.PurchaseOrderEvent;
+import com.omega.retail.event.jfr.ReplenishmentEvaluationEvent;
+import com.omega.retail.event.jfr.ScheduledOrderGenerationEvent;
+import com.omega.retail.repository.ProductProviderRepository;
 import com.omega.retail.repository.ProductRepository;
 import com.omega.retail.repository.ProviderRepository;
 import com.omega.retail.repository.PurchaseOrderRepository;
+import com.omega.retail.repository.PurchaseOrderTransitionRepository;
+import com.omega.retail.repository.PurchaseOrderTransitionRepository.TransitionedLine;
+import com.omega.retail.repository.projection.ProductProviderCostView;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 public class PurchaseOrderService {
 
+    public static final List<PurchaseOrderState> ACTIVE_STATES =
+            List.of(PurchaseOrderState.PENDIENTE, PurchaseOrderState.ENVIADA);
+
     private final PurchaseOrderRepository orderRepository;
     private final ProviderRepository providerRepository;
     private final ProductRepository productRepository;
+    private final ProductProviderRepository productProviderRepository;
+    private final PurchaseOrderTransitionRepository transitionRepository;
     private final ApplicationEventPublisher eventPublisher;
+    private final ProductService productService;
+    private final InventorySnapshot inventorySnapshot;
+    private final ScheduledPurchaseOrderJob scheduledOrderJob;
+    private final OutcomeTimer reorderPointTimer;
+    private final OutcomeTimer scheduledTimer;
+    private final Counter reorderPointLines;
+    private final Counter scheduledLines;
 
     public PurchaseOrderService(
             PurchaseOrderRepository orderRepository,
             ProviderRepository providerRepository,
-            ProductRepository productRepository, ApplicationEventPublisher eventPublisher
+            ProductRepository productRepository, ProductProviderRepository productProviderRepository,
+            PurchaseOrderTransitionRepository transitionRepository,
+            ApplicationEventPublisher eventPublisher, ProductService productService,
+            InventorySnapshot inventorySnapshot,
+            ScheduledPurchaseOrderJob scheduledOrderJob, MeterRegistry meterRegistry
     ) {
         this.orderRepository = orderRepository;
         this.providerRepository = providerRepository;
         this.productRepository = productRepository;
+        this.productProviderRepository = productProviderRepository;
+        this.transitionRepository = transitionRepository;
         this.eventPublisher = eventPublisher;
+        this.productService = productService;
+        this.inventorySnapshot = inventorySnapshot;
+        this.scheduledOrderJob = scheduledOrderJob;
+
+        // trigger=reorder-point: evaluacion de las ventas de una ventana; trigger=scheduled: revision de intervalo fijo
+        this.reorderPointTimer = new OutcomeTimer(meterRegistry, "retail.purchase-orders.generate",
+                "Generacion automatica de ordenes de compra", Tags.of("trigger", "reorder-point"));
+        this.scheduledTimer = new OutcomeTimer(meterRegistry, "retail.purchase-orders.generate",
+                "Generacion automatica de ordenes de compra", Tags.of("trigger", "scheduled"));
+        this.reorderPointLines = Counter.builder("retail.purchase-orders.generated.lines")
+                .description("Lineas agregadas a ordenes de compra por la generacion automatica")
+                .tag("trigger", "reorder-point")
+                .register(meterRegistry);
+        this.scheduledLines = Counter.builder("retail.purchase-orders.generated.lines")
+                .description("Lineas agregadas a ordenes de compra por la generacion automatica")
+                .tag("trigger", "scheduled")
+                .register(meterRegistry);
     }
 
+    @Transactional
     public PurchaseOrderResponse create(PurchaseOrderRequest request) {
-        Provider provider = providerRepository.findById(request.getProviderId())
-                .orElseThrow(() -> new RuntimeException("Proveedor no encontrado"));
+        PurchaseOrder saved = orderRepository.save(buildOrder(request, lookups(List.of(request))));
+        return mapToResponse(saved);
+    }
+
+    // Alta masiva: proveedores, productos, precios y ordenes activas de todo el lote se resuelven con una consulta
+    // cada uno. Cada orden se acepta o se rechaza por separado; un producto no puede quedar en dos ordenes del lote
+    @Transactional
+    public PurchaseOrderBatchResponse createAll(PurchaseOrderBatchRequest request) {
+        List<PurchaseOrderRequest> requests = request.getOrders();
+        OrderLookups lookups = lookups(requests);
+
+        List<PurchaseOrderBatchItemResponse> results = new ArrayList<>();
+        List<PurchaseOrder> accepted = new ArrayList<>();
+        List<Integer> acceptedIndexes = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            results.add(PurchaseOrderBatchItemResponse.builder().index(i).accepted(false).build());
+            try {
+                PurchaseOrder order = buildOrder(requests.get(i), lookups);
+                order.getDetails().forEach(detail -> lookups.withActiveOrder().add(detail.getProduct().getId()));
+                accepted.add(order);
+                acceptedIndexes.add(i);
+            } catch (RuntimeException e) {
+                results.get(i).setMessage(e.getMessage());
+            }
+        }
+
+        // Los ids salen de la secuencia pooled: ordenes y detalles se insertan en batches JDBC al hacer flush
+        orderRepository.saveAll(accepted);
+
+        for (int i = 0; i < accepted.size(); i++) {
+            PurchaseOrder order = accepted.get(i);
+            PurchaseOrderBatchItemResponse result = results.get(acceptedIndexes.get(i));
+            result.setAccepted(true);
+            result.setPurchaseOrderId(order.getId());
+            result.setTotal(order.getTotal());
+        }
+
+        return PurchaseOrderBatchResponse.builder()
+                .received(requests.size())
+                .accepted(accepted.size())
+                .rejected(requests.size() - accepted.size())
+                .results(results)
+                .build();
+    }
+
+    // Lo que necesita buildOrder, cargado de una vez para todas las ordenes. withActiveOrder se va completando con
+    // los productos de las ordenes aceptadas del lote
+    private record OrderLookups(Map<Long, Provider> providers, Map<Long, Product> products,
+                                Map<Long, Map<Long, Double>> unitCosts, Set<Long> withActiveOrder) {
+    }
+
+    private OrderLookups lookups(List<PurchaseOrderRequest> requests) {
+        Set<Long> providerIds = requests.stream()
+                .map(PurchaseOrderRequest::getProviderId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<Long> productIds = requests.stream()
+                .flatMap(request -> request.getDetails().stream())
+                .map(PurchaseOrderDetailRequest::getProductId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        Map<Long, Provider> providers = providerRepository.findAllById(providerIds).stream()
+                .collect(Collectors.toMap(Provider::getId, Function.identity()));
+        return new OrderLookups(providers, findProducts(productIds), unitCosts(providerIds, productIds),
+                productsWithActiveOrder(productIds));
+    }
+
+    // Arma la orden sin ir a la base. Un producto que el proveedor no ofrece queda con precio 0
+    private PurchaseOrder buildOrder(PurchaseOrderRequest request, OrderLookups lookups) {
+        Provider provider = lookups.providers().get(request.getProviderId());
+        if (provider == null) {
+            throw new RuntimeException("Proveedor no encontrado");
+        }
+        Map<Long, Double> unitCosts = lookups.unitCosts().getOrDefault(provider.getId(), Map.of());
 
         List<PurchaseOrderDetail> details = new ArrayList<>();
         double total = 0.0;
@@ -57,20 +191,17 @@ public class PurchaseOrderService {
                 .build();
 
         for (PurchaseOrderDetailRequest d : request.getDetails()) {
-            Product product = productRepository.findById(d.getProductId())
-                    .orElseThrow(() -> new RuntimeException("Producto no encontrado"));
-
-            boolean exists = orderRepository.existsActiveByProductId(d.getProductId(), List.of(PurchaseOrderState.PENDIENTE, PurchaseOrderState.ENVIADA));
-            if (exists) {
+            Product product = lookups.products().get(d.getProductId());
+            if (product == null) {
+                throw new RuntimeException("Producto no encontrado");
+            }
+            if (lookups.withActiveOrder().contains(product.getId())) {
                 throw new RuntimeException("Ya existe una orden activa para el producto: " + product.getDescription());
             }
-            double price =  0.0d;
-
-            for (ProductProvider pp : provider.getProducts()){
-                if (pp.getProduct().getId() == product.getId()){
-                    price = pp.getUnitCost();
-                }
+            if (d.getQuantity() == null || d.getQuantity() <= 0) {
+                throw new RuntimeException("Detalle de orden inválido");
             }
+            double price = unitCosts.getOrDefault(product.getId(), 0.0d);
             double subtotal = price * d.getQuantity();
             total += subtotal;
 
@@ -87,8 +218,33 @@ public class PurchaseOrderService {
 
         order.setTotal(total);
         order.setDetails(details);
+        return order;
+    }
 
-        return mapToResponse(orderRepository.save(order));
+    private Map<Long, Product> findProducts(Collection<Long> productIds) {
+        return productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+    }
+
+    // proveedor -> (producto -> costo unitario)
+    private Map<Long, Map<Long, Double>> unitCosts(Collection<Long> providerIds, Collection<Long> productIds) {
+        if (providerIds.isEmpty() || productIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, Map<Long, Double>> unitCosts = new HashMap<>();
+        for (ProductProviderCostView cost : productProviderRepository.findUnitCosts(providerIds, productIds)) {
+            unitCosts.computeIfAbsent(cost.getProviderId(), id -> new HashMap<>())
+                    .put(cost.getProductId(), cost.getUnitCost());
+        }
+        return unitCosts;
+    }
+
+    // Una sola consulta para todos los productos de la request o del lote
+    private Set<Long> productsWithActiveOrder(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(orderRepository.findProductIdsWithActiveOrder(productIds, ACTIVE_STATES));
     }
 
     public PurchaseOrderResponse getById(Long id) {
@@ -103,6 +259,12 @@ public class PurchaseOrderService {
                 .collect(Collectors.toList());
     }
 
+    public List<PurchaseOrderResponse> getByState(PurchaseOrderState state) {
+        return orderRepository.findByPurchaseOrderStateOrderById(state).stream()
+                .map(this::mapToResponse)
+                .collect(Collectors.toList());
+    }
+
     @Transactional
     public PurchaseOrderResponse update(Long id, PurchaseOrderRequest request) {
         PurchaseOrder order = orderRepository.findById(id)
@@ -123,16 +285,24 @@ public class PurchaseOrderService {
         List<PurchaseOrderDetail> updatedDetails = new ArrayList<>();
         double total = 0.0;
 
-        for (PurchaseOrderDetailRequest d : request.getDetails()) {
-            Product product = productRepository.findById(d.getProductId())
-                    .orElseThrow(() -> new RuntimeException("Producto no encontrado"));
+        Set<Long> productIds = request.getDetails().stream()
+                .map(PurchaseOrderDetailRequest::getProductId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, Product> products = findProducts(productIds);
+        Map<Long, Double> unitCosts = unitCosts(Set.of(provider.getId()), productIds)
+                .getOrDefault(provider.getId(), Map.of());
 
+        for (PurchaseOrderDetailRequest d : request.getDetails()) {
+            Product product = products.get(d.getProductId());
+            if (product == null) {
+                throw new RuntimeException("Producto no encontrado");
+            }
 
-            double price = provider.getProducts().stream()
-                    .filter(pp -> pp.getProduct().getId().equals(product.getId()))
-                    .map(ProductProvider::getUnitCost)
-                    .findFirst()
-                    .orElseThrow(() -> new RuntimeException("El proveedor no ofrece este producto"));
+            Double price = unitCosts.get(product.getId());
+            if (price == null) {
+                throw new RuntimeException("El proveedor no ofrece este producto");
+            }
 
             double subtotal = price * d.getQuantity();
 
@@ -154,11 +324,13 @@ public class PurchaseOrderService {
         updatedDetails.forEach(d -> d.setPurchaseOrder(order));
         order.getDetails().addAll(updatedDetails);
 
-        return mapToResponse(orderRepository.save(order));
+        PurchaseOrder saved = orderRepository.save(order);
+        return mapToResponse(saved);
     }
 
 
 
+    @Transactional
     public void cancel(Long id) {
         PurchaseOrder order = orderRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Orden de compra no encontrada"));
@@ -184,6 +356,7 @@ public class PurchaseOrderService {
         orderRepository.save(order);
     }
 
+    @Transactional
     public void finalize(Long id) {
         PurchaseOrder order = orderRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Orden de compra no encontrada"));
@@ -196,22 +369,143 @@ public class PurchaseOrderService {
         order.setReceivedAt(LocalDate.now());
         orderRepository.save(order);
 
-        eventPublisher.publishEvent(new PurchaseOrderEvent(this, order.getDetails()));
+        Map<Long, Integer> quantitiesByProduct = order.getDetails().stream().collect(Collectors.groupingBy(
+                detail -> detail.getProduct().getId(),
+                Collectors.summingInt(PurchaseOrderDetail::getQuantity)));
+
+        eventPublisher.publishEvent(new PurchaseOrderEvent(this, order.getId(), quantitiesByProduct));
+    }
+
+    // Transiciones masivas: una sola sentencia valida y cambia el estado de todas las ordenes (solo pasan las que
+    // estan en el estado de origen) y devuelve sus lineas. Las rechazadas se explican con una consulta mas
+    @Transactional
+    public PurchaseOrderTransitionResponse sendAll(List<Long> ids) {
+        List<Long> requested = distinct(ids);
+        List<TransitionedLine> lines = transitionRepository.send(requested, LocalDate.now());
+        transitioned(lines);
+        return transitionResponse(PurchaseOrderState.ENVIADA, requested, lines, "Solo se puede enviar una orden pendiente");
+    }
+
+    @Transactional
+    public PurchaseOrderTransitionResponse cancelAll(List<Long> ids) {
+        List<Long> requested = distinct(ids);
+        List<TransitionedLine> lines = transitionRepository.cancel(requested);
+        transitioned(lines);
+        return transitionResponse(PurchaseOrderState.CANCELADA, requested, lines, "Solo se puede cancelar una orden pendiente");
+    }
+
+    // Recepcion de muchas ordenes: el stock se repone en la misma transaccion, con un UPDATE agregado por todas las
+    // lineas, en vez de un PurchaseOrderEvent y un UPDATE por producto por cada orden
+    @Transactional
+    public PurchaseOrderTransitionResponse finalizeAll(List<Long> ids) {
+        List<Long> requested = distinct(ids);
+        List<TransitionedLine> lines = transitionRepository.finalize(requested, LocalDate.now());
+        transitioned(lines);
+
+        Map<Long, Integer> quantitiesByProduct = lines.stream()
+                .filter(line -> line.productId() != null && line.quantity() != null)
+                .collect(Collectors.groupingBy(TransitionedLine::productId,
+                        Collectors.summingInt(TransitionedLine::quantity)));
+        if (!quantitiesByProduct.isEmpty()) {
+            productService.increaseStock(quantitiesByProduct);
+        }
+        return transitionResponse(PurchaseOrderState.FINALIZADA, requested, lines, "Solo se puede finalizar una orden enviada");
+    }
+
+    private static List<Long> distinct(List<Long> ids) {
+        return List.copyOf(new LinkedHashSet<>(ids));
+    }
+
+    // El snapshot de inventario no ve las escrituras JDBC: se le avisa de cada orden que cambio de estado
+    private void transitioned(List<TransitionedLine> lines) {
+        lines.stream().map(TransitionedLine::orderId).distinct().forEach(inventorySnapshot::purchaseOrderChanged);
+    }
+
+    private PurchaseOrderTransitionResponse transitionResponse(PurchaseOrderState targetState, List<Long> requested,
+                                                               List<TransitionedLine> lines, String wrongStateMessage) {
+        Set<Long> moved = lines.stream().map(TransitionedLine::orderId).collect(Collectors.toSet());
+        List<Long> rejected = requested.stream().filter(id -> !moved.contains(id)).toList();
+        Map<Long, PurchaseOrderState> rejectedStates = rejected.isEmpty() ? Map.of() : transitionRepository.findStates(rejected);
+
+        List<PurchaseOrderTransitionItemResponse> results = requested.stream()
+                .map(id -> PurchaseOrderTransitionItemResponse.builder()
+                        .purchaseOrderId(id)
+                        .accepted(moved.contains(id))
+                        .message(moved.contains(id) ? null
+                                : rejectedStates.containsKey(id) ? wrongStateMessage : "Orden de compra no encontrada")
+                        .build())
+                .toList();
+
+        return PurchaseOrderTransitionResponse.builder()
+                .targetState(targetState)
+                .received(requested.size())
+                .accepted(moved.size())
+                .rejected(rejected.size())
+                .results(results)
+                .build();
     }
 
+    // Evalua el punto de pedido de un conjunto de productos (los tocados por las ventas de una ventana):
+    // una consulta para los productos con sus proveedores y otra para las ordenes pendientes de esos proveedores
     @Transactional
-    public void generatePurchaseOrder(List<SaleDetail> saleDetails) {
+    public void generatePurchaseOrder(Collection<Long> productIds) {
+        ReplenishmentEvaluationEvent event = new ReplenishmentEvaluationEvent();
+        event.begin();
+        try {
+            reorderPointTimer.run(() -> generateForReorderPoint(productIds, event));
+        } finally {
+            event.commit();
+        }
+    }
+
+    private void generateForReorderPoint(Collection<Long> productIds, ReplenishmentEvaluationEvent event) {
+        event.setProductsRequested(productIds.size());
+        if (productIds.isEmpty()) {
+            return;
+        }
+
+        // La decision se toma con el stock de la base, no con el snapshot: el snapshot no ve las ventas de otras
+        // instancias y un descarte equivocado no se reintenta (la fila del outbox ya se dio por procesada)
+        List<Product> products = productRepository.findWithProvidersByIdIn(productIds);
+        event.setProductsScanned(products.size());
+        List<ProductProvider> toReorder = selectReorders(products);
+        event.setReorders(toReorder.size());
+
+        if (toReorder.isEmpty()) {
+            return;
+        }
+
+        Set<Long> providerIds = toReorder.stream()
+                .map(pp -> pp.getProvider().getId())
+                .collect(Collectors.toSet());
+
+        // Buscamos si ya hay una orden pendiente para cada proveedor (la mas antigua, como findFirst)
         Map<Long, PurchaseOrder> pendingOrdersByProvider = new HashMap<>();
+        for (PurchaseOrder order : orderRepository.findWithDetailsByProviderIdInAndState(providerIds, PurchaseOrderState.PENDIENTE)) {
+            pendingOrdersByProvider.putIfAbsent(order.getProvider().getId(), order);
+        }
 
-        for (SaleDetail detail : saleDetails) {
-            Product product = productRepository.findById(detail.getProduct().getId())
-                    .orElseThrow(() -> new EntityNotFoundException("Product not found with id: " + detail.getProduct().getId()));
+        int linesBefore = lineCount(pendingOrdersByProvider.values());
+        Set<PurchaseOrder> touched = addReorderDetails(toReorder, pendingOrdersByProvider);
+        int linesAdded = lineCount(pendingOrdersByProvider.values()) - linesBefore;
+        reorderPointLines.increment(linesAdded);
+        event.setOrdersTouched(touched.size());
+        event.setLinesAdded(linesAdded);
+
+        // Guardamos las órdenes (nuevas o modificadas)
+        orderRepository.saveAll(touched);
+    }
 
+    // Decision de reposicion (sin acceso a la base): vinculo producto-proveedor predeterminado de cada
+    // producto de lote fijo bajo el punto de pedido
+    static List<ProductProvider> selectReorders(Collection<Product> products) {
+        List<ProductProvider> toReorder = new ArrayList<>();
+        for (Product product : products) {
             if (product.getInventoryPolicy() != InventoryPolicy.LOTE_FIJO)
                 continue;
 
             FixedLotPolicy policy = product.getFixedLotPolicy();
-            if (policy == null)
+            if (policy == null || policy.getReorderPoint() == null || policy.getOptimalLotSize() == null)
                 continue;
 
             boolean belowReorder = product.getCurrentStock() < policy.getReorderPoint();
@@ -221,28 +515,34 @@ public class PurchaseOrderService {
             ProductProvider defaultProvider = product.getProductProviders().stream()
                     .filter(ProductProvider::getIsDefault)
                     .findFirst()
-                    .orElseThrow(() -> new RuntimeException("No hay proveedor predeterminado para el producto: " + product.getDescription()));
+                    .orElse(null);
+            if (defaultProvider == null) {
+                // Reintentar no lo arregla: se informa y se sigue con el resto de la ventana
+                log.warn("No hay proveedor predeterminado para el producto: {}", product.getDescription());
+                continue;
+            }
+
+            toReorder.add(defaultProvider);
+        }
+        return toReorder;
+    }
 
+    // Agrega a la orden pendiente de cada proveedor (o a una nueva) una linea por producto a reponer;
+    // devuelve las ordenes que hay que guardar
+    static Set<PurchaseOrder> addReorderDetails(List<ProductProvider> toReorder, Map<Long, PurchaseOrder> pendingOrdersByProvider) {
+        Set<PurchaseOrder> touched = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (ProductProvider defaultProvider : toReorder) {
+            Product product = defaultProvider.getProduct();
             Provider provider = defaultProvider.getProvider();
-            Long providerId = provider.getId();
-
-            PurchaseOrder order = pendingOrdersByProvider.get(providerId);
-            if (order == null) {
-                // Buscamos si ya hay una orden pendiente para este proveedor
-                order = orderRepository.findFirstByProviderIdAndPurchaseOrderState(providerId, PurchaseOrderState.PENDIENTE)
-                        .orElse(null);
-                if (order == null) {
-                    // Creamos nueva orden
-                    order = PurchaseOrder.builder()
-                            .createdAt(LocalDate.now())
-                            .purchaseOrderState(PurchaseOrderState.PENDIENTE)
-                            .provider(provider)
-                            .details(new ArrayList<>())
-                            .total(0.0)
-                            .build();
-                }
-                pendingOrdersByProvider.put(providerId, order);
-            }
+
+            // Creamos nueva orden si el proveedor no tiene una pendiente
+            PurchaseOrder order = pendingOrdersByProvider.computeIfAbsent(provider.getId(), id -> PurchaseOrder.builder()
+                    .createdAt(LocalDate.now())
+                    .purchaseOrderState(PurchaseOrderState.PENDIENTE)
+                    .provider(provider)
+                    .details(new ArrayList<>())
+                    .total(0.0)
+                    .build());
 
             boolean alreadyAdded = order.getDetails().stream()
                     .anyMatch(d -> d.getProduct().getId().equals(product.getId()));
@@ -251,7 +551,7 @@ public class PurchaseOrderService {
                 continue;
             }
 
-            Integer quantity = policy.getOptimalLotSize();
+            Integer quantity = product.getFixedLotPolicy().getOptimalLotSize();
             Double price = defaultProvider.getUnitCost();
             Double subtotal = quantity * price;
 
@@ -265,97 +565,37 @@ public class PurchaseOrderService {
 
             order.getDetails().add(orderDetail);
             order.setTotal(order.getTotal() + subtotal);
+            touched.add(order);
         }
-
-        // Guardamos las órdenes (nuevas o modificadas)
-        for (PurchaseOrder order : pendingOrdersByProvider.values()) {
-            orderRepository.save(order);
-        }
+        return touched;
     }
+
+    // Completa la corrida del dia de ScheduledPurchaseOrderJob (chunks con su propio commit, sin transaccion externa)
     @Scheduled(cron = "0 0 2 * * *")// Todos los días a las 2:00 AM
     //@Scheduled(cron = "*/15 * * * * *") //para pruebas cada 15 segundos
-    @Transactional
     public void generateScheduledPurchaseOrders() {
-        LocalDate today = LocalDate.now();
-        Map<Long, PurchaseOrder> pendingOrdersByProvider = new HashMap<>();
-
-        List<Product> products = productRepository.findAll();
-        for (Product product : products) {
-            if (product.getInventoryPolicy() != InventoryPolicy.INTERVALO_FIJO)
-                continue;
-
-            FixedIntervalPolicy policy = product.getFixedIntervalPolicy();
-            if (policy == null || policy.getReviewIntervalDays() == null)
-                continue;
-            if(policy.getLastReviewDate() != null) {
-                LocalDate nextReview = policy.getLastReviewDate().plusDays(policy.getReviewIntervalDays());
-                if (!today.isAfter(nextReview) && !today.isEqual(nextReview))
-                    continue;
-            }
-
-            // Proveedor predeterminado
-            ProductProvider defaultProvider = product.getProductProviders().stream()
-                    .filter(ProductProvider::getIsDefault)
-                    .findFirst()
-                    .orElse(null);
-
-            if (defaultProvider == null)
-                continue;
-
-            int reviewInterval = policy.getReviewIntervalDays();
-            int leadTime = defaultProvider.getLeadTime() != null ? defaultProvider.getLeadTime() : 0;
-            int safetyStock = policy.getSafetyStock() != null ? policy.getSafetyStock() : 0;
-            int currentStock = product.getCurrentStock() != null ? product.getCurrentStock() : 0;
-            int annualDemand = product.getAnnualDemand() != null ? product.getAnnualDemand() : 0;
-
-            double dailyDemand = annualDemand / 365.0;
-            int quantity = (int) Math.ceil(dailyDemand * (reviewInterval + leadTime) + safetyStock - currentStock);
-            if (quantity <= 0)
-                continue;
-
-            Provider provider = defaultProvider.getProvider();
-            Long providerId = provider.getId();
-
-            PurchaseOrder order = pendingOrdersByProvider.get(providerId);
-            if (order == null) {
-                order = orderRepository.findFirstByProviderIdAndPurchaseOrderState(providerId, PurchaseOrderState.PENDIENTE)
-                        .orElse(null);
-                if (order == null) {
-                    order = PurchaseOrder.builder()
-                            .createdAt(today)
-                            .purchaseOrderState(PurchaseOrderState.PENDIENTE)
-                            .provider(provider)
-                            .details(new ArrayList<>())
-                            .total(0.0)
-                            .build();
-                }
-                pendingOrdersByProvider.put(providerId, order);
-            }
-
-            double price = defaultProvider.getUnitCost();
-            double subtotal = quantity * price;
-
-            PurchaseOrderDetail detail = PurchaseOrderDetail.builder()
-                    .product(product)
-                    .quantity(quantity)
-                    .price(price)
-                    .subtotal(subtotal)
-                    .purchaseOrder(order)
-                    .build();
-
-            order.getDetails().add(detail);
-            order.setTotal(order.getTotal() + subtotal);
-
-            policy.setLastReviewDate(today);
+        ScheduledOrderGenerationEvent event = new ScheduledOrderGenerationEvent();
+        event.begin();
+        try {
+            ScheduledPurchaseOrderJob.Summary summary = scheduledTimer.record(() -> scheduledOrderJob.run(LocalDate.now()));
+            scheduledLines.increment(summary.linesAdded());
+            event.setProductsScanned(summary.productsScanned());
+            event.setOrdersTouched(summary.ordersTouched());
+            event.setLinesAdded(summary.linesAdded());
+        } finally {
+            event.commit();
         }
+    }
 
-        for (PurchaseOrder order : pendingOrdersByProvider.values()) {
-            orderRepository.save(order);
+    private static int lineCount(Collection<PurchaseOrder> orders) {
+        int lines = 0;
+        for (PurchaseOrder order : orders) {
+            lines += order.getDetails().size();
         }
+        return lines;
     }
 
-
-    private PurchaseOrderResponse mapToResponse(PurchaseOrder order) {
+    PurchaseOrderResponse mapToResponse(PurchaseOrder order) {
         return PurchaseOrderResponse.builder()
                 .id(order.getId())
                 .createdAt(order.getCreatedAt())
@@ -0,0 +1,221 @@
+package com.omega.retail.service;
+
+import com.omega.retail.config.WorkerThreads;
+import com.omega.retail.dto.response.RecalculationQueueResponse;
+import com.omega.retail.entity.Product;
+import com.omega.retail.repository.ProductCalculationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Productos cuyos campos derivados (lote optimo, punto de pedido, inventario maximo, costo total) quedaron
+// desactualizados por una modificacion. La modificacion solo marca el producto (product.recalculation_requested_at,
+// en su misma transaccion) y lo encola al confirmarse; workers en segundo plano drenan la cola en batches con el
+// mismo recalculo JDBC de BulkRecalculationService. Cada producto aparece una sola vez en la cola y espera
+// debounce-ms desde su ultima marca, asi una edicion masiva se recalcula una vez por producto y no una por cambio.
+// La marca persistida cubre los reinicios: al arrancar y periodicamente se reencolan los pedidos pendientes
+@Slf4j
+@Service
+public class RecalculationQueue {
+
+    private final BulkRecalculationService bulkRecalculationService;
+    private final ProductCalculationRepository calculationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ScheduledExecutorService workers;
+    private final int workerCount;
+    private final long debounceNanos;
+    private final long maxDelayNanos;
+    private final long pollIntervalMs;
+    private final int batchSize;
+    private final Counter recalculated;
+    private final Counter failed;
+
+    // Producto -> cuando se puede recalcular. Un producto en proceso no se vuelve a reclamar hasta terminar
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    public RecalculationQueue(BulkRecalculationService bulkRecalculationService,
+                              ProductCalculationRepository calculationRepository,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              Environment environment,
+                              @Value("${retail.recalculation.queue.workers:2}") int workerCount,
+                              @Value("${retail.recalculation.queue.debounce-ms:500}") long debounceMs,
+                              @Value("${retail.recalculation.queue.max-delay-ms:5000}") long maxDelayMs,
+                              @Value("${retail.recalculation.queue.poll-interval-ms:200}") long pollIntervalMs,
+                              @Value("${retail.recalculation.queue.batch-size:500}") int batchSize) {
+        this.bulkRecalculationService = bulkRecalculationService;
+        this.calculationRepository = calculationRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.workerCount = workerCount;
+        this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMs);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(debounceMs, maxDelayMs));
+        this.pollIntervalMs = pollIntervalMs;
+        this.batchSize = batchSize;
+
+        this.workers = Executors.newScheduledThreadPool(workerCount,
+                WorkerThreads.factory(environment, "retail-recalculation-"));
+
+        Gauge.builder("retail.recalculation.queue.depth", pending, Map::size)
+                .description("Productos esperando recalculo de sus campos derivados")
+                .register(meterRegistry);
+        Gauge.builder("retail.recalculation.queue.in-flight", inFlight, Set::size)
+                .description("Productos recalculandose")
+                .register(meterRegistry);
+        this.recalculated = Counter.builder("retail.recalculation.queue.recalculated")
+                .description("Productos recalculados por la cola")
+                .register(meterRegistry);
+        this.failed = Counter.builder("retail.recalculation.queue.failed")
+                .description("Productos cuyo recalculo fallo y se reencolaron")
+                .register(meterRegistry);
+    }
+
+    // Para una entidad que el llamador ya va a guardar: la marca viaja en el mismo UPDATE
+    public void markDirty(Product product) {
+        product.setRecalculationRequestedAt(LocalDateTime.now());
+        enqueueAfterCommit(List.of(product.getId()));
+    }
+
+    // Para productos que no estan cargados (cambios en product_provider)
+    public void markDirty(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        calculationRepository.markRecalculationRequested(productIds, LocalDateTime.now());
+        enqueueAfterCommit(productIds);
+    }
+
+    public RecalculationQueueResponse status() {
+        return RecalculationQueueResponse.builder()
+                .queued(pending.size())
+                .inFlight(inFlight.size())
+                .pendingInDatabase(calculationRepository.countRecalculationRequested())
+                .workers(workerCount)
+                .debounceMs(TimeUnit.NANOSECONDS.toMillis(debounceNanos))
+                .build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        recover();
+        for (int i = 0; i < workerCount; i++) {
+            workers.scheduleWithFixedDelay(this::drain, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Red de seguridad: pedidos de otras instancias o que quedaron de antes de un reinicio
+    @Scheduled(fixedDelayString = "${retail.recalculation.queue.recover-interval-ms:300000}",
+            initialDelayString = "${retail.recalculation.queue.recover-interval-ms:300000}")
+    public void recover() {
+        List<Long> requested = calculationRepository.findRecalculationRequested();
+        long now = System.nanoTime();
+        requested.forEach(id -> pending.putIfAbsent(id, new Pending(now, now)));
+        if (!requested.isEmpty()) {
+            log.info("{} productos con recalculo pendiente reencolados", requested.size());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private void enqueueAfterCommit(Collection<Long> productIds) {
+        List<Long> ids = List.copyOf(productIds);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            ids.forEach(this::enqueue);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                ids.forEach(RecalculationQueue.this::enqueue);
+            }
+        });
+    }
+
+    // Cada marca corre el vencimiento debounce-ms, pero nunca mas alla de max-delay-ms desde la primera
+    private void enqueue(Long productId) {
+        long now = System.nanoTime();
+        pending.merge(productId, new Pending(now, now + debounceNanos), (current, next) ->
+                new Pending(current.firstMarkedAt(), Math.min(next.dueAt(), current.firstMarkedAt() + maxDelayNanos)));
+    }
+
+    private void drain() {
+        try {
+            List<Long> claimed;
+            while (!(claimed = claim()).isEmpty()) {
+                recalculate(claimed);
+            }
+        } catch (RuntimeException e) {
+            log.error("Error drenando la cola de recalculo", e);
+        }
+    }
+
+    private List<Long> claim() {
+        long now = System.nanoTime();
+        List<Long> claimed = new ArrayList<>();
+        for (Map.Entry<Long, Pending> entry : pending.entrySet()) {
+            if (claimed.size() == batchSize) {
+                break;
+            }
+            Long id = entry.getKey();
+            Pending value = entry.getValue();
+            if (value.dueAt() - now > 0 || !inFlight.add(id)) {
+                continue;
+            }
+            if (pending.remove(id, value)) {
+                claimed.add(id);
+            } else {
+                // Se volvio a marcar mientras lo reclamabamos: queda para el proximo vencimiento
+                inFlight.remove(id);
+            }
+        }
+        return claimed;
+    }
+
+    // Si un producto se vuelve a marcar durante el recalculo, su pedido es posterior a claimedAt: la marca
+    // persistida sobrevive y la cola lo vuelve a procesar cuando este termina
+    private void recalculate(List<Long> productIds) {
+        LocalDateTime claimedAt = LocalDateTime.now();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                bulkRecalculationService.recalculate(productIds);
+                calculationRepository.markRecalculated(productIds, claimedAt, LocalDateTime.now());
+            });
+            recalculated.increment(productIds.size());
+        } catch (RuntimeException e) {
+            log.warn("Fallo el recalculo de {} productos, se reencolan", productIds.size(), e);
+            failed.increment(productIds.size());
+            productIds.forEach(this::enqueue);
+        } finally {
+            productIds.forEach(inFlight::remove);
+        }
+    }
+
+    private record Pending(long firstMarkedAt, long dueAt) {
+    }
+}
@@ -0,0 +1,168 @@
+package com.omega.retail.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.omega.retail.entity.Product;
+import com.omega.retail.entity.Sale;
+import com.omega.retail.entity.SaleDetail;
+import com.omega.retail.enums.ExportFormat;
+import com.omega.retail.repository.SaleRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Exportacion de ventas en streaming: las ventas se recorren con un cursor y se escriben de a bloques,
+// limpiando el contexto de persistencia despues de cada bloque para que la memoria no crezca con el rango
+@Service
+public class SaleExportService {
+
+    private static final int CHUNK_SIZE = 500;
+    private static final String CSV_HEADER = "sale_id,date,total,detail_id,product_id,product_code,product_description,quantity,unit_price,subtotal";
+
+    private final SaleRepository saleRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public SaleExportService(SaleRepository saleRepository, EntityManager entityManager, ObjectMapper objectMapper) {
+        this.saleRepository = saleRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    // from y to son inclusivos; null deja el extremo abierto
+    @Transactional(readOnly = true)
+    public void export(LocalDate from, LocalDate to, ExportFormat format, OutputStream out) throws IOException {
+        LocalDateTime start = from != null ? from.atStartOfDay() : null;
+        LocalDateTime end = to != null ? to.plusDays(1).atStartOfDay() : null;
+
+        try (Stream<Sale> sales = saleRepository.streamByDateRange(start, end)) {
+            if (format == ExportFormat.CSV) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+                exportInChunks(sales, sale -> writeCsv(sale, writer), writer::flush);
+                writer.flush();
+            } else {
+                JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+                // Cada venta termina en '\n'; sin esto Jackson separa los valores raiz con un espacio
+                generator.setRootValueSeparator(null);
+                exportInChunks(sales, sale -> writeNdjson(sale, generator), generator::flush);
+                generator.flush();
+            }
+        }
+    }
+
+    private void exportInChunks(Stream<Sale> sales, SaleWriter writer, Flusher flusher) throws IOException {
+        List<Long> chunk = new ArrayList<>(CHUNK_SIZE);
+        Iterator<Sale> iterator = sales.iterator();
+        while (iterator.hasNext()) {
+            chunk.add(iterator.next().getId());
+            if (chunk.size() == CHUNK_SIZE) {
+                writeChunk(chunk, writer, flusher);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, writer, flusher);
+        }
+    }
+
+    // Los detalles del bloque se traen en una sola consulta; despues se vacia el contexto de persistencia
+    private void writeChunk(List<Long> chunk, SaleWriter writer, Flusher flusher) throws IOException {
+        Map<Long, Sale> withDetails = saleRepository.findWithDetailsByIdIn(chunk).stream()
+                .collect(Collectors.toMap(Sale::getId, Function.identity()));
+        for (Long id : chunk) {
+            writer.write(withDetails.get(id));
+        }
+        flusher.flush();
+        entityManager.clear();
+        chunk.clear();
+    }
+
+    // Mismos campos que SaleResponse, una venta por linea
+    private void writeNdjson(Sale sale, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", sale.getId());
+        writeNumber(generator, "total", sale.getTotal());
+        generator.writeStringField("date", sale.getDate() != null ? sale.getDate().toString() : null);
+        generator.writeArrayFieldStart("saleDetailResponses");
+        for (SaleDetail detail : sale.getDetails()) {
+            Product product = detail.getProduct();
+            generator.writeStartObject();
+            generator.writeNumberField("id", detail.getId());
+            writeNumber(generator, "quantity", detail.getQuantity());
+            writeNumber(generator, "unitPrice", detail.getUnitPrice());
+            writeNumber(generator, "subtotal", detail.getSubtotal());
+            generator.writeNumberField("productId", product.getId());
+            generator.writeStringField("productCode", product.getCode());
+            generator.writeStringField("productDescription", product.getDescription());
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    private void writeNumber(JsonGenerator generator, String field, Number value) throws IOException {
+        generator.writeFieldName(field);
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof Integer integer) {
+            generator.writeNumber(integer);
+        } else {
+            generator.writeNumber(value.doubleValue());
+        }
+    }
+
+    // Una fila por detalle (la cabecera de la venta se repite); una venta sin detalles deja esas columnas vacias
+    private void writeCsv(Sale sale, Writer writer) throws IOException {
+        String saleColumns = sale.getId() + "," + csv(sale.getDate()) + "," + csv(sale.getTotal());
+        if (sale.getDetails().isEmpty()) {
+            writer.write(saleColumns + ",,,,,,,\n");
+            return;
+        }
+        for (SaleDetail detail : sale.getDetails()) {
+            Product product = detail.getProduct();
+            writer.write(saleColumns + "," + detail.getId() + "," + product.getId() + ","
+                    + csv(product.getCode()) + "," + csv(product.getDescription()) + ","
+                    + csv(detail.getQuantity()) + "," + csv(detail.getUnitPrice()) + "," + csv(detail.getSubtotal()) + "\n");
+        }
+    }
+
+    private String csv(Object raw) {
+        if (raw == null) {
+            return "";
+        }
+        String value = raw.toString();
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    @FunctionalInterface
+    private interface SaleWriter {
+        void write(Sale sale) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Flusher {
+        void flush() throws IOException;
+    }
+}
@@ -1,46 +1,105 @@
 package com.omega.retail.service;
 
+import com.omega.retail.config.OutcomeTimer;
+import com.omega.retail.dto.request.SaleBatchRequest;
+import com.omega.retail.dto.request.SaleDetailRequest;
 import com.omega.retail.dto.request.SaleRequest;
+import com.omega.retail.dto.response.SaleBatchItemResponse;
+import com.omega.retail.dto.response.SaleBatchResponse;
+import com.omega.retail.dto.response.SaleCursorPageResponse;
 import com.omega.retail.dto.response.SaleDetailResponse;
 import com.omega.retail.dto.response.SaleResponse;
-import com.omega.retail.entity.Product;
 import com.omega.retail.entity.Sale;
 import com.omega.retail.entity.SaleDetail;
+import com.omega.retail.enums.StockMovementType;
 import com.omega.retail.event.SaleEvent;
+import com.omega.retail.event.jfr.SaleProcessingEvent;
 import com.omega.retail.repository.ProductRepository;
 import com.omega.retail.repository.SaleRepository;
+import com.omega.retail.repository.projection.ProductStockView;
+import com.omega.retail.repository.projection.SaleSummaryView;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.transaction.Transactional;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class SaleService {
 
+    private static final int MAX_CURSOR_PAGE_SIZE = 500;
+    private static final String EMPTY_SALE = "La venta no tiene detalles";
+
     private final SaleRepository saleRepository;
     private final ProductRepository productRepository;
+    private final ProductService productService;
     private final ApplicationEventPublisher eventPublisher;
+    private final OutcomeTimer createTimer;
+    private final DistributionSummary saleLines;
 
-    public SaleService(SaleRepository saleRepository, ProductRepository productRepository, ApplicationEventPublisher eventPublisher) {
+    public SaleService(SaleRepository saleRepository, ProductRepository productRepository,
+                       ProductService productService, ApplicationEventPublisher eventPublisher,
+                       MeterRegistry meterRegistry) {
         this.saleRepository = saleRepository;
         this.productRepository = productRepository;
+        this.productService = productService;
         this.eventPublisher = eventPublisher;
+        this.createTimer = new OutcomeTimer(meterRegistry, "retail.sale.create",
+                "Alta de una venta (validacion, descuento de stock e insert, sin el commit)", Tags.empty());
+        this.saleLines = DistributionSummary.builder("retail.sale.lines")
+                .description("Lineas por venta")
+                .register(meterRegistry);
     }
 
 
+    @Transactional
     public SaleResponse createSale(SaleRequest request) {
+        SaleProcessingEvent event = new SaleProcessingEvent();
+        event.begin();
+        try {
+            SaleResponse response = createTimer.record(() -> create(request));
+            event.setSuccess(true);
+            return response;
+        } finally {
+            event.setLines(hasDetails(request) ? request.getSaleDetail().size() : 0);
+            event.commit();
+        }
+    }
+
+    private SaleResponse create(SaleRequest request) {
+        if (!hasDetails(request)) {
+            throw new RuntimeException(EMPTY_SALE);
+        }
+        saleLines.record(request.getSaleDetail().size());
         Sale sale = Sale.builder()
                 .date(LocalDateTime.now())
                 .build();
 
+        Map<Long, ProductStockView> products = findProducts(request.getSaleDetail());
+
         List<SaleDetail> details = request.getSaleDetail().stream().map(detailReq -> {
-            Product product = productRepository.findById(detailReq.getProductId())
-                    .orElseThrow(() -> new EntityNotFoundException("Product not found with id: " + detailReq.getProductId()));
+            ProductStockView product = products.get(detailReq.getProductId());
+            if (product == null) {
+                throw new EntityNotFoundException("Product not found with id: " + detailReq.getProductId());
+            }
 
             if (product.getCurrentStock() < detailReq.getQuantity()) {
                 throw new RuntimeException("No hay suficiente stock de: " + product.getDescription());
@@ -52,11 +111,18 @@ public class SaleService {
                     .quantity(detailReq.getQuantity())
                     .unitPrice(detailReq.getUnitPrice())
                     .subtotal(subtotal)
-                    .product(product)
+                    .product(productRepository.getReferenceById(detailReq.getProductId()))
                     .sale(sale)
                     .build();
         }).toList();
 
+        // El chequeo de arriba es solo una validacion temprana: el que manda es el UPDATE condicionado
+        Map<Long, Integer> quantities = quantitiesByProduct(request);
+        Set<Long> insufficient = productService.reduceStock(quantities);
+        if (!insufficient.isEmpty()) {
+            throw new RuntimeException("No hay suficiente stock de: " + products.get(insufficient.iterator().next()).getDescription());
+        }
+
         sale.setDetails(details);
 
         Double total = details.stream()
@@ -66,11 +132,171 @@ public class SaleService {
 
         Sale savedSale = saleRepository.save(sale);
 
-        eventPublisher.publishEvent(new SaleEvent(this, details));
+        eventPublisher.publishEvent(new SaleEvent(this, quantities.keySet()));
 
         return mapToResponse(savedSale);
     }
 
+    @Transactional
+    public SaleBatchResponse createSales(SaleBatchRequest request) {
+        List<SaleRequest> requests = request.getSales();
+
+        // Una sola consulta para todos los productos del lote
+        Map<Long, ProductStockView> products = findProducts(requests.stream()
+                .filter(this::hasDetails)
+                .flatMap(saleReq -> saleReq.getSaleDetail().stream())
+                .toList());
+
+        Map<Long, Integer> remainingStock = new HashMap<>();
+        products.values().forEach(p -> remainingStock.put(p.getId(), p.getCurrentStock()));
+
+        List<SaleBatchItemResponse> results = new ArrayList<>();
+        List<PlannedSale> planned = new ArrayList<>();
+        Map<Long, Integer> stockToReduce = new HashMap<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            SaleRequest saleReq = requests.get(i);
+            results.add(SaleBatchItemResponse.builder().index(i).accepted(false).build());
+
+            String error = validateBatchSale(saleReq, products, remainingStock);
+            if (error != null) {
+                results.get(i).setMessage(error);
+                continue;
+            }
+
+            Map<Long, Integer> quantities = quantitiesByProduct(saleReq);
+            quantities.forEach((productId, quantity) -> {
+                remainingStock.merge(productId, -quantity, Integer::sum);
+                stockToReduce.merge(productId, quantity, Integer::sum);
+            });
+            planned.add(new PlannedSale(i, saleReq, quantities));
+        }
+
+        Set<Long> contended = productService.reduceStock(stockToReduce);
+        if (!contended.isEmpty()) {
+            planned = resolveContended(planned, contended, products, results);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Sale> acceptedSales = new ArrayList<>();
+        for (PlannedSale plannedSale : planned) {
+            Sale sale = Sale.builder().date(now).build();
+            List<SaleDetail> details = plannedSale.request().getSaleDetail().stream().map(detailReq ->
+                    SaleDetail.builder()
+                            .quantity(detailReq.getQuantity())
+                            .unitPrice(detailReq.getUnitPrice())
+                            .subtotal(detailReq.getQuantity() * detailReq.getUnitPrice())
+                            .product(productRepository.getReferenceById(detailReq.getProductId()))
+                            .sale(sale)
+                            .build()
+            ).toList();
+
+            sale.setDetails(details);
+            sale.setTotal(details.stream().mapToDouble(SaleDetail::getSubtotal).sum());
+            acceptedSales.add(sale);
+        }
+
+        // Los ids salen de la secuencia pooled: ventas y detalles se insertan en batches JDBC al hacer flush
+        saleRepository.saveAll(acceptedSales);
+
+        for (int i = 0; i < acceptedSales.size(); i++) {
+            Sale sale = acceptedSales.get(i);
+            SaleBatchItemResponse result = results.get(planned.get(i).index());
+            result.setAccepted(true);
+            result.setSaleId(sale.getId());
+            result.setTotal(sale.getTotal());
+        }
+
+        Set<Long> soldProductIds = planned.stream()
+                .flatMap(plannedSale -> plannedSale.quantities().keySet().stream())
+                .collect(Collectors.toSet());
+        if (!soldProductIds.isEmpty()) {
+            eventPublisher.publishEvent(new SaleEvent(this, soldProductIds));
+        }
+
+        return SaleBatchResponse.builder()
+                .received(requests.size())
+                .accepted(acceptedSales.size())
+                .rejected(requests.size() - acceptedSales.size())
+                .results(results)
+                .build();
+    }
+
+    // Otra transaccion consumio stock entre la lectura y el UPDATE agregado: las lineas de esos
+    // productos se reintentan venta por venta (en orden) y las ventas que no entran se compensan y rechazan
+    private List<PlannedSale> resolveContended(List<PlannedSale> planned, Set<Long> contended,
+                                               Map<Long, ProductStockView> products,
+                                               List<SaleBatchItemResponse> results) {
+        List<PlannedSale> accepted = new ArrayList<>();
+        for (PlannedSale sale : planned) {
+            Map<Long, Integer> contendedLines = new HashMap<>(sale.quantities());
+            contendedLines.keySet().retainAll(contended);
+            if (contendedLines.isEmpty()) {
+                accepted.add(sale);
+                continue;
+            }
+
+            Set<Long> insufficient = productService.reduceStock(contendedLines);
+            if (insufficient.isEmpty()) {
+                accepted.add(sale);
+                continue;
+            }
+
+            Map<Long, Integer> applied = new HashMap<>(sale.quantities());
+            applied.keySet().removeAll(insufficient);
+            // Revierte los descuentos de esta venta en la misma transaccion: AJUSTE positivo, no una VENTA positiva
+            productService.increaseStock(applied, StockMovementType.AJUSTE);
+
+            results.get(sale.index()).setMessage("No hay suficiente stock de: "
+                    + products.get(insufficient.iterator().next()).getDescription());
+        }
+        return accepted;
+    }
+
+    private Map<Long, ProductStockView> findProducts(List<SaleDetailRequest> details) {
+        Set<Long> productIds = details.stream()
+                .map(SaleDetailRequest::getProductId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        return productRepository.findStockByIdIn(productIds).stream()
+                .collect(Collectors.toMap(ProductStockView::getId, Function.identity()));
+    }
+
+    // Una venta sin lineas se guardaria con total 0 y sin movimientos de stock
+    private boolean hasDetails(SaleRequest saleReq) {
+        return saleReq.getSaleDetail() != null && !saleReq.getSaleDetail().isEmpty();
+    }
+
+    private Map<Long, Integer> quantitiesByProduct(SaleRequest saleReq) {
+        return saleReq.getSaleDetail().stream().collect(Collectors.groupingBy(
+                SaleDetailRequest::getProductId,
+                HashMap::new,
+                Collectors.summingInt(SaleDetailRequest::getQuantity)));
+    }
+
+    private String validateBatchSale(SaleRequest saleReq, Map<Long, ProductStockView> products,
+                                     Map<Long, Integer> remainingStock) {
+        if (!hasDetails(saleReq)) {
+            return EMPTY_SALE;
+        }
+        for (SaleDetailRequest detailReq : saleReq.getSaleDetail()) {
+            if (detailReq.getProductId() == null || detailReq.getQuantity() == null
+                    || detailReq.getQuantity() <= 0 || detailReq.getUnitPrice() == null) {
+                return "Detalle de venta inválido";
+            }
+            if (!products.containsKey(detailReq.getProductId())) {
+                return "Product not found with id: " + detailReq.getProductId();
+            }
+        }
+        for (Map.Entry<Long, Integer> entry : quantitiesByProduct(saleReq).entrySet()) {
+            if (remainingStock.get(entry.getKey()) < entry.getValue()) {
+                return "No hay suficiente stock de: " + products.get(entry.getKey()).getDescription();
+            }
+        }
+        return null;
+    }
+
     public List<SaleResponse> getAllSales() {
         return saleRepository.findAll().stream()
                 .map(this::mapToResponse)
@@ -87,10 +313,54 @@ public class SaleService {
         Pageable pageable = PageRequest.of(page, size);
         Page<Sale> salePage = saleRepository.findAllByOrderByDateDesc(pageable);
 
-        return salePage.map(this::mapToResponse);
+        List<Long> ids = salePage.getContent().stream().map(Sale::getId).toList();
+        Map<Long, Sale> withDetails = saleRepository.findWithDetailsByIdIn(ids).stream()
+                .collect(Collectors.toMap(Sale::getId, Function.identity()));
+
+        return salePage.map(sale -> mapToResponse(withDetails.get(sale.getId())));
     }
 
 
+    // Historial por cursor (date, id): solo cabeceras salvo que se pidan los detalles
+    public SaleCursorPageResponse getSalesByCursor(String cursor, int size, boolean withDetails) {
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new IllegalArgumentException("El tamaño de página debe estar entre 1 y " + MAX_CURSOR_PAGE_SIZE);
+        }
+
+        // Se pide una fila de mas para saber si hay pagina siguiente
+        List<SaleSummaryView> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = saleRepository.findLatestSummaries(size + 1);
+        } else {
+            SaleCursor position = SaleCursor.decode(cursor);
+            rows = saleRepository.findSummariesBefore(position.date(), position.id(), size + 1);
+        }
+
+        boolean hasNext = rows.size() > size;
+        List<SaleSummaryView> page = hasNext ? rows.subList(0, size) : rows;
+
+        List<SaleResponse> sales;
+        if (withDetails) {
+            Map<Long, Sale> withDetailsById = saleRepository.findWithDetailsByIdIn(page.stream().map(SaleSummaryView::getId).toList())
+                    .stream()
+                    .collect(Collectors.toMap(Sale::getId, Function.identity()));
+            sales = page.stream().map(row -> mapToResponse(withDetailsById.get(row.getId()))).toList();
+        } else {
+            sales = page.stream().map(row -> SaleResponse.builder()
+                    .id(row.getId())
+                    .date(row.getDate())
+                    .total(row.getTotal())
+                    .saleDetailResponses(null)
+                    .build()).toList();
+        }
+
+        SaleSummaryView last = page.isEmpty() ? null : page.get(page.size() - 1);
+        return SaleCursorPageResponse.builder()
+                .sales(sales)
+                .nextCursor(hasNext ? new SaleCursor(last.getDate(), last.getId()).encode() : null)
+                .build();
+    }
+
     public void deleteSale(Long id) {
         if (!saleRepository.existsById(id)) {
             throw new EntityNotFoundException("Sale not found with id: " + id);
@@ -99,7 +369,7 @@ public class SaleService {
     }
 
 
-    private SaleResponse mapToResponse(Sale sale) {
+    SaleResponse mapToResponse(Sale sale) {
         List<SaleDetailResponse> detailResponses = sale.getDetails().stream().map(detail -> SaleDetailResponse.builder()
                 .id(detail.getId())
                 .quantity(detail.getQuantity())
@@ -117,4 +387,27 @@ public class SaleService {
                 .saleDetailResponses(detailResponses)
                 .build();
     }
+
+    private record PlannedSale(int index, SaleRequest request, Map<Long, Integer> quantities) {
+    }
+
+    // Cursor opaco para el cliente: "<fecha ISO>|<id>" en base64 url-safe
+    private record SaleCursor(LocalDateTime date, Long id) {
+
+        String encode() {
+            String raw = date + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static SaleCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.lastIndexOf('|');
+                return new SaleCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                        Long.valueOf(raw.substring(separator + 1)));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Cursor inválido: " + cursor);
+            }
+        }
+    }
 }
@@ -0,0 +1,377 @@
+package com.omega.retail.service;
+
+import com.omega.retail.config.WorkerThreads;
+import com.omega.retail.entity.FixedIntervalPolicy;
+import com.omega.retail.entity.Product;
+import com.omega.retail.entity.ProductProvider;
+import com.omega.retail.entity.Provider;
+import com.omega.retail.entity.PurchaseOrder;
+import com.omega.retail.entity.PurchaseOrderDetail;
+import com.omega.retail.entity.ScheduledOrderCheckpoint;
+import com.omega.retail.enums.InventoryPolicy;
+import com.omega.retail.enums.PurchaseOrderState;
+import com.omega.retail.repository.ProductRepository;
+import com.omega.retail.repository.PurchaseOrderRepository;
+import com.omega.retail.repository.ScheduledOrderCheckpointRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Generacion nocturna de ordenes para los productos de intervalo fijo. Solo lee los productos con la revision
+// vencida (fixed_interval_policy.next_review_date), en chunks paginados por keyset y con un commit por chunk.
+// Los productos se reparten en particiones por proveedor predeterminado: dos particiones nunca tocan la misma orden
+// pendiente. Cada instancia corre retail.scheduled-orders.workers workers que toman particiones de
+// scheduled_order_checkpoint con un lease que vence; el avance queda en la misma fila y en la misma transaccion que
+// el chunk. Asi cada particion se procesa una sola vez aunque el cron dispare en todas las instancias, una corrida
+// cortada se retoma desde el ultimo chunk confirmado y el lease de un nodo caido lo toma otro al vencer
+@Slf4j
+@Service
+public class ScheduledPurchaseOrderJob {
+
+    private final ProductRepository productRepository;
+    private final PurchaseOrderRepository orderRepository;
+    private final ScheduledOrderCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService workers;
+    private final String nodeId;
+    private final int partitions;
+    private final int workerCount;
+    private final int chunkSize;
+    private final double leaseSeconds;
+    private final int maxAttempts;
+    private final long pollIntervalMs;
+    private final Counter failedPartitions;
+    // Una corrida a la vez por instancia (cron, reanudacion al arrancar o invocacion manual)
+    private final ReentrantLock running = new ReentrantLock();
+
+    public ScheduledPurchaseOrderJob(ProductRepository productRepository,
+                                     PurchaseOrderRepository orderRepository,
+                                     ScheduledOrderCheckpointRepository checkpointRepository,
+                                     PlatformTransactionManager transactionManager,
+                                     Environment environment,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${retail.cluster.node-id:}") String nodeId,
+                                     @Value("${retail.scheduled-orders.partitions:16}") int partitions,
+                                     @Value("${retail.scheduled-orders.workers:4}") int workerCount,
+                                     @Value("${retail.scheduled-orders.chunk-size:500}") int chunkSize,
+                                     @Value("${retail.scheduled-orders.lease.duration-seconds:60}") long leaseSeconds,
+                                     @Value("${retail.scheduled-orders.lease.max-attempts:3}") int maxAttempts,
+                                     @Value("${retail.scheduled-orders.lease.poll-interval-ms:1000}") long pollIntervalMs) {
+        this.productRepository = productRepository;
+        this.orderRepository = orderRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // pid@host si no se configura: distinto en cada instancia y en cada arranque
+        this.nodeId = nodeId.isBlank() ? ManagementFactory.getRuntimeMXBean().getName() : nodeId;
+        this.partitions = Math.max(1, partitions);
+        this.workerCount = Math.max(1, workerCount);
+        this.chunkSize = chunkSize;
+        this.leaseSeconds = leaseSeconds;
+        this.maxAttempts = maxAttempts;
+        this.pollIntervalMs = pollIntervalMs;
+        this.workers = Executors.newCachedThreadPool(WorkerThreads.factory(environment, "retail-scheduled-orders-"));
+        this.failedPartitions = Counter.builder("retail.scheduled-orders.partitions.failed")
+                .description("Particiones de la generacion programada que agotaron sus tomas sin terminar")
+                .register(meterRegistry);
+    }
+
+    // failedPartitions: particiones del dia que agotaron sus tomas (de todas las instancias)
+    public record Summary(int productsScanned, int ordersTouched, int linesAdded, int chunks, int failedPartitions) {
+    }
+
+    // Resultado de un chunk: ordenes guardadas (nuevas o completadas) y lineas agregadas
+    public record ChunkResult(Collection<PurchaseOrder> orders, int linesAdded) {
+    }
+
+    // Particion tomada por este nodo; token es el fencing token de la toma
+    private record Lease(Long id, int partitionIndex, int partitions, long lastProductId, long token) {
+    }
+
+    // Otro nodo tomo la particion (el lease vencio): el chunk en curso se descarta y la particion sigue alla
+    private static class LeaseLostException extends RuntimeException {
+        LeaseLostException(Lease lease) {
+            super("Se perdio el lease de la particion " + lease.partitionIndex() + " (token " + lease.token() + ")");
+        }
+    }
+
+    // Acumulado de esta instancia en una corrida (solo chunks confirmados)
+    private static class Totals {
+        final Set<Long> ordersTouched = ConcurrentHashMap.newKeySet();
+        final AtomicInteger productsScanned = new AtomicInteger();
+        final AtomicInteger linesAdded = new AtomicInteger();
+        final AtomicInteger chunks = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+    }
+
+    // Completa la corrida de today junto con las demas instancias: la primera crea las particiones y cada una toma
+    // las que estan libres hasta que no queda ninguna por terminar. Si ya termino en el dia no hace nada.
+    // El resumen cuenta solo lo que proceso esta instancia
+    public Summary run(LocalDate today) {
+        if (!running.tryLock()) {
+            log.warn("La generacion programada de ordenes ya esta en curso; se omite esta invocacion");
+            return new Summary(0, 0, 0, 0, 0);
+        }
+        try {
+            // Todas las instancias deben usar el mismo retail.scheduled-orders.partitions
+            transactionTemplate.executeWithoutResult(status -> checkpointRepository.createPartitions(today, partitions));
+            failExhausted(today);
+            if (!checkpointRepository.existsByRunDateAndFinishedAtIsNullAndFailedAtIsNull(today)) {
+                return new Summary(0, 0, 0, 0, failedPartitions(today));
+            }
+
+            Totals totals = new Totals();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < workerCount; i++) {
+                futures.add(workers.submit(() -> work(today, totals)));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw new RuntimeException("Fallo un worker de la generacion programada de ordenes", e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Generacion programada de ordenes interrumpida", e);
+                }
+            }
+
+            failExhausted(today);
+            Summary summary = new Summary(totals.productsScanned.get(), totals.ordersTouched.size(),
+                    totals.linesAdded.get(), totals.chunks.get(), failedPartitions(today));
+            log.info("Generacion programada de ordenes {} en {}: {} productos vencidos, {} lineas en {} ordenes, {} chunks, {} particiones fallidas",
+                    today, nodeId, summary.productsScanned(), summary.linesAdded(), summary.ordersTouched(), summary.chunks(),
+                    summary.failedPartitions());
+            if (totals.failures.get() > 0) {
+                // Una particion liberada se reintenta en la misma corrida hasta max-attempts tomas; despues queda fallida
+                throw new RuntimeException(totals.failures.get() + " tomas de particiones de la generacion programada de ordenes fallaron ("
+                        + summary.failedPartitions() + " particiones fallidas en el dia)");
+            }
+            return summary;
+        } finally {
+            running.unlock();
+        }
+    }
+
+    // Una corrida cortada por una caida se retoma al arrancar, sin esperar al proximo cron
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        LocalDate today = LocalDate.now();
+        if (checkpointRepository.existsByRunDateAndFinishedAtIsNullAndFailedAtIsNull(today)) {
+            log.info("Retomando la generacion programada de ordenes del {}", today);
+            workers.submit(() -> {
+                try {
+                    run(today);
+                } catch (RuntimeException e) {
+                    log.error("Error retomando la generacion programada de ordenes", e);
+                }
+            });
+        }
+    }
+
+    // Cada particion se marca una sola vez (la marca la hace una sola instancia): el contador suma sin repetir
+    private void failExhausted(LocalDate today) {
+        int failed = transactionTemplate.execute(status -> checkpointRepository.failExhausted(today, maxAttempts));
+        if (failed > 0) {
+            log.error("{} particiones de la generacion programada de ordenes del {} agotaron sus {} tomas sin terminar",
+                    failed, today, maxAttempts);
+            failedPartitions.increment(failed);
+        }
+    }
+
+    private int failedPartitions(LocalDate today) {
+        return (int) checkpointRepository.countByRunDateAndFailedAtIsNotNull(today);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    // Toma particiones libres hasta que no quede ninguna por terminar. Mientras otro nodo tenga un lease vigente se
+    // espera: si el nodo se cae, su particion se toma al vencer el lease. Las que procesan los demas workers de esta
+    // instancia no se esperan: el worker que la tiene la termina
+    private void work(LocalDate today, Totals totals) {
+        while (!Thread.currentThread().isInterrupted()) {
+            Optional<Lease> lease = claim(today);
+            if (lease.isPresent()) {
+                runPartition(today, lease.get(), totals);
+            } else if (checkpointRepository.countOutstanding(today, maxAttempts, nodeId) == 0) {
+                return;
+            } else {
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private Optional<Lease> claim(LocalDate today) {
+        return transactionTemplate.execute(status -> checkpointRepository.findClaimable(today, maxAttempts)
+                .map(id -> {
+                    checkpointRepository.lease(id, nodeId, leaseSeconds);
+                    ScheduledOrderCheckpoint checkpoint = checkpointRepository.findById(id).orElseThrow();
+                    if (checkpoint.getAttempts() > 1) {
+                        log.info("Particion {} tomada por {} (toma {}, anterior {})", checkpoint.getPartitionIndex(),
+                                nodeId, checkpoint.getAttempts(), checkpoint.getLeaseOwner());
+                    }
+                    return new Lease(id, checkpoint.getPartitionIndex(), checkpoint.getPartitions(),
+                            checkpoint.getLastProductId(), checkpoint.getFencingToken());
+                }));
+    }
+
+    private void runPartition(LocalDate today, Lease lease, Totals totals) {
+        long lastProductId = lease.lastProductId();
+        try {
+            while (true) {
+                long afterId = lastProductId;
+                List<Long> productIds = new ArrayList<>();
+                ChunkResult result = transactionTemplate.execute(status -> {
+                    // Primero el fencing: bloquea la fila del lease hasta el commit y renueva el vencimiento
+                    if (checkpointRepository.renew(lease.id(), lease.token(), leaseSeconds) == 0) {
+                        throw new LeaseLostException(lease);
+                    }
+                    productIds.addAll(productRepository.findDueForReview(today, afterId,
+                            lease.partitionIndex(), lease.partitions(), chunkSize));
+                    if (productIds.isEmpty()) {
+                        checkpointRepository.finish(lease.id(), lease.token());
+                        return null;
+                    }
+
+                    ChunkResult chunk = generateChunk(today, productIds);
+                    checkpointRepository.recordChunk(lease.id(), lease.token(), productIds.get(productIds.size() - 1),
+                            productIds.size(), chunk.linesAdded());
+                    return chunk;
+                });
+                if (result == null) {
+                    return;
+                }
+                lastProductId = productIds.get(productIds.size() - 1);
+                result.orders().forEach(order -> totals.ordersTouched.add(order.getId()));
+                totals.productsScanned.addAndGet(productIds.size());
+                totals.linesAdded.addAndGet(result.linesAdded());
+                totals.chunks.incrementAndGet();
+            }
+        } catch (LeaseLostException e) {
+            log.warn("{}: {}", nodeId, e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Error en la particion {} de la generacion programada de ordenes", lease.partitionIndex(), e);
+            totals.failures.incrementAndGet();
+            transactionTemplate.executeWithoutResult(status -> checkpointRepository.release(lease.id(), lease.token()));
+        }
+    }
+
+    // Evalua un chunk de productos vencidos en la transaccion del llamador: una consulta para los productos con sus
+    // proveedores y otra para las ordenes pendientes de esos proveedores. Agrega una linea por producto a reponer
+    // y marca la revision del dia (la politica recalcula su proxima revision)
+    public ChunkResult generateChunk(LocalDate today, Collection<Long> productIds) {
+        record Reorder(Product product, ProductProvider defaultProvider, int quantity) {
+        }
+
+        List<Reorder> reorders = new ArrayList<>();
+        for (Product product : productRepository.findWithProvidersByIdIn(productIds)) {
+            if (product.getInventoryPolicy() != InventoryPolicy.INTERVALO_FIJO)
+                continue;
+
+            FixedIntervalPolicy policy = product.getFixedIntervalPolicy();
+            if (policy == null || policy.getReviewIntervalDays() == null)
+                continue;
+
+            // Proveedor predeterminado (el mismo que usa la particion)
+            ProductProvider defaultProvider = product.getProductProviders().stream()
+                    .filter(ProductProvider::getIsDefault)
+                    .min(Comparator.comparing(pp -> pp.getProvider().getId()))
+                    .orElse(null);
+
+            if (defaultProvider == null)
+                continue;
+
+            int reviewInterval = policy.getReviewIntervalDays();
+            int leadTime = defaultProvider.getLeadTime() != null ? defaultProvider.getLeadTime() : 0;
+            int safetyStock = policy.getSafetyStock() != null ? policy.getSafetyStock() : 0;
+            int currentStock = product.getCurrentStock() != null ? product.getCurrentStock() : 0;
+            int annualDemand = product.getAnnualDemand() != null ? product.getAnnualDemand() : 0;
+
+            double dailyDemand = annualDemand / 365.0;
+            int quantity = (int) Math.ceil(dailyDemand * (reviewInterval + leadTime) + safetyStock - currentStock);
+            // Sin faltante no se revisa: sigue vencido y se vuelve a evaluar en la proxima corrida
+            if (quantity <= 0)
+                continue;
+
+            reorders.add(new Reorder(product, defaultProvider, quantity));
+        }
+        if (reorders.isEmpty()) {
+            return new ChunkResult(List.of(), 0);
+        }
+
+        Set<Long> providerIds = new HashSet<>();
+        reorders.forEach(reorder -> providerIds.add(reorder.defaultProvider().getProvider().getId()));
+
+        // La orden pendiente mas antigua de cada proveedor, o una nueva
+        Map<Long, PurchaseOrder> pendingOrdersByProvider = new HashMap<>();
+        for (PurchaseOrder order : orderRepository.findWithDetailsByProviderIdInAndState(providerIds, PurchaseOrderState.PENDIENTE)) {
+            pendingOrdersByProvider.putIfAbsent(order.getProvider().getId(), order);
+        }
+
+        Set<PurchaseOrder> touched = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Reorder reorder : reorders) {
+            Provider provider = reorder.defaultProvider().getProvider();
+            PurchaseOrder order = pendingOrdersByProvider.computeIfAbsent(provider.getId(), id -> PurchaseOrder.builder()
+                    .createdAt(today)
+                    .purchaseOrderState(PurchaseOrderState.PENDIENTE)
+                    .provider(provider)
+                    .details(new ArrayList<>())
+                    .total(0.0)
+                    .build());
+
+            double price = reorder.defaultProvider().getUnitCost();
+            double subtotal = reorder.quantity() * price;
+
+            order.getDetails().add(PurchaseOrderDetail.builder()
+                    .product(reorder.product())
+                    .quantity(reorder.quantity())
+                    .price(price)
+                    .subtotal(subtotal)
+                    .purchaseOrder(order)
+                    .build());
+            order.setTotal(order.getTotal() + subtotal);
+            touched.add(order);
+
+            reorder.product().getFixedIntervalPolicy().setLastReviewDate(today);
+        }
+
+        // Las ordenes y sus detalles se insertan en batches JDBC al hacer flush
+        List<PurchaseOrder> saved = orderRepository.saveAll(touched);
+        return new ChunkResult(saved, reorders.size());
+    }
+}
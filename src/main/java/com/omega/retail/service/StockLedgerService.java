@@ -0,0 +1,68 @@
+package com.omega.retail.service;
+
+import com.omega.retail.dto.response.ProductStockAtDateResponse;
+import com.omega.retail.dto.response.StockMovementResponse;
+import com.omega.retail.repository.StockMovementRepository;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+// Consultas historicas sobre el libro de movimientos y compactacion diaria en stock_snapshot. current_stock sigue
+// siendo el saldo vigente (el descuento condicionado es el que impide vender de mas); el libro guarda como se llego
+@Slf4j
+@Service
+public class StockLedgerService {
+
+    private final StockMovementRepository stockMovementRepository;
+
+    public StockLedgerService(StockMovementRepository stockMovementRepository) {
+        this.stockMovementRepository = stockMovementRepository;
+    }
+
+    public ProductStockAtDateResponse getStockAt(Long productId, LocalDate date) {
+        Map<Long, Integer> stock = stockMovementRepository.findStockAt(List.of(productId), date);
+        if (!stock.containsKey(productId)) {
+            throw new EntityNotFoundException("Product with id " + productId + "not found");
+        }
+        return ProductStockAtDateResponse.builder()
+                .productId(productId)
+                .date(date)
+                .stock(stock.get(productId))
+                .build();
+    }
+
+    public List<StockMovementResponse> getMovements(Long productId, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new RuntimeException("La fecha desde no puede ser posterior a la fecha hasta");
+        }
+        return stockMovementRepository.findMovements(productId, from, to).stream()
+                .map(movement -> StockMovementResponse.builder()
+                        .id(movement.getId())
+                        .productId(movement.getProductId())
+                        .movementType(movement.getMovementType())
+                        .quantity(movement.getQuantity())
+                        .occurredAt(movement.getOccurredAt())
+                        .build())
+                .toList();
+    }
+
+    // Solo se compactan dias cerrados: un movimiento registrado ayer cuya transaccion confirma hoy ya quedo en el libro
+    @Scheduled(cron = "${retail.stock.snapshot.cron:0 30 0 * * *}")
+    public void compactYesterday() {
+        compact(LocalDate.now().minusDays(1));
+    }
+
+    public int compact(LocalDate date) {
+        if (!date.isBefore(LocalDate.now())) {
+            throw new RuntimeException("Solo se pueden compactar dias cerrados");
+        }
+        int snapshots = stockMovementRepository.compact(date);
+        log.info("Libro de stock compactado al {}: {} snapshots", date, snapshots);
+        return snapshots;
+    }
+}
@@ -0,0 +1,18 @@
+-- Las entidades usan secuencias con optimizador pooled (allocationSize = 50): cada instancia reserva
+-- bloques de 50 ids. Al pasar de IDENTITY a secuencias, se adelanta cada secuencia por encima de los
+-- ids existentes para que los bloques nuevos no choquen. Es idempotente: nunca hace retroceder la secuencia.
+
+SELECT setval('product_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM product) + 50, (SELECT last_value FROM product_seq)));
+SELECT setval('fixed_lot_policy_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM fixed_lot_policy) + 50, (SELECT last_value FROM fixed_lot_policy_seq)));
+SELECT setval('fixed_interval_policy_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM fixed_interval_policy) + 50, (SELECT last_value FROM fixed_interval_policy_seq)));
+SELECT setval('provider_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM provider) + 50, (SELECT last_value FROM provider_seq)));
+SELECT setval('product_provider_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM product_provider) + 50, (SELECT last_value FROM product_provider_seq)));
+SELECT setval('purchase_order_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM purchase_order) + 50, (SELECT last_value FROM purchase_order_seq)));
+SELECT setval('purchase_order_detail_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM purchase_order_detail) + 50, (SELECT last_value FROM purchase_order_detail_seq)));
+SELECT setval('sale_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM sale) + 50, (SELECT last_value FROM sale_seq)));
+SELECT setval('sale_detail_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM sale_detail) + 50, (SELECT last_value FROM sale_detail_seq)));
+
+-- Politicas de intervalo fijo anteriores a next_review_date: se completa una sola vez con la misma regla que
+-- FixedIntervalPolicy.updateNextReviewDate (ultima revision + intervalo; sin revision, vence en el dia)
+UPDATE fixed_interval_policy SET next_review_date = COALESCE(last_review_date + review_interval_days, CURRENT_DATE)
+WHERE next_review_date IS NULL AND review_interval_days IS NOT NULL;
@@ -0,0 +1,46 @@
+package com.omega.retail.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+// El scrape de Prometheus trae las metricas de negocio, del pool y de Hibernate, sin tags por producto u orden
+@SpringBootTest(properties = "retail.metrics.hibernate-statistics=true")
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+class PrometheusEndpointTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void exposesBusinessPoolAndHibernateMetrics() throws Exception {
+        MvcResult result = mockMvc.perform(get("/actuator/prometheus")).andReturn();
+
+        assertEquals(200, result.getResponse().getStatus());
+        String body = result.getResponse().getContentAsString();
+        List.of("retail_sale_create_seconds_count",
+                "retail_stock_update_seconds_count",
+                "retail_purchase_orders_generate_seconds_count",
+                "retail_calculation_update_seconds_count",
+                "retail_calculation_bulk_seconds_count",
+                "retail_inventory_below_safety_stock",
+                "retail_purchase_orders{",
+                "hikaricp_connections_active",
+                "hibernate_statements_total"
+        ).forEach(metric -> assertTrue(body.contains(metric), () -> "Falta " + metric));
+        assertFalse(body.contains("productId="));
+        assertFalse(body.contains("orderId="));
+    }
+}
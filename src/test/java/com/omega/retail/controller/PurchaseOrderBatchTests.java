@@ -0,0 +1,168 @@
+package com.omega.retail.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.omega.retail.config.sql.SqlStatsFilter;
+import com.omega.retail.dto.request.PurchaseOrderBatchRequest;
+import com.omega.retail.dto.request.PurchaseOrderDetailRequest;
+import com.omega.retail.dto.request.PurchaseOrderRequest;
+import com.omega.retail.dto.response.PurchaseOrderBatchItemResponse;
+import com.omega.retail.dto.response.PurchaseOrderBatchResponse;
+import com.omega.retail.dto.response.PurchaseOrderResponse;
+import com.omega.retail.entity.FixedLotPolicy;
+import com.omega.retail.entity.Product;
+import com.omega.retail.entity.ProductProvider;
+import com.omega.retail.entity.Provider;
+import com.omega.retail.enums.InventoryPolicy;
+import com.omega.retail.enums.ProductProviderState;
+import com.omega.retail.enums.ProductState;
+import com.omega.retail.enums.ProviderState;
+import com.omega.retail.enums.PurchaseOrderState;
+import com.omega.retail.repository.ProductRepository;
+import com.omega.retail.repository.ProviderRepository;
+import com.omega.retail.repository.PurchaseOrderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+// Alta de ordenes con cientos de lineas: productos, precios y ordenes activas se resuelven con un numero fijo de
+// consultas, sin importar la cantidad de lineas ni de ordenes del lote
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("debug")
+class PurchaseOrderBatchTests {
+
+    private static final int LINES = 100;
+    private static final double UNIT_COST = 5.0;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private ProviderRepository providerRepository;
+    @Autowired
+    private PurchaseOrderRepository purchaseOrderRepository;
+
+    @Value("${retail.sql.query-budget}")
+    private int queryBudget;
+
+    private final List<Provider> providers = new ArrayList<>();
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void createFixtures() {
+        providers.add(providerRepository.save(Provider.builder().name("Proveedor lote A").providerState(ProviderState.ALTA).build()));
+        providers.add(providerRepository.save(Provider.builder().name("Proveedor lote B").providerState(ProviderState.ALTA).build()));
+
+        for (int i = 0; i < 3 * LINES; i++) {
+            Product product = Product.builder()
+                    .code("POB-" + i)
+                    .description("Producto lote " + i)
+                    .currentStock(100)
+                    .annualDemand(365)
+                    .storageCost(1.0)
+                    .productState(ProductState.ALTA)
+                    .inventoryPolicy(InventoryPolicy.LOTE_FIJO)
+                    .fixedLotPolicy(new FixedLotPolicy())
+                    .productProviders(new ArrayList<>())
+                    .build();
+            product.getProductProviders().add(ProductProvider.builder()
+                    .product(product)
+                    .provider(providers.get(0))
+                    .unitCost(UNIT_COST)
+                    .leadTime(3)
+                    .isDefault(true)
+                    .productProviderState(ProductProviderState.ALTA)
+                    .build());
+            products.add(product);
+        }
+        productRepository.saveAll(products);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        purchaseOrderRepository.deleteAll(purchaseOrderRepository.findWithDetailsByProviderIdInAndState(
+                providers.stream().map(Provider::getId).toList(), PurchaseOrderState.PENDIENTE));
+        productRepository.deleteAll(products);
+        providerRepository.deleteAll(providers);
+    }
+
+    @Test
+    void batchResolvesPricesAndConflictsWithinQueryBudget() throws Exception {
+        PurchaseOrderBatchRequest request = PurchaseOrderBatchRequest.builder().orders(List.of(
+                order(providers.get(0), products.subList(0, LINES)),
+                order(providers.get(0), products.subList(LINES, 2 * LINES)),
+                // Producto que ya quedo en la primera orden del lote
+                order(providers.get(1), products.subList(LINES / 2, LINES / 2 + 1)),
+                PurchaseOrderRequest.builder()
+                        .providerId(providers.get(0).getId())
+                        .details(List.of(new PurchaseOrderDetailRequest(-1L, 1)))
+                        .build()
+        )).build();
+
+        MvcResult result = perform("/api/purchase-orders/batch", request);
+
+        assertEquals(200, result.getResponse().getStatus());
+        PurchaseOrderBatchResponse response = objectMapper.readValue(
+                result.getResponse().getContentAsString(), PurchaseOrderBatchResponse.class);
+        assertEquals(2, response.getAccepted());
+        assertEquals(2, response.getRejected());
+        List<PurchaseOrderBatchItemResponse> results = response.getResults();
+        assertTrue(results.get(0).getAccepted());
+        assertEquals(LINES * 2 * UNIT_COST, results.get(0).getTotal());
+        assertTrue(results.get(1).getAccepted());
+        assertFalse(results.get(2).getAccepted());
+        assertTrue(results.get(2).getMessage().startsWith("Ya existe una orden activa"));
+        assertEquals("Producto no encontrado", results.get(3).getMessage());
+        assertWithinBudget(result);
+    }
+
+    @Test
+    void singleOrderWithManyLinesStaysWithinQueryBudget() throws Exception {
+        MvcResult result = perform("/api/purchase-orders", order(providers.get(0), products.subList(2 * LINES, 3 * LINES)));
+
+        assertEquals(201, result.getResponse().getStatus());
+        PurchaseOrderResponse response = objectMapper.readValue(
+                result.getResponse().getContentAsString(), PurchaseOrderResponse.class);
+        assertEquals(LINES, response.getDetails().size());
+        assertEquals(LINES * 2 * UNIT_COST, response.getTotal());
+        assertWithinBudget(result);
+    }
+
+    private PurchaseOrderRequest order(Provider provider, List<Product> lines) {
+        return PurchaseOrderRequest.builder()
+                .providerId(provider.getId())
+                .details(lines.stream().map(product -> new PurchaseOrderDetailRequest(product.getId(), 2)).toList())
+                .build();
+    }
+
+    private MvcResult perform(String uri, Object body) throws Exception {
+        return mockMvc.perform(post(uri)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(body))).andReturn();
+    }
+
+    private void assertWithinBudget(MvcResult result) {
+        int statements = Integer.parseInt(result.getResponse().getHeader(SqlStatsFilter.STATEMENTS_HEADER));
+        assertTrue(statements <= queryBudget,
+                () -> "Se ejecutaron " + statements + " sentencias SQL (presupuesto: " + queryBudget + ")");
+    }
+}
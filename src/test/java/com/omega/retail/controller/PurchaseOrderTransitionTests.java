@@ -0,0 +1,198 @@
+package com.omega.retail.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.omega.retail.config.sql.SqlStatsFilter;
+import com.omega.retail.dto.request.PurchaseOrderBatchRequest;
+import com.omega.retail.dto.request.PurchaseOrderDetailRequest;
+import com.omega.retail.dto.request.PurchaseOrderIdsRequest;
+import com.omega.retail.dto.request.PurchaseOrderRequest;
+import com.omega.retail.dto.response.PurchaseOrderBatchItemResponse;
+import com.omega.retail.dto.response.PurchaseOrderBatchResponse;
+import com.omega.retail.dto.response.PurchaseOrderTransitionItemResponse;
+import com.omega.retail.dto.response.PurchaseOrderTransitionResponse;
+import com.omega.retail.entity.FixedLotPolicy;
+import com.omega.retail.entity.Product;
+import com.omega.retail.entity.ProductProvider;
+import com.omega.retail.entity.Provider;
+import com.omega.retail.enums.InventoryPolicy;
+import com.omega.retail.enums.ProductProviderState;
+import com.omega.retail.enums.ProductState;
+import com.omega.retail.enums.ProviderState;
+import com.omega.retail.enums.PurchaseOrderState;
+import com.omega.retail.repository.ProductRepository;
+import com.omega.retail.repository.ProviderRepository;
+import com.omega.retail.repository.PurchaseOrderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+// Envio y recepcion de muchas ordenes en una llamada: la transicion se valida en la base, el stock se repone con
+// un UPDATE agregado y las ordenes rechazadas explican por que
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("debug")
+class PurchaseOrderTransitionTests {
+
+    private static final int ORDERS = 20;
+    private static final int LINES = 10;
+    private static final int STOCK = 100;
+    private static final int QUANTITY = 3;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private ProviderRepository providerRepository;
+    @Autowired
+    private PurchaseOrderRepository purchaseOrderRepository;
+
+    @Value("${retail.sql.query-budget}")
+    private int queryBudget;
+
+    private Provider provider;
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void createFixtures() {
+        provider = providerRepository.save(Provider.builder().name("Proveedor transicion").providerState(ProviderState.ALTA).build());
+
+        for (int i = 0; i < ORDERS * LINES; i++) {
+            Product product = Product.builder()
+                    .code("POT-" + i)
+                    .description("Producto transicion " + i)
+                    .currentStock(STOCK)
+                    .annualDemand(365)
+                    .storageCost(1.0)
+                    .productState(ProductState.ALTA)
+                    .inventoryPolicy(InventoryPolicy.LOTE_FIJO)
+                    .fixedLotPolicy(new FixedLotPolicy())
+                    .productProviders(new ArrayList<>())
+                    .build();
+            product.getProductProviders().add(ProductProvider.builder()
+                    .product(product)
+                    .provider(provider)
+                    .unitCost(5.0)
+                    .leadTime(3)
+                    .isDefault(true)
+                    .productProviderState(ProductProviderState.ALTA)
+                    .build());
+            products.add(product);
+        }
+        productRepository.saveAll(products);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        for (PurchaseOrderState state : PurchaseOrderState.values()) {
+            purchaseOrderRepository.deleteAll(purchaseOrderRepository.findWithDetailsByProviderIdInAndState(
+                    List.of(provider.getId()), state));
+        }
+        productRepository.deleteAll(products);
+        providerRepository.delete(provider);
+    }
+
+    @Test
+    void sendsAndFinalizesManyOrdersWithinQueryBudget() throws Exception {
+        List<Long> ids = createOrders();
+        List<Long> sent = ids.subList(0, ORDERS - 1);
+        Long pending = ids.get(ORDERS - 1);
+
+        PurchaseOrderTransitionResponse send = transition("/api/purchase-orders/send", sent);
+        assertEquals(ORDERS - 1, send.getAccepted());
+
+        List<Long> toFinalize = new ArrayList<>(sent);
+        toFinalize.add(pending);
+        toFinalize.add(-1L);
+        toFinalize.add(sent.get(0));
+        MvcResult result = perform("/api/purchase-orders/finalize", toFinalize);
+        PurchaseOrderTransitionResponse finalized = objectMapper.readValue(
+                result.getResponse().getContentAsString(), PurchaseOrderTransitionResponse.class);
+
+        assertEquals(PurchaseOrderState.FINALIZADA, finalized.getTargetState());
+        assertEquals(ORDERS + 1, finalized.getReceived());
+        assertEquals(ORDERS - 1, finalized.getAccepted());
+        assertEquals(2, finalized.getRejected());
+        List<PurchaseOrderTransitionItemResponse> results = finalized.getResults();
+        assertTrue(results.get(0).getAccepted());
+        assertNull(results.get(0).getMessage());
+        assertFalse(results.get(ORDERS - 1).getAccepted());
+        assertEquals("Solo se puede finalizar una orden enviada", results.get(ORDERS - 1).getMessage());
+        assertEquals("Orden de compra no encontrada", results.get(ORDERS).getMessage());
+        assertWithinBudget(result);
+
+        // Solo las ordenes recibidas reponen stock, una vez aunque se repita el id
+        for (int i = 0; i < products.size(); i++) {
+            int expected = i < (ORDERS - 1) * LINES ? STOCK + QUANTITY : STOCK;
+            assertEquals(expected, productRepository.findById(products.get(i).getId()).orElseThrow().getCurrentStock());
+        }
+        // Los productos recibidos ya no tienen una orden activa y se pueden volver a pedir
+        PurchaseOrderBatchResponse reorder = createAll(List.of(order(products.subList(0, LINES))));
+        assertTrue(reorder.getResults().get(0).getAccepted());
+
+        PurchaseOrderTransitionResponse cancel = transition("/api/purchase-orders/cancel",
+                List.of(pending, sent.get(0)));
+        assertTrue(cancel.getResults().get(0).getAccepted());
+        assertEquals("Solo se puede cancelar una orden pendiente", cancel.getResults().get(1).getMessage());
+    }
+
+    private List<Long> createOrders() throws Exception {
+        List<PurchaseOrderRequest> orders = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            orders.add(order(products.subList(i * LINES, (i + 1) * LINES)));
+        }
+        return createAll(orders).getResults().stream().map(PurchaseOrderBatchItemResponse::getPurchaseOrderId).toList();
+    }
+
+    private PurchaseOrderBatchResponse createAll(List<PurchaseOrderRequest> orders) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/purchase-orders/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(PurchaseOrderBatchRequest.builder().orders(orders).build())))
+                .andReturn();
+        return objectMapper.readValue(result.getResponse().getContentAsString(), PurchaseOrderBatchResponse.class);
+    }
+
+    private PurchaseOrderRequest order(List<Product> lines) {
+        return PurchaseOrderRequest.builder()
+                .providerId(provider.getId())
+                .details(lines.stream().map(product -> new PurchaseOrderDetailRequest(product.getId(), QUANTITY)).toList())
+                .build();
+    }
+
+    private PurchaseOrderTransitionResponse transition(String uri, List<Long> ids) throws Exception {
+        MvcResult result = perform(uri, ids);
+        assertEquals(200, result.getResponse().getStatus());
+        return objectMapper.readValue(result.getResponse().getContentAsString(), PurchaseOrderTransitionResponse.class);
+    }
+
+    private MvcResult perform(String uri, List<Long> ids) throws Exception {
+        return mockMvc.perform(post(uri)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(PurchaseOrderIdsRequest.builder().ids(ids).build()))).andReturn();
+    }
+
+    private void assertWithinBudget(MvcResult result) {
+        int statements = Integer.parseInt(result.getResponse().getHeader(SqlStatsFilter.STATEMENTS_HEADER));
+        assertTrue(statements <= queryBudget,
+                () -> "Se ejecutaron " + statements + " sentencias SQL (presupuesto: " + queryBudget + ")");
+    }
+}
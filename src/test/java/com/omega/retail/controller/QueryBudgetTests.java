@@ -0,0 +1,185 @@
+package com.omega.retail.controller;
+
+import com.omega.retail.config.sql.SqlStatsFilter;
+import com.omega.retail.entity.FixedLotPolicy;
+import com.omega.retail.entity.Product;
+import com.omega.retail.entity.ProductProvider;
+import com.omega.retail.entity.Provider;
+import com.omega.retail.entity.PurchaseOrder;
+import com.omega.retail.entity.PurchaseOrderDetail;
+import com.omega.retail.entity.Sale;
+import com.omega.retail.entity.SaleDetail;
+import com.omega.retail.enums.InventoryPolicy;
+import com.omega.retail.enums.ProductProviderState;
+import com.omega.retail.enums.ProductState;
+import com.omega.retail.enums.ProviderState;
+import com.omega.retail.enums.PurchaseOrderState;
+import com.omega.retail.repository.ProductRepository;
+import com.omega.retail.repository.ProviderRepository;
+import com.omega.retail.repository.PurchaseOrderRepository;
+import com.omega.retail.repository.SaleRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+// Guarda contra N+1: con mas filas que el presupuesto, un listado que cargue asociaciones de a una lo supera
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("debug")
+class QueryBudgetTests {
+
+    private static final int ROWS = 30;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private ProviderRepository providerRepository;
+    @Autowired
+    private SaleRepository saleRepository;
+    @Autowired
+    private PurchaseOrderRepository purchaseOrderRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${retail.sql.query-budget}")
+    private int queryBudget;
+
+    private Provider provider;
+    private final List<Product> products = new ArrayList<>();
+    private final List<Sale> sales = new ArrayList<>();
+    private PurchaseOrder order;
+
+    @BeforeEach
+    void createFixtures() {
+        provider = providerRepository.save(Provider.builder()
+                .name("Proveedor presupuesto")
+                .providerState(ProviderState.ALTA)
+                .build());
+
+        for (int i = 0; i < ROWS; i++) {
+            Product product = Product.builder()
+                    .code("QB-" + i)
+                    .description("Producto presupuesto " + i)
+                    .currentStock(100)
+                    .annualDemand(365)
+                    .storageCost(1.0)
+                    .productState(ProductState.ALTA)
+                    .inventoryPolicy(InventoryPolicy.LOTE_FIJO)
+                    .fixedLotPolicy(new FixedLotPolicy())
+                    .productProviders(new ArrayList<>())
+                    .build();
+            product.getProductProviders().add(ProductProvider.builder()
+                    .product(product)
+                    .provider(provider)
+                    .unitCost(5.0)
+                    .leadTime(3)
+                    .isDefault(true)
+                    .productProviderState(ProductProviderState.ALTA)
+                    .build());
+            products.add(product);
+        }
+        productRepository.saveAll(products);
+
+        order = PurchaseOrder.builder()
+                .createdAt(LocalDate.now())
+                .purchaseOrderState(PurchaseOrderState.PENDIENTE)
+                .provider(provider)
+                .details(new ArrayList<>())
+                .total(0.0)
+                .build();
+        for (Product product : products) {
+            Sale sale = Sale.builder().date(LocalDateTime.now()).total(10.0).build();
+            sale.getDetails().add(SaleDetail.builder()
+                    .quantity(1)
+                    .unitPrice(10.0)
+                    .subtotal(10.0)
+                    .product(product)
+                    .sale(sale)
+                    .build());
+            sales.add(sale);
+
+            order.getDetails().add(PurchaseOrderDetail.builder()
+                    .quantity(1)
+                    .price(5.0)
+                    .subtotal(5.0)
+                    .product(product)
+                    .purchaseOrder(order)
+                    .build());
+        }
+        saleRepository.saveAll(sales);
+        order = purchaseOrderRepository.save(order);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        purchaseOrderRepository.deleteById(order.getId());
+        saleRepository.deleteAll(sales);
+        productRepository.deleteAll(products);
+        providerRepository.deleteById(provider.getId());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/api/products",
+            "/api/products/active",
+            "/api/products/provider/{providerId}",
+            "/api/sales",
+            "/api/sales/paged?page=0&size=" + ROWS,
+            "/api/sales/history?details=true&size=" + ROWS,
+            "/api/purchase-orders",
+            "/api/purchase-orders?state=PENDIENTE",
+            "/api/product-providers"
+    })
+    void listingStaysWithinQueryBudget(String uri) throws Exception {
+        MvcResult result = mockMvc.perform(get(uri, provider.getId())).andReturn();
+
+        assertEquals(200, result.getResponse().getStatus());
+        int statements = Integer.parseInt(result.getResponse().getHeader(SqlStatsFilter.STATEMENTS_HEADER));
+        assertTrue(statements <= queryBudget,
+                () -> uri + " ejecuto " + statements + " sentencias SQL (presupuesto: " + queryBudget + ")");
+    }
+
+    // El export en streaming no se bufferea: sin headers X-SQL-*, y sus contadores llegan como metricas al terminar
+    @Test
+    void streamingExportIsNotBufferedAndRecordsMetricsOnCompletion() throws Exception {
+        double before = exportStatements();
+
+        MvcResult started = mockMvc.perform(get("/api/sales/export")).andExpect(request().asyncStarted()).andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(started)).andReturn();
+
+        assertEquals(200, result.getResponse().getStatus());
+        assertNull(result.getResponse().getHeader(SqlStatsFilter.STATEMENTS_HEADER));
+        assertTrue(result.getResponse().getContentAsString().lines().count() >= ROWS);
+        assertEquals(before + 1, exportStatements());
+    }
+
+    private double exportStatements() {
+        DistributionSummary summary = meterRegistry.find("retail.sql.statements").tag("uri", "/api/sales/export").summary();
+        return summary == null ? 0 : summary.count();
+    }
+}
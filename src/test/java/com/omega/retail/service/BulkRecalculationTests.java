@@ -0,0 +1,146 @@
+package com.omega.retail.service;
+
+import com.omega.retail.dto.response.RecalculationResponse;
+import com.omega.retail.entity.FixedIntervalPolicy;
+import com.omega.retail.entity.FixedLotPolicy;
+import com.omega.retail.entity.Product;
+import com.omega.retail.entity.ProductProvider;
+import com.omega.retail.entity.Provider;
+import com.omega.retail.enums.InventoryPolicy;
+import com.omega.retail.enums.ProductProviderState;
+import com.omega.retail.enums.ProductState;
+import com.omega.retail.enums.ProviderState;
+import com.omega.retail.repository.ProductRepository;
+import com.omega.retail.repository.ProviderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// El recalculo masivo deja los valores de las formulas, con el costo total redondeado a centavos, y no reescribe nada
+// si se repite
+@SpringBootTest
+class BulkRecalculationTests {
+
+    private static final int PRODUCTS = 60;
+
+    private static final String SELECT_RESULTS = """
+        SELECT p.id, p.total_cost, flp.optimal_lot_size, flp.reorder_point, fip.max_inventory_level
+        FROM product p
+        LEFT JOIN fixed_lot_policy flp ON flp.id = p.fixed_lot_policy_id
+        LEFT JOIN fixed_interval_policy fip ON fip.id = p.fixed_interval_policy_id
+        WHERE p.id IN (:ids)
+        ORDER BY p.id
+    """;
+
+    @Autowired
+    private BulkRecalculationService bulkRecalculationService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private ProviderRepository providerRepository;
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    private Provider provider;
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void createProducts() {
+        provider = providerRepository.save(Provider.builder()
+                .name("Proveedor recalculo")
+                .providerState(ProviderState.ALTA)
+                .build());
+
+        for (int i = 0; i < PRODUCTS; i++) {
+            boolean lot = i % 2 == 0;
+            Product product = Product.builder()
+                    .code("RC-" + i)
+                    .description("Producto recalculo " + i)
+                    .currentStock(50)
+                    .annualDemand(100 + i * 37)
+                    .storageCost(0.5 + i % 7)
+                    .productState(ProductState.ALTA)
+                    .inventoryPolicy(lot ? InventoryPolicy.LOTE_FIJO : InventoryPolicy.INTERVALO_FIJO)
+                    .productProviders(new ArrayList<>())
+                    .build();
+            if (lot) {
+                FixedLotPolicy policy = new FixedLotPolicy();
+                policy.setSafetyStock(i % 13);
+                product.setFixedLotPolicy(policy);
+            } else {
+                FixedIntervalPolicy policy = new FixedIntervalPolicy();
+                policy.setSafetyStock(i % 13);
+                policy.setReviewIntervalDays(7 + i % 20);
+                product.setFixedIntervalPolicy(policy);
+            }
+            product.getProductProviders().add(ProductProvider.builder()
+                    .product(product)
+                    .provider(provider)
+                    .unitCost(3.5 + i)
+                    .shippingCost(10.0 + i % 5)
+                    .leadTime(1 + i % 9)
+                    .isDefault(true)
+                    .productProviderState(ProductProviderState.ALTA)
+                    .build());
+            products.add(product);
+        }
+        productRepository.saveAll(products);
+    }
+
+    @AfterEach
+    void deleteProducts() {
+        productRepository.deleteAll(products);
+        providerRepository.deleteById(provider.getId());
+    }
+
+    @Test
+    void writesExpectedDerivedFields() {
+        bulkRecalculationService.recalculateAll();
+        List<Map<String, Object>> results = results();
+
+        // RC-0, lote fijo: D = 100, S = 10, H = 0,5, C = 3,5, L = 1, SS = 0
+        assertResult(results.get(0), 375.5, 63, 0, null);
+        // RC-1, intervalo fijo: D = 137, S = 11, H = 1,5, C = 4,5, L = 2, T = 8, SS = 1 (1121,5619... redondeado)
+        assertResult(results.get(1), 1121.56, null, null, 5);
+        // RC-2, lote fijo: D = 174, S = 12, H = 2,5, C = 5,5, L = 3, SS = 2
+        assertResult(results.get(2), 1055.0, 41, 3, null);
+        // RC-3, intervalo fijo: D = 211, S = 13, H = 3,5, C = 6,5, L = 4, T = 10, SS = 3 (1861,2034... redondeado)
+        assertResult(results.get(3), 1861.2, null, null, 11);
+    }
+
+    @Test
+    void secondRunChangesNothing() {
+        bulkRecalculationService.recalculateAll();
+
+        RecalculationResponse second = bulkRecalculationService.recalculateAll();
+
+        assertEquals(0, second.getChangedProducts());
+        assertEquals(0, second.getUpdatedRows());
+    }
+
+    private static void assertResult(Map<String, Object> row, double totalCost, Integer optimalLotSize,
+                                     Integer reorderPoint, Integer maxInventoryLevel) {
+        assertEquals(totalCost, ((Number) row.get("total_cost")).doubleValue());
+        assertEquals(optimalLotSize, row.get("optimal_lot_size"));
+        assertEquals(reorderPoint, row.get("reorder_point"));
+        assertEquals(maxInventoryLevel, row.get("max_inventory_level"));
+    }
+
+    private List<Map<String, Object>> results() {
+        return jdbcTemplate.queryForList(SELECT_RESULTS, new MapSqlParameterSource("ids", ids()));
+    }
+
+    private List<Long> ids() {
+        return products.stream().map(Product::getId).toList();
+    }
+}
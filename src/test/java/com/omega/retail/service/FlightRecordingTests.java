@@ -0,0 +1,51 @@
+package com.omega.retail.service;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Una grabacion a pedido trae los eventos de negocio con sus campos
+@SpringBootTest
+class FlightRecordingTests {
+
+    @Autowired
+    private FlightRecordingService flightRecordingService;
+    @Autowired
+    private BulkRecalculationService bulkRecalculationService;
+
+    @Test
+    void recordingContainsCalculationBatchEvent() throws Exception {
+        assertThrows(RuntimeException.class, () -> flightRecordingService.start("/etc/passwd", 60L, 16L));
+        assertEquals("NONE", flightRecordingService.status().getState());
+
+        flightRecordingService.start("default", 60L, 16L);
+        assertEquals("RUNNING", flightRecordingService.status().getState());
+        assertThrows(RuntimeException.class, () -> flightRecordingService.start("default", 60L, 16L));
+
+        int products = bulkRecalculationService.recalculateAll().getProducts();
+
+        Path file = flightRecordingService.stop();
+        try {
+            assertEquals("NONE", flightRecordingService.status().getState());
+            List<RecordedEvent> batches = RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().equals("com.omega.retail.CalculationBatch"))
+                    .toList();
+            assertEquals(1, batches.size());
+            assertEquals("catalog", batches.get(0).getString("scope"));
+            assertEquals(products, batches.get(0).getInt("products"));
+            assertTrue(batches.get(0).getDuration().toNanos() > 0);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.omega.retail.service;
+
+import com.omega.retail.entity.FixedIntervalPolicy;
+import com.omega.retail.entity.FixedLotPolicy;
+import com.omega.retail.entity.Product;
+import com.omega.retail.entity.ProductProvider;
+import com.omega.retail.entity.Provider;
+import com.omega.retail.entity.Sale;
+import com.omega.retail.entity.SaleDetail;
+import com.omega.retail.enums.InventoryPolicy;
+import com.omega.retail.enums.ProductProviderState;
+import com.omega.retail.enums.ProductState;
+import com.omega.retail.enums.ProviderState;
+import com.omega.retail.repository.ProductRepository;
+import com.omega.retail.repository.ProviderRepository;
+import com.omega.retail.repository.SaleRepository;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Throughput de inserts con y sin batching JDBC. Sin batching (batch size 1) cada fila es un round trip,
+// que es lo que pasaba con IDENTITY; con la secuencia pooled Hibernate agrupa las filas en batches.
+// Cada ronda hace rollback, asi ambos modos trabajan sobre los mismos datos.
+// mvn test -Pbenchmark -Dtest=InsertBatchingBenchmarkTests
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest
+class InsertBatchingBenchmarkTests {
+
+    private static final int SALE_LINES = 1_000;
+    private static final int PROVIDERS = 20;
+    private static final int INTERVAL_PRODUCTS = 400;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 10;
+
+    @Autowired
+    private SaleRepository saleRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private ProviderRepository providerRepository;
+    @Autowired
+    private ScheduledPurchaseOrderJob scheduledOrderJob;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Product saleProduct;
+    private final List<Product> intervalProducts = new ArrayList<>();
+    private final List<Provider> providers = new ArrayList<>();
+
+    @BeforeEach
+    void createFixtures() {
+        FixedLotPolicy lotPolicy = new FixedLotPolicy();
+        saleProduct = productRepository.save(Product.builder()
+                .code("BATCH-SKU")
+                .description("Producto de benchmark")
+                .currentStock(1_000_000)
+                .annualDemand(1)
+                .storageCost(1.0)
+                .productState(ProductState.ALTA)
+                .inventoryPolicy(InventoryPolicy.LOTE_FIJO)
+                .fixedLotPolicy(lotPolicy)
+                .productProviders(new ArrayList<>())
+                .build());
+
+        for (int i = 0; i < PROVIDERS; i++) {
+            providers.add(Provider.builder()
+                    .name("Proveedor benchmark " + i)
+                    .providerState(ProviderState.ALTA)
+                    .build());
+        }
+        providerRepository.saveAll(providers);
+
+        for (int i = 0; i < INTERVAL_PRODUCTS; i++) {
+            FixedIntervalPolicy policy = new FixedIntervalPolicy();
+            policy.setReviewIntervalDays(7);
+            policy.setSafetyStock(10);
+
+            Product product = Product.builder()
+                    .code("INT-" + i)
+                    .description("Producto intervalo " + i)
+                    .currentStock(0)
+                    .annualDemand(3_650)
+                    .storageCost(1.0)
+                    .productState(ProductState.ALTA)
+                    .inventoryPolicy(InventoryPolicy.INTERVALO_FIJO)
+                    .fixedIntervalPolicy(policy)
+                    .productProviders(new ArrayList<>())
+                    .build();
+            product.getProductProviders().add(ProductProvider.builder()
+                    .product(product)
+                    .provider(providers.get(i % PROVIDERS))
+                    .unitCost(5.0)
+                    .leadTime(3)
+                    .isDefault(true)
+                    .productProviderState(ProductProviderState.ALTA)
+                    .build());
+            intervalProducts.add(product);
+        }
+        productRepository.saveAll(intervalProducts);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        productRepository.deleteAll(intervalProducts);
+        providerRepository.deleteAll(providers);
+        productRepository.deleteById(saleProduct.getId());
+    }
+
+    @Test
+    void largeSaleInsertThroughput() {
+        double unbatched = measure(1, this::insertLargeSale);
+        double batched = measure(null, this::insertLargeSale);
+
+        report("venta de " + SALE_LINES + " lineas", SALE_LINES + 1, unbatched, batched);
+        assertTrue(batched < unbatched);
+    }
+
+    @Test
+    void scheduledPurchaseOrdersThroughput() {
+        // Un solo chunk con todos los productos, en la transaccion de la ronda (la corrida completa confirma cada chunk)
+        List<Long> productIds = intervalProducts.stream().map(Product::getId).toList();
+        double unbatched = measure(1, () -> scheduledOrderJob.generateChunk(LocalDate.now(), productIds));
+        double batched = measure(null, () -> scheduledOrderJob.generateChunk(LocalDate.now(), productIds));
+
+        // Ordenes + detalles insertados y fechas de revision actualizadas
+        report("ScheduledPurchaseOrderJob.generateChunk", PROVIDERS + 2 * INTERVAL_PRODUCTS, unbatched, batched);
+        assertTrue(batched < unbatched);
+    }
+
+    private void insertLargeSale() {
+        Sale sale = Sale.builder().date(LocalDateTime.now()).total(0.0).build();
+        for (int i = 0; i < SALE_LINES; i++) {
+            sale.getDetails().add(SaleDetail.builder()
+                    .quantity(1)
+                    .unitPrice(10.0)
+                    .subtotal(10.0)
+                    .product(saleProduct)
+                    .sale(sale)
+                    .build());
+        }
+        saleRepository.save(sale);
+    }
+
+    // Promedio en ms de una transaccion que ejecuta work y hace flush; batchSize null usa el configurado
+    private double measure(Integer batchSize, Runnable work) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        long total = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            long elapsed = transaction.execute(status -> {
+                entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+                long start = System.nanoTime();
+                work.run();
+                entityManager.flush();
+                long end = System.nanoTime();
+                status.setRollbackOnly();
+                return end - start;
+            });
+            if (round >= WARMUP_ROUNDS) {
+                total += elapsed;
+            }
+        }
+        return total / (ROUNDS * 1_000_000.0);
+    }
+
+    private void report(String path, int rows, double unbatchedMs, double batchedMs) {
+        log.info("[{}] filas={} sin batching={}ms ({} filas/s) con batching={}ms ({} filas/s) x{}",
+                path, rows, String.format("%.1f", unbatchedMs), String.format("%.0f", rows / unbatchedMs * 1000),
+                String.format("%.1f", batchedMs), String.format("%.0f", rows / batchedMs * 1000),
+                String.format("%.1f", unbatchedMs / batchedMs));
+    }
+}
@@ -0,0 +1,157 @@
+package com.omega.retail.service;
+
+import com.omega.retail.dto.response.InventorySnapshotMismatchResponse;
+import com.omega.retail.entity.FixedLotPolicy;
+import com.omega.retail.entity.Product;
+import com.omega.retail.entity.ProductProvider;
+import com.omega.retail.entity.Provider;
+import com.omega.retail.entity.PurchaseOrder;
+import com.omega.retail.enums.InventoryPolicy;
+import com.omega.retail.enums.ProductProviderState;
+import com.omega.retail.enums.ProductState;
+import com.omega.retail.enums.ProviderState;
+import com.omega.retail.enums.PurchaseOrderState;
+import com.omega.retail.repository.ProductRepository;
+import com.omega.retail.repository.ProviderRepository;
+import com.omega.retail.repository.PurchaseOrderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// El snapshot tiene que responder lo mismo que la base despues de cada escritura confirmada
+@SpringBootTest
+class InventorySnapshotTests {
+
+    @Autowired
+    private InventorySnapshot inventorySnapshot;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private PurchaseOrderService purchaseOrderService;
+    @Autowired
+    private PurchaseOrderRepository orderRepository;
+    @Autowired
+    private ProviderRepository providerRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Product product;
+    private Provider provider;
+
+    @BeforeEach
+    void createProduct() {
+        FixedLotPolicy policy = new FixedLotPolicy();
+        policy.setSafetyStock(10);
+        policy.setReorderPoint(20);
+        product = productRepository.save(Product.builder()
+                .code("SNAP-1")
+                .description("Producto snapshot")
+                .currentStock(25)
+                .productState(ProductState.ALTA)
+                .inventoryPolicy(InventoryPolicy.LOTE_FIJO)
+                .fixedLotPolicy(policy)
+                .productProviders(new ArrayList<>())
+                .build());
+    }
+
+    @AfterEach
+    void deleteProduct() {
+        if (provider != null) {
+            orderRepository.deleteAll(orderRepository.findWithDetailsByProviderIdInAndState(
+                    List.of(provider.getId()), PurchaseOrderState.PENDIENTE));
+        }
+        productRepository.deleteById(product.getId());
+        if (provider != null) {
+            providerRepository.deleteById(provider.getId());
+        }
+        assertTrue(inventorySnapshot.check().getMismatches().stream()
+                .noneMatch(m -> m.getProductId().equals(product.getId())));
+    }
+
+    @Test
+    void followsCommittedStockChanges() {
+        assertTrue(inventorySnapshot.isLoaded());
+        assertFalse(inventorySnapshot.findBelowReorderPointWithoutActiveOrder().contains(product.getId()));
+
+        productService.reduceStock(Map.of(product.getId(), 10));
+        assertTrue(inventorySnapshot.findBelowReorderPointWithoutActiveOrder().contains(product.getId()));
+        assertFalse(inventorySnapshot.findBelowSafetyStock().contains(product.getId()));
+
+        productService.reduceStock(Map.of(product.getId(), 10));
+        assertTrue(inventorySnapshot.findBelowSafetyStock().contains(product.getId()));
+        assertEquals(List.of(), mismatchesOfProduct());
+    }
+
+    @Test
+    void ignoresRolledBackChanges() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            productService.reduceStock(Map.of(product.getId(), 20));
+            status.setRollbackOnly();
+        });
+
+        assertFalse(inventorySnapshot.findBelowSafetyStock().contains(product.getId()));
+        assertEquals(List.of(), mismatchesOfProduct());
+    }
+
+    @Test
+    void followsPolicyChanges() {
+        // Solo cambia la politica: el producto no queda sucio y no dispara su propio callback
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Product loaded = productRepository.findById(product.getId()).orElseThrow();
+            loaded.getFixedLotPolicy().setSafetyStock(30);
+        });
+
+        assertTrue(inventorySnapshot.findBelowSafetyStock().contains(product.getId()));
+        assertEquals(List.of(), mismatchesOfProduct());
+    }
+
+    // Una venta de otra instancia no llega al snapshot: la reposicion decide con el stock de la base
+    @Test
+    void reorderDecisionDoesNotTrustStaleSnapshot() {
+        provider = providerRepository.save(Provider.builder().name("Proveedor snapshot").providerState(ProviderState.ALTA).build());
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Product loaded = productRepository.findById(product.getId()).orElseThrow();
+            loaded.getFixedLotPolicy().setOptimalLotSize(50);
+            loaded.getProductProviders().add(ProductProvider.builder()
+                    .product(loaded)
+                    .provider(provider)
+                    .unitCost(5.0)
+                    .leadTime(3)
+                    .isDefault(true)
+                    .productProviderState(ProductProviderState.ALTA)
+                    .build());
+        });
+        jdbcTemplate.update("UPDATE product SET current_stock = 5 WHERE id = ?", product.getId());
+        assertFalse(inventorySnapshot.findBelowReorderPointWithoutActiveOrder().contains(product.getId()));
+
+        purchaseOrderService.generatePurchaseOrder(List.of(product.getId()));
+
+        List<PurchaseOrder> orders = orderRepository.findWithDetailsByProviderIdInAndState(
+                List.of(provider.getId()), PurchaseOrderState.PENDIENTE);
+        assertEquals(1, orders.size());
+        assertEquals(product.getId(), orders.get(0).getDetails().get(0).getProduct().getId());
+    }
+
+    private List<InventorySnapshotMismatchResponse> mismatchesOfProduct() {
+        return inventorySnapshot.check().getMismatches().stream()
+                .filter(m -> m.getProductId().equals(product.getId()))
+                .toList();
+    }
+}
@@ -0,0 +1,147 @@
+package com.omega.retail.service;
+
+import com.omega.retail.dto.request.ProductProviderRequest;
+import com.omega.retail.dto.request.ProductRequest;
+import com.omega.retail.dto.response.ProductResponse;
+import com.omega.retail.entity.FixedLotPolicy;
+import com.omega.retail.entity.Product;
+import com.omega.retail.entity.ProductProvider;
+import com.omega.retail.entity.Provider;
+import com.omega.retail.enums.InventoryPolicy;
+import com.omega.retail.enums.ProductProviderState;
+import com.omega.retail.enums.ProductState;
+import com.omega.retail.enums.ProviderState;
+import com.omega.retail.repository.ProductRepository;
+import com.omega.retail.repository.ProviderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Las modificaciones responden sin recalcular; la cola deja los mismos valores que el calculo sincronico,
+// una sola vez por rafaga de cambios
+@SpringBootTest
+class RecalculationQueueTests {
+
+    private static final long TIMEOUT_MS = 15_000;
+
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private ProductProviderService productProviderService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private ProviderRepository providerRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Provider provider;
+    private Product product;
+
+    @BeforeEach
+    void createProduct() {
+        provider = providerRepository.save(Provider.builder()
+                .name("Proveedor cola")
+                .providerState(ProviderState.ALTA)
+                .build());
+        FixedLotPolicy policy = new FixedLotPolicy();
+        policy.setSafetyStock(5);
+        product = Product.builder()
+                .code("RQ-1")
+                .description("Producto cola")
+                .currentStock(40)
+                .annualDemand(1000)
+                .storageCost(2.0)
+                .productState(ProductState.ALTA)
+                .inventoryPolicy(InventoryPolicy.LOTE_FIJO)
+                .fixedLotPolicy(policy)
+                .productProviders(new ArrayList<>())
+                .build();
+        product.getProductProviders().add(ProductProvider.builder()
+                .product(product)
+                .provider(provider)
+                .unitCost(4.0)
+                .shippingCost(25.0)
+                .leadTime(10)
+                .isDefault(true)
+                .productProviderState(ProductProviderState.ALTA)
+                .build());
+        product = productRepository.save(product);
+    }
+
+    @AfterEach
+    void deleteProduct() {
+        productRepository.deleteById(product.getId());
+        providerRepository.deleteById(provider.getId());
+    }
+
+    @Test
+    void burstOfUpdatesIsRecalculatedOnce() throws InterruptedException {
+        ProductResponse response = null;
+        for (int demand = 1000; demand <= 5000; demand += 1000) {
+            response = productService.update(product.getId(), request(demand));
+        }
+        assertTrue(response.getRecalculationPending());
+        assertEquals(null, response.getCalculationVersion());
+
+        ProductResponse recalculated = awaitRecalculation();
+
+        assertEquals(1L, recalculated.getCalculationVersion());
+        // D = 5000, S = 25, H = 2: sqrt(2 * 5000 * 25 / 2) = 353,55; d * L + SS = 5000 / 365 * 10 + 5 = 141,99
+        assertEquals(354, recalculated.getFixedLotPolicy().getOptimalLotSize());
+        assertEquals(142, recalculated.getFixedLotPolicy().getReorderPoint());
+    }
+
+    @Test
+    void linkUpdateWithoutProductChangeIsRecalculated() throws InterruptedException {
+        Long linkId = product.getProductProviders().get(0).getId();
+        productProviderService.update(linkId, ProductProviderRequest.builder()
+                .providerId(provider.getId())
+                .productId(product.getId())
+                .unitCost(4.0)
+                .shippingCost(100.0)
+                .leadTime(10)
+                .build());
+
+        ProductResponse recalculated = awaitRecalculation();
+
+        // D = 1000, S = 100, H = 2: sqrt(2 * 1000 * 100 / 2) = 316,23
+        assertEquals(316, recalculated.getFixedLotPolicy().getOptimalLotSize());
+    }
+
+    private ProductResponse awaitRecalculation() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        ProductResponse current = load();
+        while (current.getRecalculationPending() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+            current = load();
+        }
+        assertFalse(current.getRecalculationPending());
+        return current;
+    }
+
+    private ProductResponse load() {
+        return new TransactionTemplate(transactionManager).execute(status -> productService.getById(product.getId()));
+    }
+
+    private ProductRequest request(int annualDemand) {
+        ProductRequest request = new ProductRequest();
+        request.setCode(product.getCode());
+        request.setDescription(product.getDescription());
+        request.setCurrentStock(product.getCurrentStock());
+        request.setAnnualDemand(annualDemand);
+        request.setStorageCost(product.getStorageCost());
+        request.setInventoryPolicy(InventoryPolicy.LOTE_FIJO);
+        return request;
+    }
+}
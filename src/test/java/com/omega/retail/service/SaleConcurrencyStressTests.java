@@ -0,0 +1,150 @@
+package com.omega.retail.service;
+
+import com.omega.retail.dto.request.SaleBatchRequest;
+import com.omega.retail.dto.request.SaleDetailRequest;
+import com.omega.retail.dto.request.SaleRequest;
+import com.omega.retail.dto.response.SaleBatchItemResponse;
+import com.omega.retail.dto.response.SaleBatchResponse;
+import com.omega.retail.entity.FixedLotPolicy;
+import com.omega.retail.entity.Product;
+import com.omega.retail.enums.InventoryPolicy;
+import com.omega.retail.enums.ProductState;
+import com.omega.retail.repository.ProductRepository;
+import com.omega.retail.repository.SaleRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Stress de un SKU "caliente": muchos clientes vendiendo el mismo producto a la vez.
+// mvn test -Pbenchmark -Dtest=SaleConcurrencyStressTests
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest
+class SaleConcurrencyStressTests {
+
+    private static final int INITIAL_STOCK = 2_000;
+    private static final int CLIENTS = 32;
+    private static final int ATTEMPTS = 3_000;
+    private static final int SALES_PER_BATCH = 10;
+
+    @Autowired
+    private SaleService saleService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private SaleRepository saleRepository;
+
+    private Product product;
+    private final List<Long> saleIds = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void createHotProduct() {
+        product = productRepository.save(Product.builder()
+                .code("HOT-SKU")
+                .description("Producto de stress")
+                .currentStock(INITIAL_STOCK)
+                .annualDemand(1)
+                .storageCost(1.0)
+                .productState(ProductState.ALTA)
+                .inventoryPolicy(InventoryPolicy.LOTE_FIJO)
+                .fixedLotPolicy(new FixedLotPolicy())
+                .build());
+    }
+
+    @AfterEach
+    void cleanUp() {
+        saleRepository.deleteAllById(saleIds);
+        productRepository.deleteById(product.getId());
+    }
+
+    @Test
+    void concurrentSingleSalesNeverOversell() throws InterruptedException {
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        long elapsed = run(ATTEMPTS, () -> {
+            try {
+                saleIds.add(saleService.createSale(sale()).getId());
+                accepted.incrementAndGet();
+            } catch (RuntimeException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        report("createSale", accepted.get(), rejected.get(), elapsed);
+        assertEquals(INITIAL_STOCK, accepted.get());
+        assertEquals(0, currentStock());
+    }
+
+    @Test
+    void concurrentBatchesNeverOversell() throws InterruptedException {
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        long elapsed = run(ATTEMPTS / SALES_PER_BATCH, () -> {
+            SaleBatchRequest request = SaleBatchRequest.builder()
+                    .sales(IntStream.range(0, SALES_PER_BATCH).mapToObj(i -> sale()).toList())
+                    .build();
+            SaleBatchResponse response = saleService.createSales(request);
+            for (SaleBatchItemResponse result : response.getResults()) {
+                if (result.getAccepted()) {
+                    saleIds.add(result.getSaleId());
+                }
+            }
+            accepted.addAndGet(response.getAccepted());
+            rejected.addAndGet(response.getRejected());
+        });
+
+        report("createSales", accepted.get(), rejected.get(), elapsed);
+        assertEquals(INITIAL_STOCK, accepted.get());
+        assertEquals(0, currentStock());
+    }
+
+    private long run(int tasks, Runnable task) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(CLIENTS);
+        long start = System.nanoTime();
+        for (int i = 0; i < tasks; i++) {
+            pool.submit(task);
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.MINUTES));
+        return System.nanoTime() - start;
+    }
+
+    private SaleRequest sale() {
+        return SaleRequest.builder()
+                .saleDetail(List.of(SaleDetailRequest.builder()
+                        .productId(product.getId())
+                        .quantity(1)
+                        .unitPrice(10.0)
+                        .build()))
+                .build();
+    }
+
+    private int currentStock() {
+        return productRepository.findById(product.getId()).orElseThrow().getCurrentStock();
+    }
+
+    private void report(String path, int accepted, int rejected, long elapsedNanos) {
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        log.info("[{}] clientes={} aceptadas={} rechazadas={} tiempo={}s ventas/s={}",
+                path, CLIENTS, accepted, rejected, String.format("%.2f", seconds),
+                String.format("%.0f", accepted / seconds));
+    }
+}
@@ -0,0 +1,265 @@
+package com.omega.retail.service;
+
+import com.omega.retail.entity.FixedIntervalPolicy;
+import com.omega.retail.entity.Product;
+import com.omega.retail.entity.ProductProvider;
+import com.omega.retail.entity.Provider;
+import com.omega.retail.entity.PurchaseOrder;
+import com.omega.retail.entity.ScheduledOrderCheckpoint;
+import com.omega.retail.enums.InventoryPolicy;
+import com.omega.retail.enums.ProductProviderState;
+import com.omega.retail.enums.ProductState;
+import com.omega.retail.enums.ProviderState;
+import com.omega.retail.enums.PurchaseOrderState;
+import com.omega.retail.repository.ProductRepository;
+import com.omega.retail.repository.ProviderRepository;
+import com.omega.retail.repository.PurchaseOrderRepository;
+import com.omega.retail.repository.ScheduledOrderCheckpointRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.env.Environment;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+// La corrida programada solo ordena los productos vencidos, adelanta su proxima revision, no repite en el dia,
+// retoma una particion desde su checkpoint, toma el lease vencido de otro nodo y reparte las particiones entre nodos
+@SpringBootTest
+class ScheduledPurchaseOrderJobTests {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @Autowired
+    private ScheduledPurchaseOrderJob job;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private ProviderRepository providerRepository;
+    @Autowired
+    private PurchaseOrderRepository orderRepository;
+    @Autowired
+    private ScheduledOrderCheckpointRepository checkpointRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private Environment environment;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final List<Provider> providers = new ArrayList<>();
+    private Product dueLongAgo;
+    private Product notDue;
+    private Product neverReviewed;
+    private Product dueWithoutShortage;
+
+    @BeforeEach
+    void createFixtures() {
+        deleteCheckpoints();
+        providers.add(providerRepository.save(Provider.builder().name("Proveedor intervalo A").providerState(ProviderState.ALTA).build()));
+        providers.add(providerRepository.save(Provider.builder().name("Proveedor intervalo B").providerState(ProviderState.ALTA).build()));
+
+        dueLongAgo = productRepository.save(product("SCH-1", providers.get(0), TODAY.minusDays(7), 0));
+        notDue = productRepository.save(product("SCH-2", providers.get(1), TODAY.minusDays(1), 0));
+        neverReviewed = productRepository.save(product("SCH-3", providers.get(1), null, 0));
+        dueWithoutShortage = productRepository.save(product("SCH-4", providers.get(0), TODAY.minusDays(10), 10_000));
+    }
+
+    @AfterEach
+    void cleanUp() {
+        deleteCheckpoints();
+        orderRepository.deleteAll(pendingOrders());
+        productRepository.deleteAll(List.of(dueLongAgo, notDue, neverReviewed, dueWithoutShortage));
+        providerRepository.deleteAll(providers);
+    }
+
+    @Test
+    void ordersOnlyDueProductsOncePerDay() {
+        assertEquals(TODAY, dueLongAgo.getFixedIntervalPolicy().getNextReviewDate());
+        assertEquals(TODAY.plusDays(6), notDue.getFixedIntervalPolicy().getNextReviewDate());
+        assertEquals(TODAY, neverReviewed.getFixedIntervalPolicy().getNextReviewDate());
+
+        ScheduledPurchaseOrderJob.Summary summary = job.run(TODAY);
+
+        assertEquals(3, summary.productsScanned());
+        assertEquals(2, summary.linesAdded());
+        assertEquals(2, summary.ordersTouched());
+        assertEquals(Set.of(dueLongAgo.getId(), neverReviewed.getId()), orderedProducts());
+        assertEquals(TODAY.plusDays(7), nextReview(dueLongAgo));
+        assertEquals(TODAY.plusDays(7), nextReview(neverReviewed));
+        assertEquals(TODAY.minusDays(3), nextReview(dueWithoutShortage));
+        checkpointRepository.findByRunDateOrderByPartitionIndex(TODAY)
+                .forEach(checkpoint -> assertNotNull(checkpoint.getFinishedAt()));
+
+        assertEquals(0, job.run(TODAY).linesAdded());
+        assertEquals(2, orderedProducts().size());
+    }
+
+    @Test
+    void resumesPartitionAfterLastCommittedProduct() {
+        // Corrida cortada despues de confirmar el chunk que termino en dueLongAgo
+        checkpointRepository.save(ScheduledOrderCheckpoint.builder()
+                .runDate(TODAY)
+                .partitionIndex(0)
+                .partitions(1)
+                .lastProductId(dueLongAgo.getId())
+                .productsScanned(1)
+                .linesAdded(1)
+                .chunks(1)
+                .startedAt(LocalDateTime.now())
+                .build());
+
+        ScheduledPurchaseOrderJob.Summary summary = job.run(TODAY);
+
+        assertEquals(1, summary.linesAdded());
+        assertEquals(Set.of(neverReviewed.getId()), orderedProducts());
+        ScheduledOrderCheckpoint checkpoint = checkpointRepository.findByRunDateOrderByPartitionIndex(TODAY).get(0);
+        assertNotNull(checkpoint.getFinishedAt());
+        assertEquals(2, checkpoint.getLinesAdded());
+        assertEquals(TODAY, nextReview(dueLongAgo));
+    }
+
+    @Test
+    void takesOverExpiredLeaseAndFencesPreviousOwner() {
+        // Nodo caido a mitad de la corrida: su lease vencio sin terminar la particion
+        ScheduledOrderCheckpoint abandoned = checkpointRepository.save(ScheduledOrderCheckpoint.builder()
+                .runDate(TODAY)
+                .partitionIndex(0)
+                .partitions(1)
+                .lastProductId(0L)
+                .productsScanned(0)
+                .linesAdded(0)
+                .chunks(0)
+                .startedAt(LocalDateTime.now())
+                .leaseOwner("nodo-caido")
+                .leaseExpiresAt(LocalDateTime.now().minusMinutes(5))
+                .fencingToken(3L)
+                .attempts(1)
+                .build());
+
+        assertEquals(2, job.run(TODAY).linesAdded());
+
+        ScheduledOrderCheckpoint checkpoint = checkpointRepository.findById(abandoned.getId()).orElseThrow();
+        assertNotNull(checkpoint.getFinishedAt());
+        assertNotEquals("nodo-caido", checkpoint.getLeaseOwner());
+        assertEquals(4L, checkpoint.getFencingToken());
+        assertEquals(2, checkpoint.getAttempts());
+        // El nodo anterior ya no puede confirmar avance con su token
+        int stale = new TransactionTemplate(transactionManager).execute(status ->
+                checkpointRepository.recordChunk(abandoned.getId(), 3L, Long.MAX_VALUE, 1, 1));
+        assertEquals(0, stale);
+    }
+
+    @Test
+    void exhaustedPartitionBecomesTerminal() {
+        // Ultima toma permitida (max-attempts = 3) de un nodo que se cayo: el lease vencio sin terminar
+        ScheduledOrderCheckpoint exhausted = checkpointRepository.save(ScheduledOrderCheckpoint.builder()
+                .runDate(TODAY)
+                .partitionIndex(0)
+                .partitions(1)
+                .lastProductId(0L)
+                .productsScanned(0)
+                .linesAdded(0)
+                .chunks(0)
+                .startedAt(LocalDateTime.now())
+                .leaseOwner("nodo-caido")
+                .leaseExpiresAt(LocalDateTime.now().minusMinutes(5))
+                .fencingToken(3L)
+                .attempts(3)
+                .build());
+        double failedBefore = meterRegistry.counter("retail.scheduled-orders.partitions.failed").count();
+
+        ScheduledPurchaseOrderJob.Summary summary = job.run(TODAY);
+
+        assertEquals(0, summary.linesAdded());
+        assertEquals(1, summary.failedPartitions());
+        assertNotNull(checkpointRepository.findById(exhausted.getId()).orElseThrow().getFailedAt());
+        assertFalse(checkpointRepository.existsByRunDateAndFinishedAtIsNullAndFailedAtIsNull(TODAY));
+        assertEquals(failedBefore + 1, meterRegistry.counter("retail.scheduled-orders.partitions.failed").count());
+        // Una invocacion posterior no la vuelve a contar
+        assertEquals(1, job.run(TODAY).failedPartitions());
+        assertEquals(failedBefore + 1, meterRegistry.counter("retail.scheduled-orders.partitions.failed").count());
+    }
+
+    @Test
+    void concurrentNodesProcessEachPartitionOnce() throws Exception {
+        ScheduledPurchaseOrderJob otherNode = new ScheduledPurchaseOrderJob(productRepository, orderRepository,
+                checkpointRepository, transactionManager, environment, new SimpleMeterRegistry(),
+                "nodo-2", 16, 4, 500, 60, 3, 100);
+        try {
+            CompletableFuture<ScheduledPurchaseOrderJob.Summary> other = CompletableFuture.supplyAsync(() -> otherNode.run(TODAY));
+            ScheduledPurchaseOrderJob.Summary local = job.run(TODAY);
+
+            assertEquals(2, local.linesAdded() + other.get().linesAdded());
+            assertEquals(2, pendingOrders().stream().mapToInt(order -> order.getDetails().size()).sum());
+            assertEquals(16, checkpointRepository.findByRunDateOrderByPartitionIndex(TODAY).size());
+        } finally {
+            otherNode.shutdown();
+        }
+    }
+
+    private Product product(String code, Provider provider, LocalDate lastReview, int stock) {
+        FixedIntervalPolicy policy = new FixedIntervalPolicy();
+        policy.setReviewIntervalDays(7);
+        policy.setSafetyStock(10);
+        policy.setLastReviewDate(lastReview);
+
+        Product product = Product.builder()
+                .code(code)
+                .description("Producto " + code)
+                .currentStock(stock)
+                .annualDemand(3_650)
+                .storageCost(1.0)
+                .productState(ProductState.ALTA)
+                .inventoryPolicy(InventoryPolicy.INTERVALO_FIJO)
+                .fixedIntervalPolicy(policy)
+                .productProviders(new ArrayList<>())
+                .build();
+        product.getProductProviders().add(ProductProvider.builder()
+                .product(product)
+                .provider(provider)
+                .unitCost(5.0)
+                .leadTime(3)
+                .isDefault(true)
+                .productProviderState(ProductProviderState.ALTA)
+                .build());
+        return product;
+    }
+
+    private List<PurchaseOrder> pendingOrders() {
+        return orderRepository.findWithDetailsByProviderIdInAndState(
+                providers.stream().map(Provider::getId).toList(), PurchaseOrderState.PENDIENTE);
+    }
+
+    private Set<Long> orderedProducts() {
+        return pendingOrders().stream()
+                .flatMap(order -> order.getDetails().stream())
+                .map(detail -> detail.getProduct().getId())
+                .collect(Collectors.toSet());
+    }
+
+    private LocalDate nextReview(Product product) {
+        return new TransactionTemplate(transactionManager).execute(status -> productRepository.findById(product.getId())
+                .orElseThrow().getFixedIntervalPolicy().getNextReviewDate());
+    }
+
+    private void deleteCheckpoints() {
+        checkpointRepository.deleteAll(checkpointRepository.findByRunDateOrderByPartitionIndex(TODAY));
+    }
+}
@@ -0,0 +1,142 @@
+package com.omega.retail.service;
+
+import com.omega.retail.dto.request.ProductRequest;
+import com.omega.retail.dto.response.StockMovementResponse;
+import com.omega.retail.entity.FixedLotPolicy;
+import com.omega.retail.entity.Product;
+import com.omega.retail.enums.InventoryPolicy;
+import com.omega.retail.enums.ProductState;
+import com.omega.retail.enums.StockMovementType;
+import com.omega.retail.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Cada cambio de stock queda en el libro y el stock a una fecha sale igual antes y despues de compactar
+@SpringBootTest
+class StockLedgerTests {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @Autowired
+    private StockLedgerService stockLedgerService;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Product product;
+
+    @BeforeEach
+    void createProduct() {
+        // Stock cargado antes del libro: no tiene movimientos
+        product = productRepository.save(Product.builder()
+                .code("LEDGER-1")
+                .description("Producto libro de stock")
+                .currentStock(25)
+                .productState(ProductState.ALTA)
+                .inventoryPolicy(InventoryPolicy.LOTE_FIJO)
+                .fixedLotPolicy(new FixedLotPolicy())
+                .productProviders(new ArrayList<>())
+                .build());
+    }
+
+    @AfterEach
+    void deleteProduct() {
+        jdbcTemplate.update("DELETE FROM stock_snapshot WHERE product_id = ?", product.getId());
+        jdbcTemplate.update("DELETE FROM stock_movement WHERE product_id = ?", product.getId());
+        productRepository.deleteById(product.getId());
+    }
+
+    @Test
+    void stockAtDateFromSnapshotsAndMovements() {
+        productService.increaseStock(Map.of(product.getId(), 50));
+        productService.reduceStock(Map.of(product.getId(), 20));
+        productService.reduceStock(Map.of(product.getId(), 1_000));
+        backdate(StockMovementType.RECEPCION, TODAY.minusDays(3));
+        backdate(StockMovementType.VENTA, TODAY.minusDays(1));
+
+        List<StockMovementResponse> movements = stockLedgerService.getMovements(product.getId(), TODAY.minusDays(7), TODAY);
+        assertEquals(List.of(50, -20), movements.stream().map(StockMovementResponse::getQuantity).toList());
+        assertExpectedHistory();
+
+        assertEquals(1, stockLedgerService.compact(TODAY.minusDays(2)));
+        assertEquals(0, stockLedgerService.compact(TODAY.minusDays(2)));
+        assertEquals(75, snapshot(TODAY.minusDays(2)));
+        assertExpectedHistory();
+
+        assertEquals(1, stockLedgerService.compact(TODAY.minusDays(1)));
+        assertEquals(55, snapshot(TODAY.minusDays(1)));
+        assertExpectedHistory();
+
+        assertThrows(RuntimeException.class, () -> stockLedgerService.compact(TODAY));
+    }
+
+    @Test
+    void manualStockEditDoesNotOverwriteConcurrentDecrement() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            // La entidad queda leida con 25 antes del descuento, como en un PUT que corre junto a una venta
+            productRepository.findById(product.getId()).orElseThrow();
+            productService.reduceStock(Map.of(product.getId(), 5));
+            productService.update(product.getId(), stockRequest(30));
+        });
+
+        // +5 sobre lo leido, aplicado sobre los 20 que dejo la venta
+        assertEquals(25, jdbcTemplate.queryForObject("SELECT current_stock FROM product WHERE id = ?",
+                Integer.class, product.getId()));
+        List<StockMovementResponse> movements = stockLedgerService.getMovements(product.getId(), TODAY, TODAY);
+        assertEquals(List.of(StockMovementType.VENTA, StockMovementType.AJUSTE),
+                movements.stream().map(StockMovementResponse::getMovementType).toList());
+        assertEquals(List.of(-5, 5), movements.stream().map(StockMovementResponse::getQuantity).toList());
+
+        assertThrows(RuntimeException.class, () -> productService.update(product.getId(), stockRequest(-1)));
+    }
+
+    private ProductRequest stockRequest(int currentStock) {
+        ProductRequest request = new ProductRequest();
+        request.setCode(product.getCode());
+        request.setDescription(product.getDescription());
+        request.setCurrentStock(currentStock);
+        request.setInventoryPolicy(InventoryPolicy.LOTE_FIJO);
+        return request;
+    }
+
+    private void assertExpectedHistory() {
+        assertEquals(25, stockAt(TODAY.minusDays(4)));
+        assertEquals(75, stockAt(TODAY.minusDays(3)));
+        assertEquals(75, stockAt(TODAY.minusDays(2)));
+        assertEquals(55, stockAt(TODAY.minusDays(1)));
+        assertEquals(55, stockAt(TODAY));
+    }
+
+    private int stockAt(LocalDate date) {
+        return stockLedgerService.getStockAt(product.getId(), date).getStock();
+    }
+
+    private int snapshot(LocalDate date) {
+        return jdbcTemplate.queryForObject("SELECT stock FROM stock_snapshot WHERE product_id = ? AND snapshot_date = ?",
+                Integer.class, product.getId(), date);
+    }
+
+    private void backdate(StockMovementType type, LocalDate date) {
+        jdbcTemplate.update("UPDATE stock_movement SET occurred_at = ? WHERE product_id = ? AND movement_type = ?",
+                date.atTime(12, 0), product.getId(), type.name());
+    }
+}